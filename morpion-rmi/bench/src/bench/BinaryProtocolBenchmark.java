@@ -0,0 +1,201 @@
+package bench;
+
+import client.BinaryMorpionClient;
+import server.MorpionServer;
+import shared.MorpionInterface;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.rmi.server.RMISocketFactory;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-call latency and bytes on the wire of RMI against BinaryProtocol. One
+ * in-process server is reached over loopback through both transports; two
+ * players play drawn 3x3 games with makeMove and fetch the board with
+ * getRoomSnapshot after every move, as a polling client would. Client-side
+ * socket bytes are counted in both directions, TCP/IP headers excluded.
+ *
+ * Usage: java -cp bin;bin-bench bench.BinaryProtocolBenchmark [moves] [registryPort] [binaryPort]
+ */
+public class BinaryProtocolBenchmark {
+    private static final int[][] GAME = { { 0, 0 }, { 0, 1 }, { 0, 2 }, { 1, 1 }, { 1, 0 }, { 1, 2 }, { 2, 1 },
+            { 2, 0 }, { 2, 2 } };
+
+    // RMI client sockets count what goes through them; server sockets are left alone
+    private static final AtomicLong rmiSent = new AtomicLong();
+    private static final AtomicLong rmiReceived = new AtomicLong();
+
+    private static final class CountingSocket extends Socket {
+        private InputStream in;
+        private OutputStream out;
+
+        CountingSocket(String host, int port) throws IOException {
+            super(host, port);
+        }
+
+        @Override
+        public synchronized InputStream getInputStream() throws IOException {
+            if (in == null) {
+                in = new FilterInputStream(super.getInputStream()) {
+                    @Override
+                    public int read() throws IOException {
+                        int b = super.read();
+                        if (b >= 0) {
+                            rmiReceived.incrementAndGet();
+                        }
+                        return b;
+                    }
+
+                    @Override
+                    public int read(byte[] buffer, int offset, int length) throws IOException {
+                        int n = super.read(buffer, offset, length);
+                        if (n > 0) {
+                            rmiReceived.addAndGet(n);
+                        }
+                        return n;
+                    }
+                };
+            }
+            return in;
+        }
+
+        @Override
+        public synchronized OutputStream getOutputStream() throws IOException {
+            if (out == null) {
+                out = new FilterOutputStream(super.getOutputStream()) {
+                    @Override
+                    public void write(int b) throws IOException {
+                        rmiSent.incrementAndGet();
+                        out.write(b);
+                    }
+
+                    @Override
+                    public void write(byte[] buffer, int offset, int length) throws IOException {
+                        rmiSent.addAndGet(length);
+                        out.write(buffer, offset, length);
+                    }
+                };
+            }
+            return out;
+        }
+    }
+
+    private interface Counter {
+        long bytes();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int moves = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int registryPort = args.length > 1 ? Integer.parseInt(args[1]) : 1199;
+        int binaryPort = args.length > 2 ? Integer.parseInt(args[2]) : 1200;
+
+        RMISocketFactory.setSocketFactory(new RMISocketFactory() {
+            @Override
+            public Socket createSocket(String host, int port) throws IOException {
+                return new CountingSocket(host, port);
+            }
+
+            @Override
+            public ServerSocket createServerSocket(int port) throws IOException {
+                return new ServerSocket(port);
+            }
+        });
+        System.setProperty("morpion.journal", "none");
+        System.setProperty("morpion.profiles", "none");
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream())); // silence server logging
+        MorpionServer server = new MorpionServer();
+        Registry registry = LocateRegistry.createRegistry(registryPort);
+        registry.rebind("MorpionGame", UnicastRemoteObject.exportObject(server, 0));
+        server.startBinaryProtocol(binaryPort);
+
+        MorpionInterface rmi = (MorpionInterface) LocateRegistry.getRegistry("localhost", registryPort)
+                .lookup("MorpionGame");
+        BinaryMorpionClient binary = new BinaryMorpionClient("localhost", binaryPort);
+
+        out.printf("[BENCH] %,d moves per transport, each followed by getRoomSnapshot%n", moves);
+        run(out, "RMI", rmi, moves, () -> rmiSent.get() + rmiReceived.get());
+        run(out, "Binary", binary, moves, () -> binary.getBytesSent() + binary.getBytesReceived());
+        binary.close();
+        System.exit(0);
+    }
+
+    private static void run(PrintStream out, String transport, MorpionInterface game, int moves, Counter counter)
+            throws Exception {
+        String host = "host-" + transport;
+        String guest = "guest-" + transport;
+        play(game, host, guest, moves / 4, null, null); // warm-up
+
+        long[] moveNanos = new long[moves];
+        long[] snapshotNanos = new long[moves];
+        long start = System.nanoTime();
+        play(game, host, guest, moves, moveNanos, snapshotNanos);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        // Byte counts from a separate short run, so the timed one pays nothing for them
+        int sampled = Math.min(moves, 900);
+        long[] bytes = new long[2]; // makeMove, getRoomSnapshot
+        String room = null;
+        for (int i = 0; i < sampled; i++) {
+            int m = i % GAME.length;
+            if (m == 0) {
+                room = openRoom(game, host, guest);
+            }
+            long before = counter.bytes();
+            game.makeMove(room, GAME[m][0], GAME[m][1], (m & 1) == 0 ? host : guest);
+            long between = counter.bytes();
+            game.getRoomSnapshot(room, null);
+            bytes[0] += between - before;
+            bytes[1] += counter.bytes() - between;
+        }
+
+        out.printf("[BENCH] %-6s makeMove        p50 %6.1f us  p99 %7.1f us  %,6.0f bytes/call%n", transport,
+                percentile(moveNanos, 50), percentile(moveNanos, 99), bytes[0] / (double) sampled);
+        out.printf("[BENCH] %-6s getRoomSnapshot p50 %6.1f us  p99 %7.1f us  %,6.0f bytes/call%n", transport,
+                percentile(snapshotNanos, 50), percentile(snapshotNanos, 99), bytes[1] / (double) sampled);
+        out.printf("[BENCH] %-6s %,10.0f moves/s with snapshots%n", transport, moves / seconds);
+    }
+
+    // resetGame isn't room-scoped on the interface, so every game gets a new room
+    private static String openRoom(MorpionInterface game, String host, String guest) throws Exception {
+        String room = game.createRoom(host);
+        game.joinRoom(room, guest);
+        return room;
+    }
+
+    private static void play(MorpionInterface game, String host, String guest, int moves, long[] moveNanos,
+            long[] snapshotNanos) throws Exception {
+        String room = null;
+        for (int i = 0; i < moves; i++) {
+            int m = i % GAME.length;
+            if (m == 0) {
+                room = openRoom(game, host, guest);
+            }
+            long t0 = System.nanoTime();
+            game.makeMove(room, GAME[m][0], GAME[m][1], (m & 1) == 0 ? host : guest);
+            long t1 = System.nanoTime();
+            game.getRoomSnapshot(room, null);
+            long t2 = System.nanoTime();
+            if (moveNanos != null) {
+                moveNanos[i] = t1 - t0;
+                snapshotNanos[i] = t2 - t1;
+            }
+        }
+    }
+
+    private static double percentile(long[] nanos, int percent) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return sorted[Math.min(sorted.length - 1, sorted.length * percent / 100)] / 1e3;
+    }
+}
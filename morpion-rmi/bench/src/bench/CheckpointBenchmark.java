@@ -0,0 +1,85 @@
+package bench;
+
+import server.MorpionServer;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Restart cost with and without checkpoints. Fills a journal with many
+ * half-played rooms, then times a cold start that replays the whole journal
+ * against one that loads the checkpoint the first start compacted it into.
+ *
+ * Usage: java -cp bin;bin-bench bench.CheckpointBenchmark [rooms] [movesPerRoom]
+ */
+public class CheckpointBenchmark {
+    // Alternating X and O moves that never complete a line
+    private static final int[][] MOVES = { { 0, 0 }, { 1, 1 }, { 0, 1 }, { 0, 2 }, { 2, 0 }, { 1, 0 } };
+
+    public static void main(String[] args) throws Exception {
+        int rooms = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int movesPerRoom = args.length > 1 ? Math.min(Integer.parseInt(args[1]), MOVES.length) : 4;
+
+        Path dir = Files.createTempDirectory("morpion-checkpoint");
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream())); // silence server logging
+        System.setProperty("morpion.checkpoint.intervalSec", "3600"); // only explicit checkpoints
+        System.setProperty("morpion.profiles", "none");
+
+        // Live server: every room is created, joined and played through the journal
+        Path live = useDirectory(dir.resolve("live"));
+        MorpionServer server = new MorpionServer();
+        for (int r = 0; r < rooms; r++) {
+            String host = "host-" + r;
+            String guest = "guest-" + r;
+            String room = server.createRoom(host);
+            server.joinRoom(room, guest);
+            for (int m = 0; m < movesPerRoom; m++) {
+                server.makeMove(room, MOVES[m][0], MOVES[m][1], (m & 1) == 0 ? host : guest);
+            }
+        }
+        Thread.sleep(500); // let the journal writer drain
+        Path restarted = useDirectory(dir.resolve("restarted"));
+        Files.copy(live.resolve("morpion.journal"), restarted.resolve("morpion.journal"));
+        long journalBytes = Files.size(restarted.resolve("morpion.journal"));
+
+        long start = System.nanoTime();
+        server.checkpoint();
+        double checkpointMs = (System.nanoTime() - start) / 1e6;
+        long checkpointBytes = Files.size(live.resolve("morpion.checkpoint"));
+
+        // First restart replays the full journal (and compacts it), the second loads the checkpoint
+        start = System.nanoTime();
+        new MorpionServer();
+        double replayMs = (System.nanoTime() - start) / 1e6;
+        // The restarted server still holds its files, so the second restart loads a copy of them
+        Path reloaded = useDirectory(dir.resolve("reloaded"));
+        for (String file : new String[] { "morpion.journal", "morpion.checkpoint" }) {
+            Files.copy(restarted.resolve(file), reloaded.resolve(file));
+        }
+        start = System.nanoTime();
+        new MorpionServer();
+        double loadMs = (System.nanoTime() - start) / 1e6;
+
+        out.printf("[BENCH] %,d rooms, %d moves each%n", rooms, movesPerRoom);
+        out.printf("[BENCH] Checkpoint write   %10.1f ms  %,14d bytes%n", checkpointMs, checkpointBytes);
+        out.printf("[BENCH] Journal replay     %10.1f ms  %,14d bytes (includes compaction)%n", replayMs,
+                journalBytes);
+        out.printf("[BENCH] Checkpoint load    %10.1f ms  (%.1fx faster)%n", loadMs, replayMs / loadMs);
+
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+        System.exit(0);
+    }
+
+    private static Path useDirectory(Path dir) throws Exception {
+        Files.createDirectories(dir);
+        System.setProperty("morpion.journal", dir.resolve("morpion.journal").toString());
+        System.setProperty("morpion.checkpoint", dir.resolve("morpion.checkpoint").toString());
+        return dir;
+    }
+}
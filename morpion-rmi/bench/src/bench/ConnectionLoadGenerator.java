@@ -0,0 +1,175 @@
+package bench;
+
+import client.BinaryMorpionClient;
+import server.MorpionServer;
+import shared.BinaryProtocol;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Many concurrent, mostly idle connections on the binary front-end. Opens the
+ * connections, checks every one is served with a cheap call, then parks all
+ * of them in waitForChange on one room and makes a move to wake them at once.
+ * Reports heap and thread counts at each step, so the cost per connection is
+ * visible: with RMI each connection would also hold a thread.
+ *
+ * By default the server runs in this JVM, so heap and threads cover both ends
+ * of every connection. Each connection then takes two file descriptors: raise
+ * "ulimit -n" above twice the connection count, or run the server separately
+ * and pass its address. Loopback connections are spread over several source
+ * addresses so the ephemeral port range is not a limit.
+ *
+ * Usage: java -cp bin;bin-bench bench.ConnectionLoadGenerator [connections] [host:port]
+ */
+public class ConnectionLoadGenerator {
+    private static final int CONNECTIONS_PER_SOURCE_ADDRESS = 20_000;
+    private static long baselineHeap;
+
+    public static void main(String[] args) throws Exception {
+        int target = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        PrintStream out = System.out;
+        InetSocketAddress server;
+        boolean inProcess = args.length < 2;
+        if (inProcess) {
+            System.setProperty("morpion.journal", "none");
+            System.setProperty("morpion.profiles", "none");
+            System.setOut(new PrintStream(OutputStream.nullOutputStream())); // silence server logging
+            MorpionServer game = new MorpionServer();
+            server = new InetSocketAddress(InetAddress.getLoopbackAddress(), game.startBinaryProtocol(0));
+        } else {
+            String[] hostPort = args[1].split(":");
+            server = new InetSocketAddress(hostPort[0], Integer.parseInt(hostPort[1]));
+        }
+        out.printf("[BENCH] %,d connections to %s (server %s)%n", target, server,
+                inProcess ? "in this JVM" : "remote");
+        report(out, "Before connecting", 0);
+
+        // Connect
+        List<SocketChannel> channels = new ArrayList<>(target);
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < target; i++) {
+                SocketChannel channel = SocketChannel.open();
+                if (server.getAddress().isLoopbackAddress()) {
+                    byte[] source = { 127, 0, (byte) (i / CONNECTIONS_PER_SOURCE_ADDRESS), 2 };
+                    channel.bind(new InetSocketAddress(InetAddress.getByAddress(source), 0));
+                }
+                channel.connect(server);
+                channels.add(channel);
+            }
+        } catch (IOException e) {
+            out.printf("[BENCH] Stopped at %,d connections: %s%n", channels.size(), e.getMessage());
+        }
+        int count = channels.size();
+        out.printf("[BENCH] Connected %,d in %.1f s%n", count, (System.nanoTime() - start) / 1e9);
+        report(out, "Idle connections", count);
+
+        // One cheap call on every connection
+        ByteBuffer reply = ByteBuffer.allocate(BinaryProtocol.MAX_FRAME_BYTES + 4);
+        ByteBuffer status = request(BinaryProtocol.GET_ROOM_STATUS, "NO-SUCH-ROOM", null);
+        start = System.nanoTime();
+        for (SocketChannel channel : channels) {
+            send(channel, status);
+        }
+        int served = 0;
+        for (SocketChannel channel : channels) {
+            served += receive(channel, reply) == BinaryProtocol.OK ? 1 : 0;
+        }
+        out.printf("[BENCH] getRoomStatus answered on %,d of %,d connections in %.0f ms%n", served, count,
+                (System.nanoTime() - start) / 1e6);
+
+        // Every connection long-polls the same room; one move wakes them all
+        BinaryMorpionClient players = new BinaryMorpionClient(server.getHostString(), server.getPort());
+        String room = players.createRoom("load-host");
+        players.joinRoom(room, "load-guest");
+        long version = players.getRoomSnapshot(room, null).getVersion();
+        ByteBuffer wait = request(BinaryProtocol.WAIT_FOR_CHANGE, room, version);
+        for (SocketChannel channel : channels) {
+            send(channel, wait);
+        }
+        Thread.sleep(1000); // let the server park them
+        report(out, "Parked in waitForChange", count);
+        start = System.nanoTime();
+        players.makeMove(room, 1, 1, "load-host");
+        int woken = 0;
+        for (SocketChannel channel : channels) {
+            woken += receive(channel, reply) == BinaryProtocol.OK ? 1 : 0;
+        }
+        out.printf("[BENCH] One move woke %,d of %,d waiters in %.0f ms%n", woken, count,
+                (System.nanoTime() - start) / 1e6);
+
+        for (SocketChannel channel : channels) {
+            channel.close();
+        }
+        players.close();
+        System.exit(0);
+    }
+
+    // The frame of a call taking a room id and, for waitForChange, a version and a timeout
+    private static ByteBuffer request(byte code, String roomId, Long sinceVersion) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream frame = new DataOutputStream(bytes);
+        frame.writeInt(0);
+        frame.writeInt(1);
+        frame.writeByte(code);
+        frame.writeUTF(roomId);
+        if (sinceVersion != null) {
+            frame.writeLong(sinceVersion);
+            frame.writeLong(30_000);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        buffer.putInt(0, buffer.remaining() - 4);
+        return buffer;
+    }
+
+    private static void send(SocketChannel channel, ByteBuffer frame) throws IOException {
+        ByteBuffer copy = frame.duplicate();
+        while (copy.hasRemaining()) {
+            channel.write(copy);
+        }
+    }
+
+    // Blocks for one reply frame and returns its status code
+    private static byte receive(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.clear().limit(4);
+        readFully(channel, buffer);
+        int length = buffer.getInt(0);
+        buffer.clear().limit(length);
+        readFully(channel, buffer);
+        return buffer.get(4);
+    }
+
+    private static void readFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("connection closed");
+            }
+        }
+    }
+
+    private static void report(PrintStream out, String step, int connections) {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long heap = memory.getHeapMemoryUsage().getUsed();
+        int threads = ManagementFactory.getThreadMXBean().getThreadCount();
+        out.printf("[BENCH] %-24s heap %,7.1f MB (max %,.0f MB), %d threads", step, heap / 1048576.0,
+                memory.getHeapMemoryUsage().getMax() / 1048576.0, threads);
+        if (connections > 0) {
+            out.printf(", %,.0f bytes/connection", (heap - baselineHeap) / (double) connections);
+        } else {
+            baselineHeap = heap;
+        }
+        out.println();
+    }
+}
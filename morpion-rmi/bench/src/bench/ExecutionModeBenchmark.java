@@ -0,0 +1,154 @@
+package bench;
+
+import server.MorpionServer;
+import shared.ExecutionMode;
+import shared.RoomSnapshot;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Threads and memory taken by many clients that mostly wait. Each simulated
+ * client owns an executor built the way MorpionClientGUI builds its own and
+ * runs the GUI's game loop on it: long-poll the room, render, repeat. Pairs of
+ * clients share a room, and a driver thread keeps making moves so the waits
+ * do end. Run it once per mode to compare:
+ *
+ *   java -cp bin;bin-bench bench.ExecutionModeBenchmark 10000
+ *   java -Dmorpion.threads=virtual -cp bin;bin-bench bench.ExecutionModeBenchmark 10000
+ *
+ * The second needs Java 21; on older runtimes it falls back to platform
+ * threads and says so.
+ *
+ * Usage: java -cp bin;bin-bench bench.ExecutionModeBenchmark [clients] [seconds] [movesPerSecond]
+ */
+public class ExecutionModeBenchmark {
+    private static final int[][] GAME = { { 0, 0 }, { 0, 1 }, { 0, 2 }, { 1, 1 }, { 1, 0 }, { 1, 2 }, { 2, 1 },
+            { 2, 0 }, { 2, 2 } };
+    private static final long LONG_POLL_TIMEOUT_MS = 20000; // as in MorpionClientGUI
+
+    private static volatile boolean running = true;
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int movesPerSecond = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+
+        System.setProperty("morpion.journal", "none");
+        System.setProperty("morpion.profiles", "none");
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream())); // silence server logging
+        MorpionServer server = new MorpionServer();
+        out.printf("[BENCH] %,d clients on %s threads, %s%n", clients,
+                ExecutionMode.isVirtual() ? "virtual" : "platform", System.getProperty("java.version"));
+        report(out, "Server only");
+
+        int rooms = (clients + 1) / 2;
+        String[] roomIds = new String[rooms];
+        for (int r = 0; r < rooms; r++) {
+            roomIds[r] = server.createRoom("host-" + r);
+            server.joinRoom(roomIds[r], "guest-" + r);
+        }
+
+        LongAdder updates = new LongAdder();
+        List<ExecutorService> executors = new ArrayList<>(clients);
+        for (int c = 0; c < clients; c++) {
+            String room = roomIds[c / 2];
+            ExecutorService executor = ExecutionMode.newExecutor("client",
+                    () -> Executors.newFixedThreadPool(2));
+            executors.add(executor);
+            executor.submit(() -> gameLoop(server, room, updates));
+        }
+        Thread.sleep(1000);
+        report(out, "Clients waiting");
+
+        // Moves spread over all rooms at a steady rate
+        Thread driver = new Thread(() -> {
+            int[] moveInRoom = new int[rooms];
+            long interval = 1_000_000_000L / movesPerSecond;
+            long next = System.nanoTime();
+            int r = 0;
+            try {
+                while (running) {
+                    int m = moveInRoom[r];
+                    if (m == GAME.length) {
+                        server.resetGame(roomIds[r]);
+                        m = 0;
+                    }
+                    server.makeMove(roomIds[r], GAME[m][0], GAME[m][1], ((m & 1) == 0 ? "host-" : "guest-") + r);
+                    moveInRoom[r] = m + 1;
+                    r = (r + 1) % rooms;
+                    next += interval;
+                    long sleep = next - System.nanoTime();
+                    if (sleep > 0) {
+                        Thread.sleep(sleep / 1_000_000, (int) (sleep % 1_000_000));
+                    }
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }, "move-driver");
+        long before = updates.sum();
+        long start = System.nanoTime();
+        driver.start();
+        Thread.sleep(seconds * 1000L);
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        report(out, "Under moves");
+        out.printf("[BENCH] %,.0f board updates/s delivered to clients (%,d moves/s)%n",
+                (updates.sum() - before) / elapsed, movesPerSecond);
+        out.printf("[BENCH] Peak platform threads %d%n", ManagementFactory.getThreadMXBean().getPeakThreadCount());
+
+        running = false;
+        for (ExecutorService executor : executors) {
+            executor.shutdownNow();
+        }
+        System.exit(0);
+    }
+
+    // MorpionClientGUI's loop without callbacks: long-poll from the last version seen
+    private static void gameLoop(MorpionServer server, String room, LongAdder updates) {
+        try {
+            long version = server.getRoomSnapshot(room, null).getVersion();
+            while (running) {
+                RoomSnapshot snapshot = server.waitForChange(room, version, LONG_POLL_TIMEOUT_MS);
+                if (snapshot.getVersion() > version) {
+                    updates.increment();
+                    version = snapshot.getVersion();
+                }
+            }
+        } catch (Exception e) {
+            if (running) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static void report(PrintStream out, String step) throws IOException {
+        System.gc();
+        long heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        int threads = ManagementFactory.getThreadMXBean().getThreadCount();
+        out.printf("[BENCH] %-16s %,6d platform threads, heap %,7.1f MB, RSS %s%n", step, threads,
+                heap / 1048576.0, residentMemory());
+    }
+
+    // Includes thread stacks, which the heap figure doesn't; Linux only
+    private static String residentMemory() throws IOException {
+        if (!Files.exists(Paths.get("/proc/self/status"))) {
+            return "n/a";
+        }
+        for (String line : Files.readAllLines(Paths.get("/proc/self/status"))) {
+            if (line.startsWith("VmRSS:")) {
+                return String.format("%,.1f MB", Long.parseLong(line.replaceAll("\\D", "")) / 1024.0);
+            }
+        }
+        return "n/a";
+    }
+}
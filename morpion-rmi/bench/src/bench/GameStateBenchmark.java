@@ -0,0 +1,197 @@
+package bench;
+
+import model.GameState;
+import java.util.Random;
+
+/**
+ * Measures moves per second through GameState.makeMove (and therefore the
+ * checkGameOver path) for the bitboard engine against the original
+ * String[][] implementation, replaying the same pre-generated games.
+ *
+ * Usage: java -cp bin;bin-bench bench.GameStateBenchmark [games] [rounds]
+ */
+public class GameStateBenchmark {
+    private static final String PLAYER_X = "alice";
+    private static final String PLAYER_O = "bob";
+
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int[][] sequences = randomGames(games, new Random(42));
+
+        System.out.println("[BENCH] " + games + " games per round, " + rounds + " measured rounds");
+        // Warm up both paths before measuring
+        for (int i = 0; i < 5; i++) {
+            runLegacy(sequences);
+            runBitboard(sequences);
+        }
+
+        double legacy = measure("String[][] (before)", rounds, () -> runLegacy(sequences));
+        double bitboard = measure("Bitboard (after)", rounds, () -> runBitboard(sequences));
+        System.out.printf("[BENCH] Speed-up: %.2fx%n", bitboard / legacy);
+    }
+
+    private interface Round {
+        long run();
+    }
+
+    private static double measure(String label, int rounds, Round round) {
+        long moves = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            moves += round.run();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        double rate = moves / seconds;
+        System.out.printf("[BENCH] %-20s %,14.0f moves/s%n", label, rate);
+        return rate;
+    }
+
+    /** Shuffled cell orders; each game is played until it ends. */
+    private static int[][] randomGames(int count, Random random) {
+        int[][] games = new int[count][];
+        for (int g = 0; g < count; g++) {
+            int[] cells = { 0, 1, 2, 3, 4, 5, 6, 7, 8 };
+            for (int i = cells.length - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int tmp = cells[i];
+                cells[i] = cells[j];
+                cells[j] = tmp;
+            }
+            games[g] = cells;
+        }
+        return games;
+    }
+
+    private static long runBitboard(int[][] games) {
+        GameState state = new GameState();
+        state.registerPlayer(PLAYER_X);
+        state.registerPlayer(PLAYER_O);
+        long moves = 0;
+        for (int[] game : games) {
+            state.resetGame();
+            for (int i = 0; i < game.length && !state.isGameOver(); i++) {
+                if (state.makeMove(game[i] / 3, game[i] % 3, (i & 1) == 0 ? PLAYER_X : PLAYER_O)) {
+                    moves++;
+                }
+            }
+        }
+        return moves;
+    }
+
+    private static long runLegacy(int[][] games) {
+        LegacyGameState state = new LegacyGameState();
+        long moves = 0;
+        for (int[] game : games) {
+            state.resetGame();
+            for (int i = 0; i < game.length && !state.isGameOver(); i++) {
+                if (state.makeMove(game[i] / 3, game[i] % 3, (i & 1) == 0 ? PLAYER_X : PLAYER_O)) {
+                    moves++;
+                }
+            }
+        }
+        return moves;
+    }
+
+    /** The original String[][] engine, kept here as the baseline. */
+    private static class LegacyGameState {
+        private String[][] board;
+        private String currentPlayer;
+        private boolean gameOver;
+        private String winner;
+        private final String playerX = PLAYER_X;
+        private final String playerO = PLAYER_O;
+        private long lastActivityTime;
+
+        LegacyGameState() {
+            resetGame();
+        }
+
+        synchronized void resetGame() {
+            board = new String[3][3];
+            for (int i = 0; i < 3; i++) {
+                for (int j = 0; j < 3; j++) {
+                    board[i][j] = " ";
+                }
+            }
+            currentPlayer = "X";
+            gameOver = false;
+            winner = null;
+            lastActivityTime = System.currentTimeMillis();
+        }
+
+        synchronized boolean makeMove(int row, int col, String playerName) {
+            if (gameOver)
+                return false;
+            if (!(playerName.equals(playerX) || playerName.equals(playerO)))
+                return false;
+            if (!isPlayerTurn(playerName))
+                return false;
+            if (row < 0 || row > 2 || col < 0 || col > 2)
+                return false;
+            if (!board[row][col].equals(" "))
+                return false;
+
+            board[row][col] = currentPlayer;
+            checkGameOver();
+            if (!gameOver) {
+                currentPlayer = currentPlayer.equals("X") ? "O" : "X";
+            }
+            lastActivityTime = System.currentTimeMillis();
+            return true;
+        }
+
+        private synchronized boolean isPlayerTurn(String playerName) {
+            return (currentPlayer.equals("X") && playerName.equals(playerX)) ||
+                    (currentPlayer.equals("O") && playerName.equals(playerO));
+        }
+
+        synchronized boolean isGameOver() {
+            return gameOver;
+        }
+
+        private void checkGameOver() {
+            for (int i = 0; i < 3; i++) {
+                if (checkLine(board[i][0], board[i][1], board[i][2])) {
+                    gameOver = true;
+                    winner = board[i][0];
+                    return;
+                }
+            }
+            for (int i = 0; i < 3; i++) {
+                if (checkLine(board[0][i], board[1][i], board[2][i])) {
+                    gameOver = true;
+                    winner = board[0][i];
+                    return;
+                }
+            }
+            if (checkLine(board[0][0], board[1][1], board[2][2])) {
+                gameOver = true;
+                winner = board[0][0];
+                return;
+            }
+            if (checkLine(board[0][2], board[1][1], board[2][0])) {
+                gameOver = true;
+                winner = board[0][2];
+                return;
+            }
+            boolean isDraw = true;
+            for (int i = 0; i < 3 && isDraw; i++) {
+                for (int j = 0; j < 3; j++) {
+                    if (board[i][j].equals(" ")) {
+                        isDraw = false;
+                        break;
+                    }
+                }
+            }
+            if (isDraw) {
+                gameOver = true;
+                winner = "DRAW";
+            }
+        }
+
+        private boolean checkLine(String a, String b, String c) {
+            return !a.equals(" ") && a.equals(b) && a.equals(c);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package bench;
+
+import model.RankedSet;
+import shared.PlayerStats;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Leaderboard queries against a large player base while ratings change. One
+ * writer moves random players to new ratings, as the rating updater does after
+ * each game, while reader threads ask for ranks, the top 10 and the players
+ * around someone. A linear rank count over the same players is timed for
+ * comparison.
+ *
+ * Usage: java -cp bin;bin-bench bench.LeaderboardBenchmark [players] [readers] [seconds]
+ */
+public class LeaderboardBenchmark {
+    private static volatile RankedSet<PlayerStats> board;
+    private static volatile boolean running = true;
+
+    public static void main(String[] args) throws Exception {
+        int playerCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int readers = args.length > 1 ? Integer.parseInt(args[1]) : Math.max(1, Runtime.getRuntime().availableProcessors());
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        Random random = new Random(42);
+        PlayerStats[] players = new PlayerStats[playerCount]; // current profile of each player, writer-owned
+        for (int i = 0; i < playerCount; i++) {
+            players[i] = new PlayerStats("player-" + i, 1500 + random.nextGaussian() * 200, 0, 0, 0);
+        }
+        // Bulk build, as on server startup, against adding every player in turn
+        long start = System.nanoTime();
+        board = RankedSet.of(Arrays.asList(players), PlayerStats.BY_RATING);
+        double bulkMs = (System.nanoTime() - start) / 1e6;
+        start = System.nanoTime();
+        RankedSet<PlayerStats> incremental = RankedSet.empty(PlayerStats.BY_RATING);
+        for (PlayerStats player : players) {
+            incremental = incremental.with(player);
+        }
+        System.out.printf("[BENCH] Built a leaderboard of %,d players in %.0f ms (%.0f ms one by one)%n",
+                playerCount, bulkMs, (System.nanoTime() - start) / 1e6);
+
+        LongAdder updates = new LongAdder();
+        Thread writer = new Thread(() -> {
+            Random moves = new Random(7);
+            while (running) {
+                int i = moves.nextInt(playerCount);
+                PlayerStats old = players[i];
+                PlayerStats moved = new PlayerStats(old.getPlayerName(), old.getRating() + moves.nextGaussian() * 16,
+                        old.getWins() + 1, old.getLosses(), old.getDraws());
+                players[i] = moved;
+                board = board.without(old).with(moved);
+                updates.increment();
+            }
+        });
+
+        LongAdder rankQueries = new LongAdder();
+        LongAdder rankNanos = new LongAdder();
+        LongAdder topQueries = new LongAdder();
+        LongAdder topNanos = new LongAdder();
+        LongAdder aroundQueries = new LongAdder();
+        LongAdder aroundNanos = new LongAdder();
+        Thread[] readerThreads = new Thread[readers];
+        for (int r = 0; r < readers; r++) {
+            readerThreads[r] = new Thread(() -> {
+                ThreadLocalRandom picks = ThreadLocalRandom.current();
+                long sink = 0;
+                while (running) {
+                    RankedSet<PlayerStats> current = board;
+                    PlayerStats someone = current.get(1 + picks.nextInt(current.size()));
+
+                    long t0 = System.nanoTime();
+                    int rank = current.rankOf(someone);
+                    long t1 = System.nanoTime();
+                    List<PlayerStats> top = current.range(1, 10);
+                    long t2 = System.nanoTime();
+                    List<PlayerStats> around = current.range(Math.max(1, rank - 5), 11);
+                    long t3 = System.nanoTime();
+
+                    sink += rank + top.size() + around.size();
+                    rankQueries.increment();
+                    rankNanos.add(t1 - t0);
+                    topQueries.increment();
+                    topNanos.add(t2 - t1);
+                    aroundQueries.increment();
+                    aroundNanos.add(t3 - t2);
+                }
+                if (sink == 42) {
+                    System.out.print(""); // keeps the results alive
+                }
+            });
+        }
+
+        writer.start();
+        for (Thread reader : readerThreads) {
+            reader.start();
+        }
+        Thread.sleep(seconds * 1000L);
+        running = false;
+        writer.join();
+        for (Thread reader : readerThreads) {
+            reader.join();
+        }
+
+        System.out.printf("[BENCH] %d readers, 1 writer, %d s%n", readers, seconds);
+        System.out.printf("[BENCH] Rating updates   %,12.0f /s%n", updates.sum() / (double) seconds);
+        print("getRank", rankQueries, rankNanos, seconds);
+        print("getTopN(10)", topQueries, topNanos, seconds);
+        print("getAround(5)", aroundQueries, aroundNanos, seconds);
+
+        // The same rank answered by counting better players, as a sorted list scan would
+        RankedSet<PlayerStats> current = board;
+        PlayerStats median = current.get(current.size() / 2);
+        int samples = 20;
+        start = System.nanoTime();
+        long counted = 0;
+        for (int s = 0; s < samples; s++) {
+            for (PlayerStats p : players) {
+                if (PlayerStats.BY_RATING.compare(p, median) < 0) {
+                    counted++;
+                }
+            }
+        }
+        double scanNanos = (System.nanoTime() - start) / (double) samples;
+        System.out.printf("[BENCH] Linear rank scan %,12.0f ns per query (rank %d vs %d)%n", scanNanos,
+                counted / samples + 1, current.rankOf(median));
+    }
+
+    private static void print(String query, LongAdder count, LongAdder nanos, int seconds) {
+        System.out.printf("[BENCH] %-16s %,12.0f /s  %,8.0f ns avg%n", query, count.sum() / (double) seconds,
+                nanos.sum() / (double) Math.max(1, count.sum()));
+    }
+}
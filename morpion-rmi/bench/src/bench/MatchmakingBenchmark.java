@@ -0,0 +1,77 @@
+package bench;
+
+import server.MorpionServer;
+import shared.MatchOptions;
+import shared.MatchResult;
+import shared.MatchmakingStats;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Enqueue throughput of quickMatch, called in-process from several threads.
+ * Each call only enqueues (maxWaitMs 0); players are spread over a few board
+ * configurations. Reports enqueues per second, then waits for the queue to
+ * drain and prints the matchmaking statistics.
+ *
+ * Usage: java -cp bin;bin-bench bench.MatchmakingBenchmark [threads] [playersPerThread]
+ */
+public class MatchmakingBenchmark {
+    private static final int[][] CONFIGS = { { 3, 3 }, { 15, 5 }, { 9, 4 } };
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int perThread = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+
+        System.setProperty("morpion.journal", "none");
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream())); // silence server logging
+        MorpionServer server = new MorpionServer();
+
+        LongAdder matchedOnCall = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        int[] config = CONFIGS[i % CONFIGS.length];
+                        MatchResult result = server.quickMatch("p-" + thread + "-" + i,
+                                new MatchOptions(config[0], config[1], 0));
+                        if (result.getStatus() == MatchResult.Status.MATCHED) {
+                            matchedOnCall.increment();
+                        }
+                    }
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        int total = threads * perThread;
+        out.printf("[BENCH] %d threads enqueued %,d players in %.2f s: %,.0f enqueues/s%n", threads, total, seconds,
+                total / seconds);
+
+        // Whatever is left is paired by the periodic pass
+        MatchmakingStats stats = server.getMatchmakingStats();
+        for (int i = 0; i < 40 && stats.getQueueDepth() > CONFIGS.length; i++) {
+            Thread.sleep(100);
+            stats = server.getMatchmakingStats();
+        }
+        out.println("[BENCH] " + stats + ", " + matchedOnCall.sum() + " matched within their own call");
+        System.exit(0);
+    }
+}
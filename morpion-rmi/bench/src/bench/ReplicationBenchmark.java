@@ -0,0 +1,171 @@
+package bench;
+
+import client.FailoverMorpionClient;
+import server.MorpionServer;
+import shared.MorpionInterface;
+import shared.RoomSnapshot;
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Cost of hot-standby replication on makeMove, and a failover. The leader
+ * runs in this JVM with its journal in a temporary directory; drawn 3x3 games
+ * are played on it without a follower, then again with a standby server
+ * process following it. makeMove is timed both as a direct call, where the
+ * replication work on the caller's thread shows most, and over RMI.
+ *
+ * The leader is then shut down as if it had crashed: its sockets close and
+ * its registry goes away. A FailoverMorpionClient carries on with the
+ * standby, which must hold every room exactly as the leader left it.
+ *
+ * Usage: java -cp bin;bin-bench bench.ReplicationBenchmark [moves] [registryPort] [replicationPort] [standbyPort]
+ */
+public class ReplicationBenchmark {
+    private static final int[][] GAME = { { 0, 0 }, { 0, 1 }, { 0, 2 }, { 1, 1 }, { 1, 0 }, { 1, 2 }, { 2, 1 },
+            { 2, 0 }, { 2, 2 } };
+    private static final int CHECKED_ROOMS = 500;
+
+    private static volatile int maxLag;
+
+    public static void main(String[] args) throws Exception {
+        int moves = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int registryPort = args.length > 1 ? Integer.parseInt(args[1]) : 1400;
+        int replicationPort = args.length > 2 ? Integer.parseInt(args[2]) : 1401;
+        int standbyPort = args.length > 3 ? Integer.parseInt(args[3]) : 1402;
+
+        Path work = Files.createTempDirectory("morpion-replication");
+        System.setProperty("morpion.journal", work.resolve("leader.journal").toString());
+        System.setProperty("morpion.checkpoint", work.resolve("leader.checkpoint").toString());
+        System.setProperty("morpion.profiles", "none");
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream())); // silence server logging
+        MorpionServer leader = new MorpionServer();
+        Registry registry = LocateRegistry.createRegistry(registryPort);
+        registry.rebind("MorpionGame", UnicastRemoteObject.exportObject(leader, 0));
+        leader.startReplication(replicationPort);
+        MorpionInterface client = FailoverMorpionClient.connect(
+                List.of("localhost:" + registryPort, "localhost:" + standbyPort));
+        out.printf("[BENCH] %,d moves per run; standby logs in %s%n", moves, work);
+
+        play(leader, moves / 4, null); // warm-up
+        play(client, moves / 4, null);
+        report(out, "No follower", "direct", play(leader, moves, null));
+        report(out, "No follower", "RMI", play(client, moves, null));
+
+        Process standby = startStandby(work, replicationPort, standbyPort);
+        Runtime.getRuntime().addShutdownHook(new Thread(standby::destroyForcibly));
+        try {
+            long deadline = System.currentTimeMillis() + 30_000;
+            while (leader.getFollowerCount() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(100);
+            }
+            if (leader.getFollowerCount() == 0) {
+                throw new IllegalStateException("The standby never connected; see " + work);
+            }
+            Thread sampler = new Thread(() -> {
+                while (!Thread.currentThread().isInterrupted()) {
+                    maxLag = Math.max(maxLag, leader.getReplicationLag());
+                    try {
+                        Thread.sleep(5);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }, "lag-sampler");
+            sampler.setDaemon(true);
+            sampler.start();
+            play(leader, moves / 4, null);
+            report(out, "With follower", "direct", play(leader, moves, null));
+            List<String> rooms = new ArrayList<>();
+            report(out, "With follower", "RMI", play(client, moves, rooms));
+            sampler.interrupt();
+            out.printf("[BENCH] Replication lag peaked at %,d records%n", maxLag);
+
+            // Crash: everything the clients and the follower talk to goes away at once
+            List<RoomSnapshot> before = new ArrayList<>();
+            for (String room : rooms.subList(Math.max(0, rooms.size() - CHECKED_ROOMS), rooms.size())) {
+                before.add(leader.getRoomSnapshot(room, null));
+            }
+            long crash = System.nanoTime();
+            leader.stopReplication();
+            UnicastRemoteObject.unexportObject(leader, true);
+            UnicastRemoteObject.unexportObject(registry, true);
+            RoomSnapshot first = client.getRoomSnapshot(before.get(0).getRoomId(), null);
+            out.printf("[BENCH] Client failed over to %s %.0f ms after the leader went down%n",
+                    FailoverMorpionClient.currentServer(client), (System.nanoTime() - crash) / 1e6);
+
+            int identical = 0;
+            for (RoomSnapshot was : before) {
+                RoomSnapshot now = was == before.get(0) ? first : client.getRoomSnapshot(was.getRoomId(), null);
+                if (now != null && now.getVersion() == was.getVersion() && now.getStatus() == was.getStatus()
+                        && Arrays.equals(now.getCells(), was.getCells())) {
+                    identical++;
+                }
+            }
+            String room = client.createRoom("after-failover-host");
+            client.joinRoom(room, "after-failover-guest");
+            MorpionInterface.MoveStatus move = client.makeMove(room, 1, 1, "after-failover-host");
+            out.printf("[BENCH] Standby holds %d of %d checked rooms exactly as the leader left them;"
+                    + " new game after failover: %s%n", identical, before.size(), move);
+            boolean passed = identical == before.size() && move == MorpionInterface.MoveStatus.VALID;
+            out.println(passed ? "[BENCH] PASS" : "[BENCH] FAIL");
+            System.exit(passed ? 0 : 1);
+        } finally {
+            standby.destroyForcibly();
+        }
+    }
+
+    private static Process startStandby(Path work, int replicationPort, int standbyPort) throws Exception {
+        List<String> command = new ArrayList<>(List.of(
+                System.getProperty("java.home") + File.separator + "bin" + File.separator + "java",
+                "-Dmorpion.replicaOf=localhost:" + replicationPort,
+                "-Dmorpion.rmi.port=" + standbyPort,
+                "-Dmorpion.binary.port=0",
+                "-Dmorpion.profiles=none",
+                "-Dmorpion.journal=" + work.resolve("standby.journal"),
+                "-Dmorpion.checkpoint=" + work.resolve("standby.checkpoint"),
+                "-cp", System.getProperty("java.class.path"), "server.MorpionServer"));
+        return new ProcessBuilder(command).redirectErrorStream(true)
+                .redirectOutput(work.resolve("standby.log").toFile()).start();
+    }
+
+    // Drawn games, a new room each; returns makeMove times and collects the room ids if asked
+    private static long[] play(MorpionInterface game, int moves, List<String> rooms) throws Exception {
+        long[] nanos = new long[moves];
+        String room = null;
+        for (int i = 0; i < moves; i++) {
+            int m = i % GAME.length;
+            if (m == 0) {
+                room = game.createRoom("host");
+                game.joinRoom(room, "guest");
+                if (rooms != null) {
+                    rooms.add(room);
+                }
+            }
+            long start = System.nanoTime();
+            game.makeMove(room, GAME[m][0], GAME[m][1], (m & 1) == 0 ? "host" : "guest");
+            nanos[i] = System.nanoTime() - start;
+        }
+        return nanos;
+    }
+
+    private static void report(PrintStream out, String setup, String call, long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        out.printf("[BENCH] %-13s %-6s makeMove p50 %7.1f us  p99 %7.1f us  p99.9 %8.1f us%n", setup, call,
+                percentile(sorted, 50), percentile(sorted, 99), percentile(sorted, 99.9));
+    }
+
+    private static double percentile(long[] sorted, double percent) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * percent / 100))] / 1e3;
+    }
+}
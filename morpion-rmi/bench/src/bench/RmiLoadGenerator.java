@@ -0,0 +1,263 @@
+package bench;
+
+import server.MorpionServer;
+import shared.LatencyHistogram;
+import shared.LobbyPage;
+import shared.MorpionInterface;
+import shared.MorpionInterface.MoveStatus;
+import shared.MorpionInterface.RegistrationStatus;
+import shared.MorpionInterface.RoomStatus;
+import shared.RoomSnapshot;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.rmi.RemoteException;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Headless load generator: N virtual players on one MorpionInterface stub,
+ * doing what the GUI does. Hosts create a room and poll it until a guest
+ * arrives; guests take a room from the first lobby page and join it, racing
+ * each other for it; then both poll the room and move on a random free cell
+ * when it is their turn, until the game ends and they start another.
+ * Between two calls a player thinks for thinkMs on average (uniform, half to
+ * one and a half times that).
+ *
+ * Players are state machines, not threads: each step is one remote call run
+ * on a small pool of workers, so 10,000 players need only as many threads
+ * (and RMI connections) as there are calls in flight. If the workers can't
+ * keep up, players fall behind their think time: each report shows by how
+ * much, and the throughput is then what the server and this machine could
+ * sustain rather than what the players asked for.
+ *
+ * Reports calls/s, moves/s and games/s every few seconds, then per remote
+ * method the call count, RemoteExceptions and p50/p99/p99.9 latency, and
+ * every move and join outcome (NOT_YOUR_TURN, GAME_FULL...). Without an
+ * address the server runs in this JVM, reached through its own registry.
+ *
+ * Usage: java -cp bin;bin-bench bench.RmiLoadGenerator [players] [thinkMs] [seconds] [workers] [host:port]
+ */
+public class RmiLoadGenerator {
+    private static final long REPORT_INTERVAL_MS = 5000;
+    private static final int LOBBY_PAGE_SIZE = 50;
+    private static final int IN_PROCESS_PORT = 1500;
+
+    private final MorpionInterface game;
+    private final ScheduledThreadPoolExecutor workers;
+    private final long thinkMs;
+    private final Map<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> failures = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder games = new LongAdder();
+    private final LatencyHistogram lateness = new LatencyHistogram(); // step start past its due time, per report
+    private volatile boolean running = true;
+
+    private RmiLoadGenerator(MorpionInterface game, int workerThreads, long thinkMs) {
+        this.game = game;
+        this.workers = new ScheduledThreadPoolExecutor(workerThreads, task -> {
+            Thread thread = new Thread(task, "player-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.thinkMs = thinkMs;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int players = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        long thinkMs = args.length > 1 ? Long.parseLong(args[1]) : 1000;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 60;
+        int workerThreads = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+        PrintStream out = System.out;
+
+        String address;
+        if (args.length > 4) {
+            address = args[4];
+        } else {
+            System.setProperty("morpion.journal", "none");
+            System.setProperty("morpion.profiles", "none");
+            System.setOut(new PrintStream(OutputStream.nullOutputStream())); // silence server logging
+            Registry registry = LocateRegistry.createRegistry(IN_PROCESS_PORT);
+            registry.rebind("MorpionGame", UnicastRemoteObject.exportObject(new MorpionServer(), 0));
+            address = "localhost:" + IN_PROCESS_PORT;
+        }
+        String[] hostPort = address.split(":");
+        MorpionInterface game = (MorpionInterface) LocateRegistry.getRegistry(hostPort[0],
+                Integer.parseInt(hostPort[1])).lookup("MorpionGame");
+        out.printf("[BENCH] %,d players, %d ms think time, %d s, %d workers, server %s%s%n", players, thinkMs,
+                seconds, workerThreads, address, args.length > 4 ? "" : " (in this JVM)");
+
+        RmiLoadGenerator generator = new RmiLoadGenerator(game, workerThreads, thinkMs);
+        generator.run(out, players, seconds);
+        System.exit(0);
+    }
+
+    private void run(PrintStream out, int players, int seconds) throws InterruptedException {
+        // Arrivals spread over one think time, so the players don't all call at once
+        for (int p = 0; p < players; p++) {
+            new Player("player-" + p, (p & 1) == 0).schedule(ThreadLocalRandom.current().nextLong(thinkMs + 1));
+        }
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(seconds);
+        long lastCalls = 0;
+        long lastMoves = 0;
+        long lastGames = 0;
+        long last = start;
+        while (System.nanoTime() < deadline) {
+            Thread.sleep(Math.min(REPORT_INTERVAL_MS, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()) + 1));
+            long now = System.nanoTime();
+            double interval = (now - last) / 1e9;
+            long c = calls.sum();
+            long m = moves.sum();
+            long g = games.sum();
+            out.printf("[BENCH] %5.0f s  %,9.0f calls/s  %,8.0f moves/s  %,7.0f games/s  p99 behind %,6.0f ms%n",
+                    (now - start) / 1e9, (c - lastCalls) / interval, (m - lastMoves) / interval,
+                    (g - lastGames) / interval, lateness.getPercentile(99) / 1e6);
+            lateness.reset();
+            lastCalls = c;
+            lastMoves = m;
+            lastGames = g;
+            last = now;
+        }
+        running = false;
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        out.printf("[BENCH] Total: %,d calls (%,.0f/s), %,d moves (%,.0f/s), %,d games (%,.0f/s)%n", calls.sum(),
+                calls.sum() / elapsed, moves.sum(), moves.sum() / elapsed, games.sum(), games.sum() / elapsed);
+        out.printf("[BENCH] %-20s %10s %8s %9s %9s %9s %9s%n", "method", "calls", "failed", "p50 us", "p99 us",
+                "p99.9 us", "max us");
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(latencies).entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            out.printf("[BENCH] %-20s %,10d %,8d %9.0f %9.0f %9.0f %9.0f%n", entry.getKey(), histogram.getCount(),
+                    failures.getOrDefault(entry.getKey(), new LongAdder()).sum(),
+                    histogram.getPercentile(50) / 1e3, histogram.getPercentile(99) / 1e3,
+                    histogram.getPercentile(99.9) / 1e3, histogram.getMax() / 1e3);
+        }
+        StringBuilder counts = new StringBuilder();
+        new TreeMap<>(outcomes).forEach((outcome, n) -> counts.append(String.format("  %s %,d", outcome, n.sum())));
+        out.println("[BENCH] Outcomes:" + counts);
+        workers.shutdownNow();
+    }
+
+    private interface RemoteCall<T> {
+        T call() throws RemoteException;
+    }
+
+    // Times one remote call; null if it failed
+    private <T> T timed(String method, RemoteCall<T> call) {
+        long start = System.nanoTime();
+        try {
+            return call.call();
+        } catch (RemoteException e) {
+            failures.computeIfAbsent(method, m -> new LongAdder()).increment();
+            return null;
+        } finally {
+            latencies.computeIfAbsent(method, m -> new LatencyHistogram()).record(System.nanoTime() - start);
+            calls.increment();
+        }
+    }
+
+    private void count(Enum<?> outcome) {
+        outcomes.computeIfAbsent(outcome.getDeclaringClass().getSimpleName() + "." + outcome, o -> new LongAdder())
+                .increment();
+    }
+
+    private final class Player implements Runnable {
+        private final String name;
+        private final boolean host;
+        private String roomId; // null while looking for a game
+        private long due; // System.nanoTime() the next step should start at
+
+        Player(String name, boolean host) {
+            this.name = name;
+            this.host = host;
+        }
+
+        @Override
+        public void run() {
+            if (!running) {
+                return;
+            }
+            lateness.record(System.nanoTime() - due);
+            if (roomId == null) {
+                startGame();
+            } else {
+                play();
+            }
+            schedule(thinkMs / 2 + ThreadLocalRandom.current().nextLong(thinkMs + 1));
+        }
+
+        void schedule(long delayMs) {
+            due = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs);
+            workers.schedule(this, delayMs, TimeUnit.MILLISECONDS);
+        }
+
+        private void startGame() {
+            if (host) {
+                roomId = timed("createRoom", () -> game.createRoom(name));
+                return;
+            }
+            LobbyPage page = timed("listRooms", () -> game.listRooms(null, LOBBY_PAGE_SIZE));
+            if (page == null || page.getRooms().isEmpty()) {
+                return;
+            }
+            List<String> rooms = page.getRooms();
+            String room = rooms.get(ThreadLocalRandom.current().nextInt(rooms.size())).split(" ")[0];
+            RegistrationStatus status = timed("joinRoom", () -> game.joinRoom(room, name));
+            if (status != null) {
+                count(status);
+                if (status == RegistrationStatus.PLAYER_O) {
+                    roomId = room;
+                }
+            }
+        }
+
+        private void play() {
+            String room = roomId;
+            RoomSnapshot snapshot = timed("getRoomSnapshot", () -> game.getRoomSnapshot(room, name));
+            if (snapshot == null) {
+                roomId = null; // expired, or the call failed: start over
+                return;
+            }
+            if (snapshot.isGameOver() || snapshot.getStatus() == RoomStatus.COMPLETED) {
+                if (host) {
+                    games.increment();
+                }
+                roomId = null;
+                return;
+            }
+            if (!snapshot.isViewerTurn()) {
+                return;
+            }
+            List<Integer> free = new ArrayList<>();
+            char[] cells = snapshot.getCells();
+            for (int i = 0; i < cells.length; i++) {
+                if (cells[i] == ' ') {
+                    free.add(i);
+                }
+            }
+            if (free.isEmpty()) {
+                return;
+            }
+            int cell = free.get(ThreadLocalRandom.current().nextInt(free.size()));
+            int size = snapshot.getSize();
+            MoveStatus status = timed("makeMove", () -> game.makeMove(room, cell / size, cell % size, name));
+            if (status != null) {
+                count(status);
+                if (status == MoveStatus.VALID) {
+                    moves.increment();
+                }
+            }
+        }
+    }
+}
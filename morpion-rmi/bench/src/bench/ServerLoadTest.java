@@ -0,0 +1,112 @@
+package bench;
+
+import server.MorpionServer;
+import shared.MorpionInterface.MoveStatus;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Multi-threaded load test of MorpionServer room routing, called in-process
+ * (no RMI) so only the server's own locking is measured. Each thread plays
+ * full games in its own set of rooms; throughput is reported for 1, 2, 4...
+ * threads up to the core count. With --global-lock every makeMove is wrapped in
+ * one shared monitor to reproduce the old synchronized server.
+ *
+ * Usage: java -cp bin;bin-bench bench.ServerLoadTest [roomsPerThread] [seconds] [--global-lock]
+ */
+public class ServerLoadTest {
+    // X wins on the top row after five moves
+    private static final int[][] GAME = { { 0, 0 }, { 1, 0 }, { 0, 1 }, { 1, 1 }, { 0, 2 } };
+    private static final Object GLOBAL_LOCK = new Object();
+
+    public static void main(String[] args) throws Exception {
+        int roomsPerThread = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 3;
+        boolean globalLock = args.length > 2 && args[2].equals("--global-lock");
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        // Measure routing and locking only, not the journal's disk I/O
+        System.setProperty("morpion.journal", "none");
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream())); // silence server logging
+        MorpionServer server = new MorpionServer();
+
+        out.println("[BENCH] " + cores + " cores, " + roomsPerThread + " rooms per thread, "
+                + (globalLock ? "global lock" : "per-room locks"));
+        double baseline = 0;
+        for (int threads = 1; threads <= cores; threads *= 2) {
+            double rate = run(server, threads, roomsPerThread, seconds, globalLock);
+            if (threads == 1) {
+                baseline = rate;
+            }
+            out.printf("[BENCH] %3d threads %,14.0f moves/s  (%.2fx)%n", threads, rate, rate / baseline);
+        }
+        System.exit(0);
+    }
+
+    private static double run(MorpionServer server, int threads, int roomsPerThread, double seconds,
+            boolean globalLock) throws Exception {
+        LongAdder moves = new LongAdder();
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        long durationNanos = (long) (seconds * 1e9);
+        List<Thread> workers = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            String[] rooms = new String[roomsPerThread];
+            String host = "host-" + threads + "-" + t;
+            String guest = "guest-" + threads + "-" + t;
+            for (int r = 0; r < roomsPerThread; r++) {
+                rooms[r] = server.createRoom(host);
+                server.joinRoom(rooms[r], guest);
+            }
+            Thread worker = new Thread(() -> {
+                ready.countDown();
+                try {
+                    start.await();
+                    long deadline = System.nanoTime() + durationNanos;
+                    long done = 0;
+                    while (System.nanoTime() < deadline) {
+                        for (String room : rooms) {
+                            for (int m = 0; m < GAME.length; m++) {
+                                String player = (m & 1) == 0 ? host : guest;
+                                MoveStatus status = globalLock
+                                        ? lockedMove(server, room, GAME[m], player)
+                                        : server.makeMove(room, GAME[m][0], GAME[m][1], player);
+                                if (status == MoveStatus.VALID) {
+                                    done++;
+                                }
+                            }
+                            server.getRoomSnapshot(room, host);
+                            server.resetGame(room);
+                        }
+                    }
+                    moves.add(done);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+
+        ready.await();
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return moves.sum() / ((System.nanoTime() - begin) / 1e9);
+    }
+
+    private static MoveStatus lockedMove(MorpionServer server, String room, int[] cell, String player)
+            throws Exception {
+        synchronized (GLOBAL_LOCK) {
+            return server.makeMove(room, cell[0], cell[1], player);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package bench;
+
+import client.ShardedMorpionClient;
+import shared.MorpionInterface;
+import shared.MorpionInterface.RoomStatus;
+import shared.RoomSnapshot;
+import shared.ShardDirectoryInterface;
+import shared.ShardMap;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.rmi.registry.LocateRegistry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local sharded deployment, one process per server. Starts a directory and
+ * several MorpionServer nodes, opens rooms through ShardedMorpionClient and
+ * plays a few moves in each, then starts one more node and checks the
+ * rebalancing: about 1/(n+1) of the rooms move, all of them to the new node,
+ * and every moved room keeps its board and version and can be played on.
+ * A reader keeps fetching rooms during the join to show what clients see.
+ *
+ * Node logs and journals go to a temporary directory, printed at the start.
+ *
+ * Usage: java -cp bin;bin-bench bench.ShardClusterHarness [nodes] [rooms] [basePort]
+ */
+public class ShardClusterHarness {
+    private static final int[][] GAME = { { 0, 0 }, { 0, 1 }, { 0, 2 }, { 1, 1 }, { 1, 0 }, { 1, 2 }, { 2, 1 },
+            { 2, 0 }, { 2, 2 } };
+    private static final long START_TIMEOUT_MS = 30_000;
+    // Two shard syncs: by then every node, not just the directory, has the full map
+    private static final long MAP_SETTLE_MS = 2000;
+
+    private static final List<Process> processes = new ArrayList<>();
+
+    public static void main(String[] args) throws Exception {
+        int nodes = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int rooms = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        int basePort = args.length > 2 ? Integer.parseInt(args[2]) : 1300;
+        PrintStream out = System.out;
+        Path work = Files.createTempDirectory("morpion-shards");
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> processes.forEach(Process::destroyForcibly)));
+        out.println("[BENCH] Logs and journals in " + work);
+
+        try {
+            start(work, "directory", "server.ShardDirectory", List.of(), String.valueOf(basePort));
+            waitForDirectory(basePort);
+            for (int n = 1; n <= nodes; n++) {
+                startNode(work, basePort, n);
+            }
+            ShardedMorpionClient client = new ShardedMorpionClient("localhost", basePort);
+            ShardMap before = waitForNodes(client, nodes);
+            out.printf("[BENCH] %d nodes up, map v%d%n", nodes, before.getVersion());
+
+            // Rooms at every stage of a game: waiting for a guest, then zero to eight moves in
+            Map<String, RoomSnapshot> expected = new HashMap<>();
+            Map<String, Integer> index = new HashMap<>();
+            long start = System.nanoTime();
+            for (int r = 0; r < rooms; r++) {
+                String room = client.createRoom("host-" + r);
+                if (r % 10 != 0) {
+                    client.joinRoom(room, "guest-" + r);
+                    for (int m = 0; m < r % GAME.length; m++) {
+                        client.makeMove(room, GAME[m][0], GAME[m][1], ((m & 1) == 0 ? "host-" : "guest-") + r);
+                    }
+                }
+                expected.put(room, client.getRoomSnapshot(room, null));
+                index.put(room, r);
+            }
+            out.printf("[BENCH] %,d rooms opened and played in %.1f s%n", rooms, (System.nanoTime() - start) / 1e9);
+            out.println("[BENCH] Rooms per node: " + locate(client, before, expected.keySet()));
+
+            // Join one more node while a reader keeps fetching rooms
+            AtomicBoolean reading = new AtomicBoolean(true);
+            LongAdder reads = new LongAdder();
+            LongAdder misses = new LongAdder();
+            List<String> ids = new ArrayList<>(expected.keySet());
+            Thread reader = new Thread(() -> {
+                for (int i = 0; reading.get(); i++) {
+                    try {
+                        if (client.getRoomSnapshot(ids.get(i % ids.size()), null) == null) {
+                            misses.increment();
+                        }
+                    } catch (Exception e) {
+                        misses.increment();
+                    }
+                    reads.increment();
+                }
+            }, "reader");
+            reader.start();
+            start = System.nanoTime();
+            startNode(work, basePort, nodes + 1);
+            ShardMap after = waitForNodes(client, nodes + 1);
+            String newNode = "node-" + (nodes + 1);
+            Map<String, String> owners = new HashMap<>();
+            int moved = 0;
+            int strayed = 0;
+            for (String room : ids) {
+                String owner = after.ownerOf(room);
+                owners.put(room, owner);
+                if (!owner.equals(before.ownerOf(room))) {
+                    moved++;
+                    strayed += owner.equals(newNode) ? 0 : 1;
+                }
+            }
+            // Rebalanced once every room answers from its new owner
+            Map<String, Integer> placed = locate(client, after, ids);
+            long deadline = start + START_TIMEOUT_MS * 1_000_000;
+            while (placed.getOrDefault("elsewhere", 0) > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(100);
+                placed = locate(client, after, ids);
+            }
+            double rebalanceSeconds = (System.nanoTime() - start) / 1e9;
+            reading.set(false);
+            reader.join();
+            out.printf("[BENCH] Node %s joined; rooms in place %.1f s after its start%n", newNode, rebalanceSeconds);
+            out.println("[BENCH] Rooms per node: " + placed);
+            out.printf("[BENCH] %,d of %,d rooms moved (%.1f%%, ideal %.1f%%), %d to a node other than %s%n", moved,
+                    rooms, 100.0 * moved / rooms, 100.0 / (nodes + 1), strayed, newNode);
+            out.printf("[BENCH] Reader during the join: %,d reads, %,d without a room%n", reads.sum(), misses.sum());
+
+            // State carried over, and moved rooms still play
+            int intact = 0;
+            int playable = 0;
+            int inProgress = 0;
+            for (String room : ids) {
+                RoomSnapshot was = expected.get(room);
+                RoomSnapshot now = client.getNode(owners.get(room)).getRoomSnapshot(room, null);
+                if (now != null && now.getVersion() == was.getVersion()
+                        && Arrays.equals(now.getCells(), was.getCells()) && now.getStatus() == was.getStatus()) {
+                    intact++;
+                }
+                int r = index.get(room);
+                int m = r % GAME.length;
+                if (now != null && now.getStatus() == RoomStatus.IN_PROGRESS && !now.isGameOver()) {
+                    inProgress++;
+                    String player = ((m & 1) == 0 ? "host-" : "guest-") + r;
+                    if (client.makeMove(room, GAME[m][0], GAME[m][1], player) == MorpionInterface.MoveStatus.VALID) {
+                        playable++;
+                    }
+                }
+            }
+            out.printf("[BENCH] %,d of %,d rooms intact after the join; %,d of %,d games in progress took a move%n",
+                    intact, rooms, playable, inProgress);
+            boolean passed = intact == rooms && playable == inProgress && strayed == 0;
+            out.println(passed ? "[BENCH] PASS" : "[BENCH] FAIL");
+            System.exit(passed ? 0 : 1);
+        } finally {
+            processes.forEach(Process::destroyForcibly);
+        }
+    }
+
+    private static void startNode(Path work, int basePort, int n) throws IOException {
+        String node = "node-" + n;
+        start(work, node, "server.MorpionServer", List.of(
+                "-Dmorpion.directory=localhost:" + basePort,
+                "-Dmorpion.node=" + node,
+                "-Dmorpion.rmi.port=" + (basePort + n),
+                "-Dmorpion.binary.port=0",
+                "-Dmorpion.profiles=none",
+                "-Dmorpion.journal=" + work.resolve(node + ".journal"),
+                "-Dmorpion.checkpoint=" + work.resolve(node + ".checkpoint")));
+    }
+
+    private static void start(Path work, String name, String mainClass, List<String> properties, String... args)
+            throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.addAll(properties);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(mainClass);
+        command.addAll(Arrays.asList(args));
+        File log = work.resolve(name + ".log").toFile();
+        processes.add(new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log).start());
+    }
+
+    private static void waitForDirectory(int port) throws Exception {
+        long deadline = System.currentTimeMillis() + START_TIMEOUT_MS;
+        while (true) {
+            try {
+                LocateRegistry.getRegistry("localhost", port).lookup(ShardDirectoryInterface.NAME);
+                return;
+            } catch (Exception e) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(100);
+            }
+        }
+    }
+
+    private static ShardMap waitForNodes(ShardedMorpionClient client, int nodes) throws Exception {
+        long deadline = System.currentTimeMillis() + START_TIMEOUT_MS;
+        while (true) {
+            ShardMap map = client.reloadShardMap();
+            if (map.getNodes().size() >= nodes) {
+                // A node still on an older map would take rooms it no longer owns
+                Thread.sleep(MAP_SETTLE_MS);
+                return map;
+            }
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException("Only " + map.getNodes().size() + " of " + nodes + " nodes joined");
+            }
+            Thread.sleep(200);
+        }
+    }
+
+    // Asks each room's owner directly, so that no client retry hides a misplaced room
+    private static Map<String, Integer> locate(ShardedMorpionClient client, ShardMap map, Iterable<String> rooms)
+            throws Exception {
+        Map<String, Integer> perNode = new TreeMap<>();
+        for (String room : rooms) {
+            String owner = map.ownerOf(room);
+            boolean there = client.getNode(owner).getRoomStatus(room) != RoomStatus.ERROR;
+            perNode.merge(there ? owner : "elsewhere", 1, Integer::sum);
+        }
+        return perNode;
+    }
+}
@@ -0,0 +1,108 @@
+package bench;
+
+import server.MorpionServer;
+import shared.RoomBroadcast;
+import shared.SpectatorListener;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cost of spectators to the players of a popular room. Two players replay a
+ * drawn 3x3 game in one room, in-process, first unwatched and then with many
+ * spectators of which some take a long time per update. Reports the players'
+ * move rate in both cases and how many updates each kind of spectator got:
+ * slow ones should see far fewer, coalesced states rather than slow the game.
+ *
+ * Usage: java -cp bin;bin-bench bench.SpectatorBenchmark [spectators] [slowSpectators] [slowMs] [seconds]
+ */
+public class SpectatorBenchmark {
+    // A draw, so every game is nine moves long
+    private static final int[][] GAME = { { 0, 0 }, { 0, 1 }, { 0, 2 }, { 1, 1 }, { 1, 0 }, { 1, 2 }, { 2, 1 },
+            { 2, 0 }, { 2, 2 } };
+
+    private static final class CountingSpectator implements SpectatorListener {
+        final long delayMs;
+        final LongAdder updates = new LongAdder();
+        volatile long lastVersion;
+
+        CountingSpectator(long delayMs) {
+            this.delayMs = delayMs;
+        }
+
+        @Override
+        public void onRoomUpdate(RoomBroadcast update) {
+            update.getSnapshot();
+            updates.increment();
+            lastVersion = update.getVersion();
+            if (delayMs > 0) {
+                try {
+                    Thread.sleep(delayMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int spectators = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int slow = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        long slowMs = args.length > 2 ? Long.parseLong(args[2]) : 200;
+        double seconds = args.length > 3 ? Double.parseDouble(args[3]) : 3;
+
+        System.setProperty("morpion.journal", "none");
+        System.setProperty("morpion.profiles", "none");
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream())); // silence server logging
+        MorpionServer server = new MorpionServer();
+        String room = server.createRoom("host");
+        server.joinRoom(room, "guest");
+
+        double unwatched = play(server, room, seconds);
+        out.printf("[BENCH] No spectators        %,12.0f moves/s%n", unwatched);
+
+        List<CountingSpectator> watchers = new ArrayList<>();
+        for (int i = 0; i < spectators; i++) {
+            CountingSpectator spectator = new CountingSpectator(i < slow ? slowMs : 0);
+            watchers.add(spectator);
+            server.watchRoom(room, "spectator-" + i, spectator);
+        }
+        long firstVersion = server.getRoomSnapshot(room, null).getVersion();
+        double watched = play(server, room, seconds);
+        long published = server.getRoomSnapshot(room, null).getVersion() - firstVersion;
+        Thread.sleep(slowMs * 2); // let the last states land
+
+        long fast = 0;
+        long slowUpdates = 0;
+        for (int i = 0; i < watchers.size(); i++) {
+            if (i < slow) {
+                slowUpdates += watchers.get(i).updates.sum();
+            } else {
+                fast += watchers.get(i).updates.sum();
+            }
+        }
+        out.printf("[BENCH] %,d spectators (%d slow) %,12.0f moves/s (%.2fx)%n", spectators, slow, watched,
+                watched / unwatched);
+        out.printf("[BENCH] %,d states published; fast spectators got %,.0f each, slow ones %,.1f each%n",
+                published, fast / (double) Math.max(1, spectators - slow),
+                slowUpdates / (double) Math.max(1, slow));
+        System.exit(0);
+    }
+
+    private static double play(MorpionServer server, String room, double seconds) throws Exception {
+        long moves = 0;
+        long deadline = System.nanoTime() + (long) (seconds * 1e9);
+        long start = System.nanoTime();
+        while (System.nanoTime() < deadline) {
+            for (int m = 0; m < GAME.length; m++) {
+                server.makeMove(room, GAME[m][0], GAME[m][1], (m & 1) == 0 ? "host" : "guest");
+            }
+            server.resetGame(room);
+            moves += GAME.length;
+        }
+        return moves / ((System.nanoTime() - start) / 1e9);
+    }
+}
@@ -1,5 +1,6 @@
 @echo off
 mkdir bin 2> nul
 javac -d bin src\shared\*.java src\model\*.java src\server\*.java src\client\*.java
+copy /Y src\model\*.bin bin\model\ > nul
 echo Compiled successfully!
 pause
\ No newline at end of file
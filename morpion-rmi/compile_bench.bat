@@ -0,0 +1,5 @@
+@echo off
+mkdir bin-bench 2> nul
+javac -cp bin -d bin-bench bench\src\bench\*.java
+echo Benchmarks compiled successfully!
+pause
\ No newline at end of file
@@ -0,0 +1,87 @@
+package jmh;
+
+import model.GameState;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The game engine on its own, on the classic board and on the largest one
+ * (19x19, five in a row). checkGameOver is private and runs inside every
+ * makeMove: drawnGame times it on moves that end nothing, winningGame times
+ * a whole game that ends in a win.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameStateBenchmarks {
+    // Nine moves that fill a 3x3 board without a line; on a larger board they just sit in a corner
+    private static final int[][] DRAW = { { 0, 0 }, { 0, 1 }, { 0, 2 }, { 1, 1 }, { 1, 0 }, { 1, 2 }, { 2, 1 },
+            { 2, 0 }, { 2, 2 } };
+
+    @Param({ "3", "19" })
+    public int size;
+
+    private GameState game;
+    private GameState board; // a game in progress for getCurrentBoard
+    private int[][] win;
+
+    @Setup
+    public void setup() {
+        int winLength = size == GameState.CLASSIC_SIZE ? GameState.CLASSIC_SIZE : 5;
+        // X fills the top row up to a win while O answers on the row below
+        win = new int[2 * winLength - 1][];
+        for (int m = 0; m < win.length; m++) {
+            win[m] = new int[] { m & 1, m / 2 };
+        }
+        game = new GameState(size, winLength);
+        game.registerPlayer("alice");
+        game.registerPlayer("bob");
+        board = new GameState(size, winLength);
+        board.registerPlayer("alice");
+        board.registerPlayer("bob");
+        for (int m = 0; m < 4; m++) {
+            board.makeMove(DRAW[m][0], DRAW[m][1], (m & 1) == 0 ? "alice" : "bob");
+        }
+    }
+
+    /** One makeMove that leaves the game open. */
+    @Benchmark
+    @OperationsPerInvocation(9)
+    public boolean drawnGame() {
+        game.resetGame();
+        boolean valid = true;
+        for (int m = 0; m < DRAW.length; m++) {
+            valid &= game.makeMove(DRAW[m][0], DRAW[m][1], (m & 1) == 0 ? "alice" : "bob");
+        }
+        return valid;
+    }
+
+    /** A whole game that X wins: 5 moves on 3x3, 9 on 19x19. */
+    @Benchmark
+    public boolean winningGame() {
+        game.resetGame();
+        for (int m = 0; m < win.length; m++) {
+            game.makeMove(win[m][0], win[m][1], (m & 1) == 0 ? "alice" : "bob");
+        }
+        return game.isGameOver();
+    }
+
+    @Benchmark
+    public String getCurrentBoard() {
+        return board.getCurrentBoard();
+    }
+}
@@ -0,0 +1,62 @@
+package jmh;
+
+import server.MorpionServer;
+import shared.LobbyPage;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * MorpionServer.listAvailableRooms, and a page from the middle of the lobby,
+ * as the room count grows. Every other room has a guest, so the lobby holds
+ * half of them. The server runs in memory: no journal, no profile file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Dmorpion.journal=none", "-Dmorpion.profiles=none" })
+public class LobbyBenchmark {
+    // Room ids are random hex, so this cursor lands halfway down the lobby
+    private static final String MIDDLE = "80000000";
+
+    @Param({ "1000", "10000", "100000" })
+    public int rooms;
+
+    private MorpionServer server;
+
+    @Setup
+    public void setup() throws Exception {
+        System.setOut(new PrintStream(OutputStream.nullOutputStream())); // silence server logging
+        server = new MorpionServer();
+        for (int r = 0; r < rooms; r++) {
+            String room = server.createRoom("host-" + r);
+            if ((r & 1) == 1) {
+                server.joinRoom(room, "guest-" + r);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<String> listAvailableRooms() throws Exception {
+        return server.listAvailableRooms();
+    }
+
+    @Benchmark
+    public LobbyPage listRoomsPage() throws Exception {
+        return server.listRooms(MIDDLE, 50);
+    }
+}
@@ -0,0 +1,122 @@
+package jmh;
+
+import server.MorpionServer;
+import shared.MorpionInterface;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of the per-method metrics on makeMove: the same drawn games played
+ * through the server directly and through the instrumented front that RMI
+ * dispatches to (MorpionServer.startMetrics). The in-process pair shows the
+ * cost on its own, the four-thread pair (each thread in its own room) the
+ * recording under contention, and the RMI pair how much of it a client can
+ * see once a loopback round trip is added.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Dmorpion.journal=none", "-Dmorpion.profiles=none" })
+public class MetricsBenchmark {
+    private static final int[][] DRAW = { { 0, 0 }, { 0, 1 }, { 0, 2 }, { 1, 1 }, { 1, 0 }, { 1, 2 }, { 2, 1 },
+            { 2, 0 }, { 2, 2 } };
+
+    private MorpionServer server;
+    private MorpionInterface instrumented;
+    private MorpionInterface serverStub;
+    private MorpionInterface instrumentedStub;
+
+    @State(Scope.Thread)
+    public static class Room {
+        String roomId;
+
+        @Setup
+        public void setup(MetricsBenchmark benchmark) throws Exception {
+            roomId = benchmark.server.createRoom("alice");
+            benchmark.server.joinRoom(roomId, "bob");
+        }
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        System.setOut(new PrintStream(OutputStream.nullOutputStream())); // silence server logging
+        server = new MorpionServer();
+        instrumented = server.startMetrics("jmh");
+        serverStub = (MorpionInterface) UnicastRemoteObject.exportObject(server, 0);
+        instrumentedStub = (MorpionInterface) UnicastRemoteObject.exportObject(instrumented, 0);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        UnicastRemoteObject.unexportObject(instrumented, true);
+        UnicastRemoteObject.unexportObject(server, true);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(9)
+    public int direct(Room room) throws Exception {
+        return play(server, room.roomId);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(9)
+    public int instrumented(Room room) throws Exception {
+        return play(instrumented, room.roomId);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(9)
+    @Threads(4)
+    public int directContended(Room room) throws Exception {
+        return play(server, room.roomId);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(9)
+    @Threads(4)
+    public int instrumentedContended(Room room) throws Exception {
+        return play(instrumented, room.roomId);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(9)
+    public int directOverRmi(Room room) throws Exception {
+        return play(serverStub, room.roomId);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(9)
+    public int instrumentedOverRmi(Room room) throws Exception {
+        return play(instrumentedStub, room.roomId);
+    }
+
+    // One makeMove per op; the reset between games goes straight to the server in both cases
+    private int play(MorpionInterface game, String roomId) throws Exception {
+        server.resetGame(roomId);
+        int valid = 0;
+        for (int m = 0; m < DRAW.length; m++) {
+            if (game.makeMove(roomId, DRAW[m][0], DRAW[m][1], (m & 1) == 0 ? "alice" : "bob")
+                    == MorpionInterface.MoveStatus.VALID) {
+                valid++;
+            }
+        }
+        return valid;
+    }
+}
@@ -0,0 +1,66 @@
+package jmh;
+
+import server.MorpionServer;
+import shared.MorpionInterface;
+import shared.MorpionInterface.RoomStatus;
+import shared.RoomSnapshot;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * RMI calls over loopback through the server's own stub: RMI always goes
+ * through a socket, even within one JVM, so this is the marshalling, TCP and
+ * dispatch cost a client pays on top of the server's work. Sampled, so the
+ * JSON result carries percentiles as well as the mean.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Dmorpion.journal=none", "-Dmorpion.profiles=none" })
+public class RmiRoundTripBenchmark {
+    private MorpionServer server;
+    private MorpionInterface stub;
+    private String roomId;
+
+    @Setup
+    public void setup() throws Exception {
+        System.setOut(new PrintStream(OutputStream.nullOutputStream())); // silence server logging
+        server = new MorpionServer();
+        stub = (MorpionInterface) UnicastRemoteObject.exportObject(server, 0);
+        roomId = stub.createRoom("alice");
+        stub.joinRoom(roomId, "bob");
+        stub.makeMove(roomId, 1, 1, "alice");
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        UnicastRemoteObject.unexportObject(server, true);
+    }
+
+    /** Smallest call: a room id out, an enum back. */
+    @Benchmark
+    public RoomStatus getRoomStatus() throws Exception {
+        return stub.getRoomStatus(roomId);
+    }
+
+    /** Everything a client polls for, as one serialized object. */
+    @Benchmark
+    public RoomSnapshot getRoomSnapshot() throws Exception {
+        return stub.getRoomSnapshot(roomId, null);
+    }
+}
@@ -0,0 +1,88 @@
+package server;
+
+import shared.MorpionInterface.MoveStatus;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * GameRoom.makeMove with every thread playing in the same room, against the
+ * same calls from a single thread. Threads alternate between the host and the
+ * guest and aim at random cells, so most attempts come back NOT_YOUR_TURN or
+ * INVALID after taking the room lock, as they do when clients hammer one
+ * room. A finished game is reset by the first thread to see GAME_OVER.
+ *
+ * In package server, as GameRoom is only meant to be called from there.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameRoomBenchmark {
+    private static final String ROOM_ID = "BENCH001";
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private GameRoom room;
+
+    @State(Scope.Thread)
+    public static class Player {
+        String name;
+        boolean alternate; // single-threaded: play both sides in turn
+
+        @Setup
+        public void setup() {
+            name = (THREAD_COUNT.getAndIncrement() & 1) == 0 ? "host" : "guest";
+        }
+
+        String next() {
+            if (alternate) {
+                name = name.equals("host") ? "guest" : "host";
+            }
+            return name;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        System.setOut(new PrintStream(OutputStream.nullOutputStream())); // silence room logging
+        room = new GameRoom(ROOM_ID, "host");
+        room.registerPlayer("guest");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public MoveStatus contended(Player player) {
+        return play(player.next());
+    }
+
+    @Benchmark
+    @Threads(1)
+    public MoveStatus uncontended(Player player) {
+        player.alternate = true;
+        return play(player.next());
+    }
+
+    private MoveStatus play(String player) {
+        int cell = ThreadLocalRandom.current().nextInt(9);
+        MoveStatus status = room.makeMove(ROOM_ID, cell / 3, cell % 3, player);
+        if (status == MoveStatus.GAME_OVER) {
+            room.resetGame(ROOM_ID);
+        }
+        return status;
+    }
+}
@@ -0,0 +1,427 @@
+package client;
+
+import shared.BinaryProtocol;
+import shared.GameListener;
+import shared.LeaderboardPage;
+import shared.LobbyListener;
+import shared.LobbyPage;
+import shared.LobbyUpdate;
+import shared.MatchOptions;
+import shared.MatchResult;
+import shared.MatchmakingStats;
+import shared.MorpionInterface;
+import shared.PlayerStats;
+import shared.RoomSnapshot;
+import shared.SpectatorListener;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.rmi.RemoteException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * MorpionInterface over one BinaryProtocol connection instead of RMI, so the
+ * GUI and tools can switch transport without other changes. Calls from
+ * several threads share the connection: each request is tagged, and a reader
+ * thread hands every response to the call waiting for it.
+ *
+ * Server callbacks need RMI, so subscribeLobby and watchRoom fail and
+ * registerListener returns false; callers fall back to polling.
+ */
+public class BinaryMorpionClient implements MorpionInterface, Closeable {
+    private final Socket socket;
+    private final DataOutputStream out;
+    private final Map<Integer, CompletableFuture<DataInputStream>> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger nextRequestId = new AtomicInteger();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private volatile IOException failure;
+
+    @FunctionalInterface
+    private interface Arguments {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface Result<T> {
+        T read(DataInputStream in) throws IOException;
+    }
+
+    public BinaryMorpionClient(String host, int port) throws IOException {
+        socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        Thread reader = new Thread(() -> readResponses(in), "binary-client-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /** @return Bytes written to the socket, frame headers included */
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    /** @return Bytes read from the socket, frame headers included */
+    public long getBytesReceived() {
+        return bytesReceived.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    private void readResponses(DataInputStream in) {
+        try {
+            while (true) {
+                int length = in.readInt();
+                if (length < BinaryProtocol.HEADER_BYTES - 4 || length > BinaryProtocol.MAX_FRAME_BYTES) {
+                    throw new IOException("bad frame length " + length);
+                }
+                byte[] frame = new byte[length];
+                in.readFully(frame);
+                bytesReceived.addAndGet(4 + length);
+                DataInputStream response = new DataInputStream(new ByteArrayInputStream(frame));
+                CompletableFuture<DataInputStream> call = pending.remove(response.readInt());
+                if (call != null) {
+                    call.complete(response);
+                }
+            }
+        } catch (IOException e) {
+            failure = e;
+            pending.values().forEach(call -> call.completeExceptionally(e));
+            pending.clear();
+        }
+    }
+
+    private <T> T call(byte code, Arguments arguments, Result<T> result) throws RemoteException {
+        int requestId = nextRequestId.incrementAndGet();
+        CompletableFuture<DataInputStream> response = new CompletableFuture<>();
+        pending.put(requestId, response);
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream frame = new DataOutputStream(bytes);
+            frame.writeInt(requestId);
+            frame.writeByte(code);
+            arguments.write(frame);
+            synchronized (out) {
+                out.writeInt(bytes.size());
+                bytes.writeTo(out);
+                out.flush();
+            }
+            bytesSent.addAndGet(4 + bytes.size());
+            if (failure != null) { // the reader died before our request was registered
+                pending.remove(requestId);
+                throw failure;
+            }
+            DataInputStream in = response.get();
+            if (in.readByte() == BinaryProtocol.FAILED) {
+                throw new RemoteException("Server error: " + in.readUTF());
+            }
+            return result.read(in);
+        } catch (IOException e) {
+            pending.remove(requestId);
+            throw e instanceof RemoteException ? (RemoteException) e
+                    : new RemoteException("Binary transport failed", e);
+        } catch (ExecutionException e) {
+            throw new RemoteException("Connection lost", e.getCause());
+        } catch (InterruptedException e) {
+            pending.remove(requestId);
+            Thread.currentThread().interrupt();
+            throw new RemoteException("Interrupted while waiting for the server", e);
+        }
+    }
+
+    private void run(byte code, Arguments arguments) throws RemoteException {
+        call(code, arguments, in -> null);
+    }
+
+    private static RoomSnapshot readSnapshot(DataInputStream in) throws IOException {
+        return in.readBoolean() ? BinaryProtocol.readSnapshot(in) : null;
+    }
+
+    /* Room Management */
+
+    @Override
+    public String createRoom(String playerName) throws RemoteException {
+        return createRoom(playerName, 3, 3);
+    }
+
+    @Override
+    public String createRoom(String playerName, int boardSize, int winLength) throws RemoteException {
+        return call(BinaryProtocol.CREATE_ROOM, out -> {
+            out.writeUTF(playerName);
+            out.writeInt(boardSize);
+            out.writeInt(winLength);
+        }, BinaryProtocol::readNullable);
+    }
+
+    @Override
+    public RegistrationStatus joinRoom(String roomId, String playerName) throws RemoteException {
+        return call(BinaryProtocol.JOIN_ROOM, out -> {
+            out.writeUTF(roomId);
+            out.writeUTF(playerName);
+        }, in -> RegistrationStatus.values()[in.readUnsignedByte()]);
+    }
+
+    @Override
+    public RegistrationStatus addBot(String roomId, BotDifficulty difficulty) throws RemoteException {
+        return call(BinaryProtocol.ADD_BOT, out -> {
+            out.writeUTF(roomId);
+            out.writeByte(difficulty.ordinal());
+        }, in -> RegistrationStatus.values()[in.readUnsignedByte()]);
+    }
+
+    @Override
+    public List<String> listAvailableRooms() throws RemoteException {
+        return call(BinaryProtocol.LIST_AVAILABLE_ROOMS, out -> {
+        }, BinaryProtocol::readStrings);
+    }
+
+    @Override
+    public LobbyPage listRooms(String afterRoomId, int limit) throws RemoteException {
+        return call(BinaryProtocol.LIST_ROOMS, out -> {
+            BinaryProtocol.writeNullable(out, afterRoomId);
+            out.writeInt(limit);
+        }, BinaryProtocol::readLobbyPage);
+    }
+
+    @Override
+    public LobbyPage subscribeLobby(String playerName, LobbyListener listener) throws RemoteException {
+        throw new RemoteException("Lobby notifications need the RMI transport");
+    }
+
+    @Override
+    public void unsubscribeLobby(String playerName) throws RemoteException {
+        // Never subscribed
+    }
+
+    @Override
+    public LobbyUpdate getLobbyChanges(long sinceVersion) throws RemoteException {
+        return call(BinaryProtocol.GET_LOBBY_CHANGES, out -> out.writeLong(sinceVersion),
+                BinaryProtocol::readLobbyUpdate);
+    }
+
+    /* Matchmaking and ratings */
+
+    @Override
+    public MatchResult quickMatch(String playerName, MatchOptions options) throws RemoteException {
+        return call(BinaryProtocol.QUICK_MATCH, out -> {
+            out.writeUTF(playerName);
+            out.writeInt(options.getBoardSize());
+            out.writeInt(options.getWinLength());
+            out.writeLong(options.getMaxWaitMs());
+        }, BinaryProtocol::readMatchResult);
+    }
+
+    @Override
+    public void cancelQuickMatch(String playerName) throws RemoteException {
+        run(BinaryProtocol.CANCEL_QUICK_MATCH, out -> out.writeUTF(playerName));
+    }
+
+    @Override
+    public MatchmakingStats getMatchmakingStats() throws RemoteException {
+        return call(BinaryProtocol.GET_MATCHMAKING_STATS, out -> {
+        }, BinaryProtocol::readMatchmakingStats);
+    }
+
+    @Override
+    public PlayerStats getPlayerStats(String playerName) throws RemoteException {
+        return call(BinaryProtocol.GET_PLAYER_STATS, out -> out.writeUTF(playerName),
+                in -> in.readBoolean() ? BinaryProtocol.readPlayerStats(in) : null);
+    }
+
+    @Override
+    public List<PlayerStats> getLeaderboard(int limit) throws RemoteException {
+        return call(BinaryProtocol.GET_LEADERBOARD, out -> out.writeInt(limit),
+                BinaryProtocol::readPlayerStatsList);
+    }
+
+    @Override
+    public int getRank(String playerName) throws RemoteException {
+        return call(BinaryProtocol.GET_RANK, out -> out.writeUTF(playerName), DataInputStream::readInt);
+    }
+
+    @Override
+    public LeaderboardPage getLeaderboardAround(String playerName, int radius) throws RemoteException {
+        return call(BinaryProtocol.GET_LEADERBOARD_AROUND, out -> {
+            out.writeUTF(playerName);
+            out.writeInt(radius);
+        }, in -> in.readBoolean() ? BinaryProtocol.readLeaderboardPage(in) : null);
+    }
+
+    /* Spectators */
+
+    @Override
+    public RoomSnapshot watchRoom(String roomId, String spectatorName, SpectatorListener listener)
+            throws RemoteException {
+        throw new RemoteException("Spectating needs the RMI transport");
+    }
+
+    @Override
+    public void unwatchRoom(String roomId, String spectatorName) throws RemoteException {
+        // Never watching
+    }
+
+    /* Game Operations - Room-scoped */
+
+    @Override
+    public RoomStatus getRoomStatus(String roomId) throws RemoteException {
+        return call(BinaryProtocol.GET_ROOM_STATUS, out -> out.writeUTF(roomId),
+                in -> RoomStatus.values()[in.readUnsignedByte()]);
+    }
+
+    @Override
+    public MoveStatus makeMove(String roomId, int row, int col, String playerName) throws RemoteException {
+        return call(BinaryProtocol.MAKE_MOVE, out -> {
+            out.writeUTF(roomId);
+            out.writeInt(row);
+            out.writeInt(col);
+            out.writeUTF(playerName);
+        }, in -> MoveStatus.values()[in.readUnsignedByte()]);
+    }
+
+    @Override
+    public String getCurrentBoard(String roomId) throws RemoteException {
+        return call(BinaryProtocol.GET_CURRENT_BOARD, out -> out.writeUTF(roomId), in -> in.readUTF());
+    }
+
+    @Override
+    public RoomSnapshot getRoomSnapshot(String roomId, String playerName) throws RemoteException {
+        return call(BinaryProtocol.GET_ROOM_SNAPSHOT, out -> {
+            out.writeUTF(roomId);
+            BinaryProtocol.writeNullable(out, playerName);
+        }, BinaryMorpionClient::readSnapshot);
+    }
+
+    @Override
+    public RoomSnapshot waitForChange(String roomId, long sinceVersion, long timeoutMs) throws RemoteException {
+        return call(BinaryProtocol.WAIT_FOR_CHANGE, out -> {
+            out.writeUTF(roomId);
+            out.writeLong(sinceVersion);
+            out.writeLong(timeoutMs);
+        }, BinaryMorpionClient::readSnapshot);
+    }
+
+    @Override
+    public boolean isGameOver(String roomId) throws RemoteException {
+        return call(BinaryProtocol.IS_GAME_OVER, out -> out.writeUTF(roomId), DataInputStream::readBoolean);
+    }
+
+    @Override
+    public String getWinner(String roomId) throws RemoteException {
+        return call(BinaryProtocol.GET_WINNER, out -> out.writeUTF(roomId), BinaryProtocol::readNullable);
+    }
+
+    @Override
+    public boolean isPlayerTurn(String roomId, String playerName) throws RemoteException {
+        return call(BinaryProtocol.IS_PLAYER_TURN, out -> {
+            out.writeUTF(roomId);
+            out.writeUTF(playerName);
+        }, DataInputStream::readBoolean);
+    }
+
+    @Override
+    public boolean isGameReady(String roomId) throws RemoteException {
+        return call(BinaryProtocol.IS_GAME_READY, out -> out.writeUTF(roomId), DataInputStream::readBoolean);
+    }
+
+    @Override
+    public void resetGame(String roomId) throws RemoteException {
+        run(BinaryProtocol.RESET_GAME, out -> out.writeUTF(roomId));
+    }
+
+    @Override
+    public void disconnectPlayer(String roomId, String playerName) throws RemoteException {
+        run(BinaryProtocol.DISCONNECT_PLAYER, out -> {
+            out.writeUTF(roomId);
+            out.writeUTF(playerName);
+        });
+    }
+
+    @Override
+    public String getPlayerSymbol(String roomId, String playerName) throws RemoteException {
+        return call(BinaryProtocol.GET_PLAYER_SYMBOL, out -> {
+            out.writeUTF(roomId);
+            out.writeUTF(playerName);
+        }, BinaryProtocol::readNullable);
+    }
+
+    /* Event callbacks */
+
+    @Override
+    public boolean registerListener(String roomId, String playerName, GameListener listener) throws RemoteException {
+        return false; // no callbacks on this transport: the caller polls
+    }
+
+    @Override
+    public void unregisterListener(String roomId, String playerName) throws RemoteException {
+        // Never registered
+    }
+
+    /* Game Operations - Non-room-scoped (default room) */
+
+    @Override
+    public RegistrationStatus registerPlayer(String playerName) throws RemoteException {
+        return call(BinaryProtocol.REGISTER_PLAYER, out -> out.writeUTF(playerName),
+                in -> RegistrationStatus.values()[in.readUnsignedByte()]);
+    }
+
+    @Override
+    public MoveStatus makeMove(int row, int col, String playerName) throws RemoteException {
+        return makeMove(BinaryProtocol.DEFAULT_ROOM, row, col, playerName);
+    }
+
+    @Override
+    public String getCurrentBoard() throws RemoteException {
+        return getCurrentBoard(BinaryProtocol.DEFAULT_ROOM);
+    }
+
+    @Override
+    public boolean isGameOver() throws RemoteException {
+        return isGameOver(BinaryProtocol.DEFAULT_ROOM);
+    }
+
+    @Override
+    public String getWinner() throws RemoteException {
+        return getWinner(BinaryProtocol.DEFAULT_ROOM);
+    }
+
+    @Override
+    public boolean isPlayerTurn(String playerName) throws RemoteException {
+        return isPlayerTurn(BinaryProtocol.DEFAULT_ROOM, playerName);
+    }
+
+    @Override
+    public boolean isGameReady() throws RemoteException {
+        return isGameReady(BinaryProtocol.DEFAULT_ROOM);
+    }
+
+    @Override
+    public void resetGame() throws RemoteException {
+        resetGame(BinaryProtocol.DEFAULT_ROOM);
+    }
+
+    @Override
+    public void disconnectPlayer(String playerName) throws RemoteException {
+        disconnectPlayer(BinaryProtocol.DEFAULT_ROOM, playerName);
+    }
+
+    @Override
+    public String getPlayerSymbol(String playerName) throws RemoteException {
+        return getPlayerSymbol(BinaryProtocol.DEFAULT_ROOM, playerName);
+    }
+}
@@ -0,0 +1,123 @@
+package client;
+
+import shared.MorpionInterface;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.rmi.NotBoundException;
+import java.rmi.RemoteException;
+import java.rmi.ServerError;
+import java.rmi.ServerException;
+import java.rmi.registry.LocateRegistry;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * MorpionInterface that follows a leader/standby pair. Calls go to whichever
+ * server is bound as "MorpionGame"; when a call fails because that server is
+ * unreachable, the servers are tried in turn until one answers, for up to
+ * FAILOVER_TIMEOUT_MS, and the call is repeated there. A standby only binds
+ * once it has taken over, so the client can't end up on one that is still
+ * following.
+ *
+ * A call is repeated if the leader died while it was in flight, so a move
+ * that did reach the leader and its follower comes back INVALID or
+ * NOT_YOUR_TURN. Listeners and spectators are not carried over: callers
+ * register again, as after a server restart.
+ */
+public final class FailoverMorpionClient implements InvocationHandler {
+    private static final long FAILOVER_TIMEOUT_MS = 15000;
+    private static final long RETRY_MS = 200;
+
+    private final List<String> servers;
+    private volatile MorpionInterface current;
+    private volatile int currentIndex = -1;
+
+    private FailoverMorpionClient(List<String> servers) {
+        this.servers = new ArrayList<>(servers);
+    }
+
+    /**
+     * @param servers "host:port" of each server's registry, leader first
+     * @return A MorpionInterface that moves to the next server on failure
+     * @throws RemoteException If none of the servers can be reached
+     */
+    public static MorpionInterface connect(List<String> servers) throws RemoteException {
+        FailoverMorpionClient handler = new FailoverMorpionClient(servers);
+        handler.failOver(null);
+        return (MorpionInterface) Proxy.newProxyInstance(MorpionInterface.class.getClassLoader(),
+                new Class<?>[] { MorpionInterface.class }, handler);
+    }
+
+    /** @return "host:port" of the server calls currently go to */
+    public static String currentServer(MorpionInterface client) {
+        FailoverMorpionClient handler = (FailoverMorpionClient) Proxy.getInvocationHandler(client);
+        return handler.servers.get(handler.currentIndex);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return "FailoverMorpionClient" + servers;
+            }
+        }
+        while (true) {
+            MorpionInterface server = current;
+            try {
+                return method.invoke(server, args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                // ServerException and ServerError come from a server that is up and answering
+                if (!(cause instanceof RemoteException) || cause instanceof ServerException
+                        || cause instanceof ServerError) {
+                    throw cause;
+                }
+                failOver(server);
+            }
+        }
+    }
+
+    // The first caller to see the failure looks for the next server; the others wait and use it
+    private synchronized void failOver(MorpionInterface failed) throws RemoteException {
+        if (current != failed) {
+            return;
+        }
+        long deadline = System.currentTimeMillis() + FAILOVER_TIMEOUT_MS;
+        RemoteException last = null;
+        for (int attempt = 1;; attempt++) {
+            int index = Math.floorMod(currentIndex + attempt, servers.size());
+            String[] hostPort = servers.get(index).split(":");
+            try {
+                current = (MorpionInterface) LocateRegistry.getRegistry(hostPort[0], Integer.parseInt(hostPort[1]))
+                        .lookup("MorpionGame");
+                if (failed != null) {
+                    System.out.println("Failed over to " + servers.get(index));
+                }
+                currentIndex = index;
+                return;
+            } catch (RemoteException e) {
+                last = e;
+            } catch (NotBoundException e) {
+                last = new RemoteException(servers.get(index) + " is a standby that has not taken over", e);
+            }
+            if (System.currentTimeMillis() > deadline) {
+                throw last;
+            }
+            if (attempt % servers.size() == 0) {
+                try {
+                    Thread.sleep(RETRY_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw last;
+                }
+            }
+        }
+    }
+}
@@ -1,7 +1,21 @@
 package client;
 
+import shared.BinaryProtocol;
+import shared.ExecutionMode;
+import shared.GameListener;
+import shared.LeaderboardPage;
+import shared.LobbyDelta;
+import shared.LobbyListener;
+import shared.LobbyPage;
+import shared.LobbyUpdate;
+import shared.MatchOptions;
+import shared.MatchResult;
 import shared.MorpionInterface;
 import shared.MorpionInterface.RegistrationStatus;
+import shared.RoomBroadcast;
+import shared.RoomSnapshot;
+import shared.ShardDirectoryInterface;
+import shared.SpectatorListener;
 
 import javax.swing.*;
 import java.awt.*;
@@ -9,21 +23,55 @@ import java.awt.event.*;
 import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class MorpionClientGUI extends JFrame {
     private MorpionInterface game;
     private String playerName;
     private String playerSymbol;
     private String currentRoomId;
-    private final JButton[][] buttons = new JButton[3][3];
+    private JButton[][] buttons = new JButton[0][0];
+    private JPanel boardPanel;
     private JLabel statusLabel;
     private JLabel roomInfoLabel;
     private JPanel mainPanel;
-    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+    // Network calls and the game loop; virtual threads with -Dmorpion.threads=virtual
+    private final ExecutorService executor = ExecutionMode.newExecutor("client", () -> Executors.newFixedThreadPool(2));
     private volatile boolean gameRunning = false;
+    // Not a monitor: a virtual thread waiting on it gives its carrier back
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private final Condition refreshSignal = refreshLock.newCondition();
+    private GameListener roomListener;
+    private volatile boolean callbacksActive = false;
+    private volatile String pushedWinner;
+    private LobbyListener lobbyListener;
+    private volatile DefaultListModel<String> lobbyModel; // set while the lobby is shown
+    private long shownLobbyVersion = -1; // EDT only
+    private SpectatorListener spectatorListener;
+    private volatile String watchedRoomId;
+    private long shownSpectatorVersion = -1; // EDT only
+
+    // Polling is only a fallback once the server can push events to us
+    private static final long POLL_INTERVAL_MS = 500;
+    private static final long FALLBACK_POLL_INTERVAL_MS = 5000;
+    private static final long LONG_POLL_TIMEOUT_MS = 20000;
+    private static final int LOBBY_PAGE_SIZE = 50;
+
+    // -Dmorpion.transport=binary talks BinaryProtocol instead of RMI (no server callbacks);
+    // =sharded finds the nodes of a sharded deployment through the directory at morpion.directory
+    private static final String TRANSPORT_PROPERTY = "morpion.transport";
+    private static final String BINARY_PORT_PROPERTY = "morpion.binary.port";
+    private static final String DIRECTORY_PROPERTY = "morpion.directory";
+    // Over RMI, -Dmorpion.servers=leader:1099,standby:1099 fails over to the standby
+    private static final String SERVERS_PROPERTY = "morpion.servers";
 
     // Color scheme
     private static final Color BG_COLOR = new Color(240, 240, 240);
@@ -66,41 +114,12 @@ public class MorpionClientGUI extends JFrame {
         roomInfoLabel = new JLabel("", SwingConstants.CENTER);
         roomInfoLabel.setFont(new Font("Segoe UI", Font.PLAIN, 12));
 
-        // Game board
-        JPanel boardPanel = new JPanel(new GridLayout(3, 3, 10, 10));
+        // Game board, filled in once the room's size is known
+        boardPanel = new JPanel();
         boardPanel.setBackground(BG_COLOR);
         boardPanel.setBorder(BorderFactory.createEmptyBorder(20, 0, 20, 0));
         boardPanel.setVisible(false);
 
-        Font buttonFont = new Font("Segoe UI", Font.BOLD, 60);
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
-                final int row = i, col = j;
-                buttons[i][j] = new JButton();
-                buttons[i][j].setFont(buttonFont);
-                buttons[i][j].setBackground(BUTTON_COLOR);
-                buttons[i][j].setFocusPainted(false);
-                buttons[i][j].setBorder(BorderFactory.createLineBorder(new Color(189, 195, 199), 2));
-
-                buttons[i][j].addMouseListener(new MouseAdapter() {
-                    public void mouseEntered(MouseEvent e) {
-                        if (buttons[row][col].getText().isEmpty()) {
-                            buttons[row][col].setBackground(HOVER_COLOR);
-                        }
-                    }
-
-                    public void mouseExited(MouseEvent e) {
-                        if (buttons[row][col].getText().isEmpty()) {
-                            buttons[row][col].setBackground(BUTTON_COLOR);
-                        }
-                    }
-                });
-
-                buttons[i][j].addActionListener(e -> handleMove(row, col));
-                boardPanel.add(buttons[i][j]);
-            }
-        }
-
         JPanel topPanel = new JPanel(new BorderLayout());
         topPanel.add(statusLabel, BorderLayout.CENTER);
         topPanel.add(roomInfoLabel, BorderLayout.SOUTH);
@@ -127,8 +146,20 @@ public class MorpionClientGUI extends JFrame {
                 }
 
                 playerName = input.trim();
-                Registry registry = LocateRegistry.getRegistry("localhost", 1099);
-                game = (MorpionInterface) registry.lookup("MorpionGame");
+                if ("binary".equals(System.getProperty(TRANSPORT_PROPERTY))) {
+                    game = new BinaryMorpionClient("localhost",
+                            Integer.getInteger(BINARY_PORT_PROPERTY, BinaryProtocol.DEFAULT_PORT));
+                } else if ("sharded".equals(System.getProperty(TRANSPORT_PROPERTY))) {
+                    String[] directory = System.getProperty(DIRECTORY_PROPERTY,
+                            "localhost:" + ShardDirectoryInterface.DEFAULT_PORT).split(":");
+                    game = new ShardedMorpionClient(directory[0], Integer.parseInt(directory[1]));
+                } else if (System.getProperty(SERVERS_PROPERTY) != null) {
+                    game = FailoverMorpionClient.connect(
+                            Arrays.asList(System.getProperty(SERVERS_PROPERTY).split(",")));
+                } else {
+                    Registry registry = LocateRegistry.getRegistry("localhost", 1099);
+                    game = (MorpionInterface) registry.lookup("MorpionGame");
+                }
                 SwingUtilities.invokeLater(this::showRoomSelection);
             } catch (Exception e) {
                 SwingUtilities.invokeLater(() -> {
@@ -147,28 +178,42 @@ public class MorpionClientGUI extends JFrame {
         JButton createBtn = new JButton("Create Room");
         createBtn.addActionListener(e -> createNewRoom());
 
+        JButton quickMatchBtn = new JButton("Quick Match");
+        quickMatchBtn.addActionListener(e -> startQuickMatch());
+
+        JButton watchBtn = new JButton("Watch");
+        watchBtn.addActionListener(e -> {
+            String selected = roomList.getSelectedValue();
+            String suggestion = selected != null && !isLobbyPlaceholder(selected) ? selected.split(" ")[0] : "";
+            String roomId = JOptionPane.showInputDialog(this, "Room ID to watch:", suggestion);
+            if (roomId != null && !roomId.trim().isEmpty()) {
+                watchRoom(roomId.trim().toUpperCase());
+            }
+        });
+
         JButton refreshBtn = new JButton("Refresh");
         refreshBtn.addActionListener(e -> refreshRoomList(roomListModel));
 
         JButton joinBtn = new JButton("Join");
         joinBtn.addActionListener(e -> {
             String selected = roomList.getSelectedValue();
-            if (selected != null && !selected.startsWith("No rooms") && !selected.startsWith("Error")) {
+            if (selected != null && !isLobbyPlaceholder(selected)) {
                 joinSelectedRoom(selected);
             }
         });
 
-        JPanel buttonPanel = new JPanel(new GridLayout(1, 3, 5, 5));
+        JPanel buttonPanel = new JPanel(new GridLayout(1, 5, 5, 5));
         buttonPanel.add(createBtn);
+        buttonPanel.add(quickMatchBtn);
+        buttonPanel.add(watchBtn);
         buttonPanel.add(refreshBtn);
         buttonPanel.add(joinBtn);
 
         roomPanel.add(new JScrollPane(roomList), BorderLayout.CENTER);
         roomPanel.add(buttonPanel, BorderLayout.SOUTH);
 
-        refreshRoomList(roomListModel);
-        Timer refreshTimer = new Timer(2000, e -> refreshRoomList(roomListModel));
-        refreshTimer.start();
+        shownLobbyVersion = -1;
+        subscribeToLobby(roomListModel);
 
         int option = JOptionPane.showOptionDialog(
                 this,
@@ -180,31 +225,47 @@ public class MorpionClientGUI extends JFrame {
                 new Object[] { "Cancel" },
                 null);
 
-        if (option != JOptionPane.CLOSED_OPTION) {
-            refreshTimer.stop();
-        }
+        leaveLobby();
+    }
+
+    // Rooms now arrive as pushed changes; Refresh and resyncs reload the first page
+    private void subscribeToLobby(DefaultListModel<String> roomListModel) {
+        lobbyModel = roomListModel;
+        executor.submit(() -> {
+            try {
+                if (lobbyListener == null) {
+                    lobbyListener = new LobbyEventListener();
+                    UnicastRemoteObject.exportObject(lobbyListener, 0);
+                }
+                LobbyPage page = game.subscribeLobby(playerName, lobbyListener);
+                SwingUtilities.invokeLater(() -> showLobbyPage(roomListModel, page));
+            } catch (RemoteException e) {
+                // No callbacks (e.g. behind a firewall): the Refresh button still works
+                System.err.println("Lobby subscription failed: " + e.getMessage());
+                refreshRoomList(roomListModel);
+            }
+        });
+    }
+
+    private void leaveLobby() {
+        lobbyModel = null;
+        executor.submit(() -> {
+            try {
+                game.unsubscribeLobby(playerName);
+            } catch (RemoteException e) {
+                System.err.println("Lobby unsubscribe failed: " + e.getMessage());
+            }
+        });
     }
 
     private void refreshRoomList(DefaultListModel<String> roomListModel) {
         executor.submit(() -> {
             try {
-                List<String> rooms = game.listAvailableRooms();
-                SwingUtilities.invokeLater(() -> {
-                    roomListModel.clear();
-                    if (rooms.isEmpty()) {
-                        roomListModel.addElement("No rooms available - create one!");
-                    } else {
-                        // Extract just the room ID part (first token before space)
-                        rooms.forEach(room -> {
-                            String[] parts = room.split(" ");
-                            if (parts.length > 0) {
-                                roomListModel.addElement(parts[0]);
-                            }
-                        });
-                    }
-                });
+                LobbyPage page = game.listRooms(null, LOBBY_PAGE_SIZE);
+                SwingUtilities.invokeLater(() -> showLobbyPage(roomListModel, page));
             } catch (RemoteException e) {
                 SwingUtilities.invokeLater(() -> {
+                    shownLobbyVersion = -1;
                     roomListModel.clear();
                     roomListModel.addElement("Error fetching rooms");
                 });
@@ -212,17 +273,95 @@ public class MorpionClientGUI extends JFrame {
         });
     }
 
+    private void showLobbyPage(DefaultListModel<String> roomListModel, LobbyPage page) {
+        if (page.getVersion() < shownLobbyVersion) {
+            return; // an update already brought the list further
+        }
+        List<String> roomIds = new ArrayList<>();
+        // Extract just the room ID part (first token before space)
+        page.getRooms().forEach(room -> roomIds.add(room.split(" ")[0]));
+        shownLobbyVersion = page.getVersion();
+        renderLobby(roomListModel, roomIds, page.getTotalRooms());
+    }
+
+    private void applyLobbyUpdate(DefaultListModel<String> roomListModel, LobbyUpdate update) {
+        if (update.getToVersion() <= shownLobbyVersion) {
+            return;
+        }
+        if (update.isResync() || update.getFromVersion() > shownLobbyVersion) {
+            refreshRoomList(roomListModel); // missed changes: start over from a fresh page
+            return;
+        }
+        List<String> roomIds = new ArrayList<>();
+        for (int i = 0; i < roomListModel.size(); i++) {
+            if (!isLobbyPlaceholder(roomListModel.get(i))) {
+                roomIds.add(roomListModel.get(i));
+            }
+        }
+        for (LobbyDelta delta : update.getDeltas()) {
+            if (delta.getType() == LobbyDelta.Type.ADDED) {
+                if (!roomIds.contains(delta.getRoomId()) && roomIds.size() < LOBBY_PAGE_SIZE) {
+                    roomIds.add(delta.getRoomId());
+                }
+            } else {
+                roomIds.remove(delta.getRoomId());
+            }
+        }
+        shownLobbyVersion = update.getToVersion();
+        if (roomIds.size() < LOBBY_PAGE_SIZE && update.getTotalRooms() > roomIds.size()) {
+            refreshRoomList(roomListModel); // rooms left the page and others can take their place
+            return;
+        }
+        renderLobby(roomListModel, roomIds, update.getTotalRooms());
+    }
+
+    private void renderLobby(DefaultListModel<String> roomListModel, List<String> roomIds, int totalRooms) {
+        roomListModel.clear();
+        if (roomIds.isEmpty()) {
+            roomListModel.addElement("No rooms available - create one!");
+            return;
+        }
+        roomIds.forEach(roomListModel::addElement);
+        if (totalRooms > roomIds.size()) {
+            roomListModel.addElement("... and " + (totalRooms - roomIds.size()) + " more");
+        }
+    }
+
+    private static boolean isLobbyPlaceholder(String entry) {
+        return entry.startsWith("No rooms") || entry.startsWith("Error") || entry.startsWith("...");
+    }
+
     private void createNewRoom() {
+        String[] modes = { "Classic 3x3", "Gomoku 15x15", "3x3 vs Bot", "15x15 vs Bot" };
+        int mode = JOptionPane.showOptionDialog(this, "Choose the board:", "Create Room",
+                JOptionPane.DEFAULT_OPTION, JOptionPane.QUESTION_MESSAGE, null, modes, modes[0]);
+        if (mode == JOptionPane.CLOSED_OPTION) {
+            return;
+        }
+        boolean gomoku = mode == 1 || mode == 3;
+        boolean withBot = mode >= 2;
+        int boardSize = gomoku ? 15 : 3;
+        int winLength = gomoku ? 5 : 3;
+
         executor.submit(() -> {
             try {
-                currentRoomId = game.createRoom(playerName);
+                String roomId = game.createRoom(playerName, boardSize, winLength);
+                if (roomId == null) {
+                    SwingUtilities.invokeLater(() -> showError("Room creation failed: invalid board"));
+                    return;
+                }
+                currentRoomId = roomId;
                 // No need to join separately - server auto-joins creator
                 playerSymbol = "X"; // Creator is always X
+                subscribeToRoom();
+                if (withBot) {
+                    game.addBot(roomId, MorpionInterface.BotDifficulty.HARD);
+                }
 
                 SwingUtilities.invokeLater(() -> {
                     updateStatus("Room created! You are Player X");
                     updateRoomInfo();
-                    showGameBoard();
+                    showGameBoard(boardSize);
                     startGameLoop();
                 });
             } catch (Exception e) {
@@ -235,6 +374,112 @@ public class MorpionClientGUI extends JFrame {
         });
     }
 
+    // Each quickMatch call waits up to 20 s on the server; we keep asking until paired
+    private void startQuickMatch() {
+        String[] modes = { "Classic 3x3", "Gomoku 15x15" };
+        int mode = JOptionPane.showOptionDialog(this, "Choose the board:", "Quick Match",
+                JOptionPane.DEFAULT_OPTION, JOptionPane.QUESTION_MESSAGE, null, modes, modes[0]);
+        if (mode == JOptionPane.CLOSED_OPTION) {
+            return;
+        }
+        MatchOptions options = mode == 1 ? new MatchOptions(15, 5, 20000) : MatchOptions.classic();
+        updateStatus("Looking for an opponent...");
+
+        executor.submit(() -> {
+            try {
+                MatchResult result = game.quickMatch(playerName, options);
+                while (result.getStatus() == MatchResult.Status.WAITING && !executor.isShutdown()) {
+                    long waitedSec = result.getWaitMs() / 1000;
+                    SwingUtilities.invokeLater(() -> updateStatus("Looking for an opponent... " + waitedSec + "s"));
+                    result = game.quickMatch(playerName, options);
+                }
+                MatchResult match = result;
+                if (match.getStatus() != MatchResult.Status.MATCHED) {
+                    SwingUtilities.invokeLater(() -> {
+                        updateStatus("Quick match " + match.getStatus().name().toLowerCase());
+                        if (match.getStatus() == MatchResult.Status.ERROR) {
+                            showError("Quick match failed");
+                        }
+                    });
+                    return;
+                }
+                currentRoomId = match.getRoomId();
+                playerSymbol = match.getSymbol();
+                subscribeToRoom();
+
+                SwingUtilities.invokeLater(() -> {
+                    updateStatus("Matched with " + match.getOpponent() + "! You are Player " + playerSymbol);
+                    updateRoomInfo();
+                    showGameBoard(options.getBoardSize());
+                    startGameLoop();
+                });
+            } catch (Exception e) {
+                SwingUtilities.invokeLater(() -> {
+                    showError("Quick match error: " + e.getMessage());
+                    System.err.println("Quick match exception: " + e);
+                    e.printStackTrace();
+                });
+            }
+        });
+    }
+
+    // Spectators only receive pushed states; the board stays read-only
+    private void watchRoom(String roomId) {
+        executor.submit(() -> {
+            try {
+                if (spectatorListener == null) {
+                    spectatorListener = new SpectatorEventListener();
+                    UnicastRemoteObject.exportObject(spectatorListener, 0);
+                }
+                String previous = watchedRoomId;
+                if (previous != null) {
+                    game.unwatchRoom(previous, playerName);
+                }
+                watchedRoomId = roomId;
+                RoomSnapshot snapshot = game.watchRoom(roomId, playerName, spectatorListener);
+                if (snapshot == null) {
+                    watchedRoomId = null;
+                    SwingUtilities.invokeLater(() -> showError("No room " + roomId + " to watch"));
+                    return;
+                }
+                SwingUtilities.invokeLater(() -> {
+                    roomInfoLabel.setText("Room: " + roomId + " | Spectating");
+                    shownSpectatorVersion = -1;
+                    showGameBoard(snapshot.getSize());
+                    renderSpectated(snapshot);
+                });
+            } catch (RemoteException e) {
+                watchedRoomId = null;
+                SwingUtilities.invokeLater(() -> showError("Watch failed: " + e.getMessage()));
+            }
+        });
+    }
+
+    private void renderSpectated(RoomSnapshot snapshot) {
+        // Once we sit down in a game of our own, pushes for the watched room are ignored
+        if (currentRoomId != null || !snapshot.getRoomId().equals(watchedRoomId)
+                || snapshot.getVersion() <= shownSpectatorVersion || buttons.length != snapshot.getSize()) {
+            return;
+        }
+        shownSpectatorVersion = snapshot.getVersion();
+        for (int i = 0; i < snapshot.getSize(); i++) {
+            for (int j = 0; j < snapshot.getSize(); j++) {
+                buttons[i][j].setText(snapshot.getCell(i, j));
+                buttons[i][j].setEnabled(false);
+            }
+        }
+        String players = snapshot.getHostPlayer() + " vs "
+                + (snapshot.getGuestPlayer() != null ? snapshot.getGuestPlayer() : "?");
+        if (snapshot.isGameOver()) {
+            String winner = snapshot.getWinner();
+            updateStatus(players + ": " + (winner.equals("DRAW") ? "draw" : winner + " wins"));
+        } else if (!snapshot.isGameReady()) {
+            updateStatus(players + ": waiting for an opponent");
+        } else {
+            updateStatus(players + ": " + snapshot.getCurrentTurn() + " to move");
+        }
+    }
+
     private void joinSelectedRoom(String roomInfo) {
         // Extract just the room ID (first part before space)
         String roomId = roomInfo.contains(" ") ? roomInfo.split(" ")[0] : roomInfo;
@@ -242,13 +487,23 @@ public class MorpionClientGUI extends JFrame {
         executor.submit(() -> {
             try {
                 MorpionInterface.RegistrationStatus status = game.joinRoom(roomId, playerName);
+                int boardSize = 3;
+                if (status == MorpionInterface.RegistrationStatus.PLAYER_O) {
+                    currentRoomId = roomId;
+                    subscribeToRoom();
+                    RoomSnapshot snapshot = game.getRoomSnapshot(roomId, playerName);
+                    if (snapshot != null) {
+                        boardSize = snapshot.getSize();
+                    }
+                }
+                int size = boardSize;
 
                 SwingUtilities.invokeLater(() -> {
                     if (status == MorpionInterface.RegistrationStatus.PLAYER_O) {
                         currentRoomId = roomId;
                         playerSymbol = "O";
                         updateStatus("Joined as Player O");
-                        showGameBoard();
+                        showGameBoard(size);
                         startGameLoop();
                     } else {
                         showError("Join failed: " + status);
@@ -292,91 +547,206 @@ public class MorpionClientGUI extends JFrame {
         });
     }
 
+    /**
+     * Exports a callback object and registers it with the current room so the
+     * server pushes moves instead of us polling. Must be called off the EDT.
+     */
+    private void subscribeToRoom() {
+        try {
+            if (roomListener == null) {
+                roomListener = new RoomEventListener();
+                UnicastRemoteObject.exportObject(roomListener, 0);
+            }
+            callbacksActive = game.registerListener(currentRoomId, playerName, roomListener);
+        } catch (RemoteException e) {
+            System.err.println("Callback registration failed, polling instead: " + e.getMessage());
+            callbacksActive = false;
+        }
+    }
+
+    private void wakeGameLoop() {
+        refreshLock.lock();
+        try {
+            refreshSignal.signalAll();
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
     private void startGameLoop() {
         if (gameRunning)
             return;
         gameRunning = true;
 
         executor.submit(() -> {
+            boolean playAgain = false;
             try {
-                while (!game.isGameOver()) {
-                    updateBoard();
-                    Thread.sleep(500);
+                String winner = null;
+                RoomSnapshot snapshot = null;
+                while (winner == null) {
+                    // Without callbacks, long-poll the server instead of sleeping between refreshes
+                    snapshot = callbacksActive || snapshot == null ? updateBoard()
+                            : waitForBoardChange(snapshot.getVersion());
+                    winner = pushedWinner != null ? pushedWinner : snapshot != null ? snapshot.getWinner() : null;
+                    if (winner == null && (callbacksActive || snapshot == null)) {
+                        refreshLock.lock();
+                        try {
+                            refreshSignal.await(callbacksActive ? FALLBACK_POLL_INTERVAL_MS : POLL_INTERVAL_MS,
+                                    TimeUnit.MILLISECONDS);
+                        } finally {
+                            refreshLock.unlock();
+                        }
+                    }
                 }
-                showGameResult();
+                playAgain = showGameResult(winner);
             } catch (Exception e) {
                 showError("Game error");
             } finally {
                 gameRunning = false;
             }
+            // Only once this loop is over, or startGameLoop would see it still running
+            if (playAgain) {
+                startGameLoop();
+            }
         });
     }
 
-    private void updateBoard() {
+    /**
+     * Fetches the room snapshot in a single remote call and renders it.
+     * 
+     * @return The snapshot that was rendered, or null if it couldn't be fetched
+     */
+    private RoomSnapshot updateBoard() {
         try {
-            String board = game.getCurrentBoard(currentRoomId);
-            if (board == null || board.isEmpty()) {
-                return;
-            }
-
-            String[] rows = board.split("\n");
-            SwingUtilities.invokeLater(() -> {
-                for (int i = 0; i < Math.min(3, rows.length); i++) {
-                    String[] cells = rows[i].split("\\|");
-                    for (int j = 0; j < Math.min(3, cells.length); j++) {
-                        String cell = cells[j].trim();
-                        buttons[i][j].setText(cell.isEmpty() ? "" : cell);
-                        try {
-                            buttons[i][j].setEnabled(cell.isEmpty() &&
-                                    game.isPlayerTurn(currentRoomId));
-                        } catch (RemoteException e) {
-                            // TODO Auto-generated catch block
-                            e.printStackTrace();
-                        }
-                    }
-                }
+            return renderSnapshot(game.getRoomSnapshot(currentRoomId, playerName));
+        } catch (RemoteException e) {
+            showError("Board update error");
+            return null;
+        }
+    }
 
-                try {
-                    if (game.isGameOver(currentRoomId)) {
-                        String winner = game.getWinner();
-                        updateStatus(winner.equals("DRAW") ? "Game ended in draw!" : winner + " wins!");
-                    } else {
-                        updateStatus(game.isPlayerTurn(currentRoomId) ? "Your turn (" + playerSymbol + ")"
-                                : "Waiting for opponent...");
-                    }
-                } catch (RemoteException e) {
-                    showError("Status update error");
-                }
-            });
+    /**
+     * Blocks on the server until the room moves past the given version (or the
+     * long-poll times out) and renders the result.
+     * 
+     * @return The snapshot that was rendered, or null if it couldn't be fetched
+     */
+    private RoomSnapshot waitForBoardChange(long sinceVersion) {
+        try {
+            return renderSnapshot(game.waitForChange(currentRoomId, sinceVersion, LONG_POLL_TIMEOUT_MS));
         } catch (RemoteException e) {
             showError("Board update error");
+            return null;
+        }
+    }
+
+    private RoomSnapshot renderSnapshot(RoomSnapshot snapshot) {
+        if (snapshot == null) {
+            return null;
         }
+
+        SwingUtilities.invokeLater(() -> {
+            if (buttons.length != snapshot.getSize()) {
+                return;
+            }
+            boolean myTurn = snapshot.isGameReady() && playerSymbol.equals(snapshot.getCurrentTurn());
+            for (int i = 0; i < snapshot.getSize(); i++) {
+                for (int j = 0; j < snapshot.getSize(); j++) {
+                    String cell = snapshot.getCell(i, j);
+                    buttons[i][j].setText(cell);
+                    buttons[i][j].setEnabled(cell.isEmpty() && myTurn);
+                }
+            }
+
+            if (snapshot.isGameOver()) {
+                String winner = snapshot.getWinner();
+                updateStatus(winner.equals("DRAW") ? "Game ended in draw!" : winner + " wins!");
+            } else if (!snapshot.isGameReady()) {
+                updateStatus("Waiting for opponent to join...");
+            } else {
+                updateStatus(myTurn ? "Your turn (" + playerSymbol + ")" : "Waiting for opponent...");
+            }
+        });
+        return snapshot;
     }
 
-    private void showGameResult() {
+    /** @return true if the player chose to play again and the room was reset */
+    private boolean showGameResult(String winner) {
         try {
-            String winner = game.getWinner();
-            String message = winner.equals("DRAW") ? "It's a draw!" : winner + " wins!";
+            String message = (winner.equals("DRAW") ? "It's a draw!" : winner + " wins!") + describeStanding();
 
             int choice = JOptionPane.showOptionDialog(this, message, "Game Over",
                     JOptionPane.YES_NO_OPTION, JOptionPane.INFORMATION_MESSAGE,
                     null, new String[] { "Play Again", "Quit" }, "Quit");
 
             if (choice == 0) {
-                game.resetGame();
+                pushedWinner = null;
+                game.resetGame(currentRoomId);
                 resetUI();
-                startGameLoop();
-            } else {
-                shutdown();
+                return true;
             }
+            shutdown();
         } catch (RemoteException e) {
             showError("Error getting game result");
             shutdown();
         }
+        return false;
     }
 
-    private void showGameBoard() {
-        ((JPanel) mainPanel.getComponent(1)).setVisible(true);
+    // Rated games only; the server rates asynchronously, so this may still show the standing before the game
+    private String describeStanding() {
+        try {
+            LeaderboardPage page = game.getLeaderboardAround(playerName, 0);
+            if (page == null || page.getEntries().isEmpty()) {
+                return "";
+            }
+            return String.format("%nYour rating: %d (rank %d of %d)",
+                    Math.round(page.getEntries().get(0).getRating()), page.getFirstRank(), page.getTotalPlayers());
+        } catch (RemoteException e) {
+            return "";
+        }
+    }
+
+    private void buildBoard(int size) {
+        boardPanel.removeAll();
+        int gap = size <= 3 ? 10 : 2;
+        boardPanel.setLayout(new GridLayout(size, size, gap, gap));
+        buttons = new JButton[size][size];
+
+        Font buttonFont = new Font("Segoe UI", Font.BOLD, Math.max(12, 180 / size));
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                final int row = i, col = j;
+                buttons[i][j] = new JButton();
+                buttons[i][j].setFont(buttonFont);
+                buttons[i][j].setBackground(BUTTON_COLOR);
+                buttons[i][j].setFocusPainted(false);
+                buttons[i][j].setMargin(new Insets(0, 0, 0, 0));
+                buttons[i][j].setBorder(BorderFactory.createLineBorder(new Color(189, 195, 199), size <= 3 ? 2 : 1));
+
+                buttons[i][j].addMouseListener(new MouseAdapter() {
+                    public void mouseEntered(MouseEvent e) {
+                        if (buttons[row][col].getText().isEmpty()) {
+                            buttons[row][col].setBackground(HOVER_COLOR);
+                        }
+                    }
+
+                    public void mouseExited(MouseEvent e) {
+                        if (buttons[row][col].getText().isEmpty()) {
+                            buttons[row][col].setBackground(BUTTON_COLOR);
+                        }
+                    }
+                });
+
+                buttons[i][j].addActionListener(e -> handleMove(row, col));
+                boardPanel.add(buttons[i][j]);
+            }
+        }
+    }
+
+    private void showGameBoard(int size) {
+        buildBoard(size);
+        boardPanel.setVisible(true);
         revalidate();
         repaint();
     }
@@ -406,18 +776,119 @@ public class MorpionClientGUI extends JFrame {
     private void shutdown() {
         executor.submit(() -> {
             try {
+                String watched = watchedRoomId;
+                if (game != null && watched != null) {
+                    game.unwatchRoom(watched, playerName);
+                }
                 if (game != null && currentRoomId != null && playerName != null) {
-                    game.disconnectPlayer(playerName);
+                    if (callbacksActive) {
+                        game.unregisterListener(currentRoomId, playerName);
+                    }
+                    game.disconnectPlayer(currentRoomId, playerName);
+                } else if (game != null && playerName != null) {
+                    game.cancelQuickMatch(playerName); // in case we are still queued
                 }
             } catch (RemoteException e) {
                 e.printStackTrace();
             } finally {
+                if (roomListener != null) {
+                    try {
+                        UnicastRemoteObject.unexportObject(roomListener, true);
+                    } catch (java.rmi.NoSuchObjectException ignored) {
+                    }
+                }
+                if (lobbyListener != null) {
+                    try {
+                        UnicastRemoteObject.unexportObject(lobbyListener, true);
+                    } catch (java.rmi.NoSuchObjectException ignored) {
+                    }
+                }
+                if (spectatorListener != null) {
+                    try {
+                        UnicastRemoteObject.unexportObject(spectatorListener, true);
+                    } catch (java.rmi.NoSuchObjectException ignored) {
+                    }
+                }
+                if (game instanceof BinaryMorpionClient) {
+                    try {
+                        ((BinaryMorpionClient) game).close();
+                    } catch (java.io.IOException ignored) {
+                    }
+                }
                 executor.shutdown();
                 System.exit(0);
             }
         });
     }
 
+    /**
+     * Receives events pushed by the server. Calls arrive on RMI threads, so all
+     * UI work is handed over to the EDT.
+     */
+    private class RoomEventListener implements GameListener {
+        @Override
+        public void onOpponentJoined(String roomId, String opponentName) {
+            SwingUtilities.invokeLater(() -> updateStatus(opponentName + " joined - game on!"));
+            wakeGameLoop();
+        }
+
+        @Override
+        public void onOpponentLeft(String roomId, String opponentName) {
+            if (!opponentName.equals(playerName)) {
+                SwingUtilities.invokeLater(() -> updateStatus(opponentName + " left the room"));
+            }
+        }
+
+        @Override
+        public void onMove(String roomId, int row, int col, String symbol, String nextTurn) {
+            SwingUtilities.invokeLater(() -> {
+                buttons[row][col].setText(symbol);
+                boolean myTurn = playerSymbol.equals(nextTurn);
+                for (JButton[] buttonRow : buttons) {
+                    for (JButton btn : buttonRow) {
+                        btn.setEnabled(myTurn && btn.getText().isEmpty());
+                    }
+                }
+                if (nextTurn != null) {
+                    updateStatus(myTurn ? "Your turn (" + playerSymbol + ")" : "Waiting for opponent...");
+                }
+            });
+        }
+
+        @Override
+        public void onGameOver(String roomId, String winner) {
+            pushedWinner = winner;
+            wakeGameLoop();
+        }
+
+        @Override
+        public void onGameReset(String roomId) {
+            SwingUtilities.invokeLater(MorpionClientGUI.this::resetUI);
+            wakeGameLoop();
+        }
+    }
+
+    /** Receives lobby changes pushed by the server while the room list is shown. */
+    private class LobbyEventListener implements LobbyListener {
+        @Override
+        public void onLobbyUpdate(LobbyUpdate update) {
+            SwingUtilities.invokeLater(() -> {
+                DefaultListModel<String> model = lobbyModel;
+                if (model != null) {
+                    applyLobbyUpdate(model, update);
+                }
+            });
+        }
+    }
+
+    private class SpectatorEventListener implements SpectatorListener {
+        @Override
+        public void onRoomUpdate(RoomBroadcast update) {
+            RoomSnapshot snapshot = update.getSnapshot();
+            SwingUtilities.invokeLater(() -> renderSpectated(snapshot));
+        }
+    }
+
     public static void main(String[] args) {
         SwingUtilities.invokeLater(() -> new MorpionClientGUI().setVisible(true));
     }
@@ -0,0 +1,497 @@
+package client;
+
+import shared.GameListener;
+import shared.LeaderboardPage;
+import shared.LobbyListener;
+import shared.LobbyPage;
+import shared.LobbyUpdate;
+import shared.MatchOptions;
+import shared.MatchResult;
+import shared.MatchmakingStats;
+import shared.MorpionInterface;
+import shared.PlayerStats;
+import shared.RoomSnapshot;
+import shared.ShardDirectoryInterface;
+import shared.ShardMap;
+import shared.SpectatorListener;
+import java.rmi.NotBoundException;
+import java.rmi.RemoteException;
+import java.rmi.registry.LocateRegistry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * MorpionInterface over a sharded deployment. The shard map is fetched from
+ * the directory once; after that every room call goes straight to the node
+ * owning the room id. When a node answers as if it doesn't have the room, the
+ * room may have moved: the client fetches the map again and retries, waiting
+ * a little if the map hasn't changed, since a room is briefly in transit
+ * while it is handed over.
+ *
+ * Lobby listings are merged from every node. Lobby notifications would come
+ * from each node with its own versions, so subscribeLobby fails and
+ * getLobbyChanges always asks for a resync; callers fall back to listRooms.
+ * Ratings are kept by the node that hosted each game, and are read from the
+ * first node only.
+ */
+public class ShardedMorpionClient implements MorpionInterface {
+    private static final int MAX_ATTEMPTS = 4;
+    private static final long RETRY_DELAY_MS = 25; // doubled on every attempt with an unchanged map
+    private static final String DEFAULT_ROOM_ID = "default"; // as on the server
+
+    private final ShardDirectoryInterface directory;
+    private final Map<String, MorpionInterface> nodes = new ConcurrentHashMap<>(); // by endpoint
+    private final AtomicInteger nextNode = new AtomicInteger();
+    private volatile ShardMap map;
+
+    @FunctionalInterface
+    private interface Call<T> {
+        T on(MorpionInterface node) throws RemoteException;
+    }
+
+    @FunctionalInterface
+    private interface Miss<T> {
+        boolean test(MorpionInterface node, T result) throws RemoteException;
+    }
+
+    /**
+     * @param host Host of the directory's registry
+     * @param port Port of the directory's registry
+     */
+    public ShardedMorpionClient(String host, int port) throws RemoteException, NotBoundException {
+        directory = (ShardDirectoryInterface) LocateRegistry.getRegistry(host, port)
+                .lookup(ShardDirectoryInterface.NAME);
+        map = directory.getShardMap();
+    }
+
+    /** @return The shard map this client routes by */
+    public ShardMap getShardMap() {
+        return map;
+    }
+
+    /** @return The directory's current map, now also used for routing */
+    public ShardMap reloadShardMap() throws RemoteException {
+        refreshMap();
+        return map;
+    }
+
+    /** @return Id of the node this client believes holds the room */
+    public String nodeOf(String roomId) {
+        return map.ownerOf(roomId);
+    }
+
+    /**
+     * @param nodeId A node of the current map
+     * @return Its MorpionInterface, for calls that must reach that node
+     */
+    public MorpionInterface getNode(String nodeId) throws RemoteException {
+        String endpoint = map.getEndpoint(nodeId);
+        if (endpoint == null) {
+            throw new RemoteException("Node " + nodeId + " is not in shard map v" + map.getVersion());
+        }
+        MorpionInterface node = nodes.get(endpoint);
+        if (node == null) {
+            String[] hostPort = endpoint.split(":");
+            try {
+                node = (MorpionInterface) LocateRegistry.getRegistry(hostPort[0], Integer.parseInt(hostPort[1]))
+                        .lookup("MorpionGame");
+            } catch (NotBoundException e) {
+                throw new RemoteException("No game server at " + endpoint, e);
+            }
+            nodes.put(endpoint, node);
+        }
+        return node;
+    }
+
+    /** @return true if the directory had a newer map */
+    private boolean refreshMap() throws RemoteException {
+        ShardMap latest = directory.getShardMap();
+        if (latest.getVersion() <= map.getVersion()) {
+            return false;
+        }
+        map = latest;
+        nodes.keySet().retainAll(endpoints(latest));
+        return true;
+    }
+
+    private static List<String> endpoints(ShardMap shards) {
+        List<String> endpoints = new ArrayList<>();
+        for (String nodeId : shards.getNodes()) {
+            endpoints.add(shards.getEndpoint(nodeId));
+        }
+        return endpoints;
+    }
+
+    private List<MorpionInterface> allNodes() throws RemoteException {
+        ShardMap current = map;
+        if (current.isEmpty() && !refreshMap()) {
+            throw new RemoteException("No game servers have joined the directory");
+        }
+        List<MorpionInterface> all = new ArrayList<>();
+        for (String nodeId : map.getNodes()) {
+            all.add(getNode(nodeId));
+        }
+        return all;
+    }
+
+    /**
+     * Calls the node owning the key, following the room if it has moved
+     *
+     * @param missed Tells whether the result means the room isn't on that node
+     */
+    private <T> T route(String key, Call<T> call, Miss<T> missed) throws RemoteException {
+        RemoteException failure = null;
+        T result = null;
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            ShardMap seen = map;
+            String nodeId = seen.ownerOf(key);
+            if (nodeId == null) {
+                if (refreshMap()) {
+                    continue;
+                }
+                throw new RemoteException("No game servers have joined the directory");
+            }
+            try {
+                MorpionInterface node = getNode(nodeId);
+                result = call.on(node);
+                failure = null;
+                if (!missed.test(node, result)) {
+                    return result;
+                }
+            } catch (RemoteException e) {
+                failure = e;
+                nodes.remove(seen.getEndpoint(nodeId)); // look the node up again next time
+            }
+            if (attempt + 1 < MAX_ATTEMPTS && !refreshMap()) {
+                try {
+                    Thread.sleep(RETRY_DELAY_MS << attempt);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return result;
+    }
+
+    private <T> T route(String key, Call<T> call) throws RemoteException {
+        return route(key, call, (node, result) -> false);
+    }
+
+    // A result that a missing room also gives is only a miss if the node confirms it has no such room
+    private static boolean absent(MorpionInterface node, String roomId) throws RemoteException {
+        return node.getRoomStatus(roomId) == RoomStatus.ERROR;
+    }
+
+    /* Room Management Methods */
+
+    @Override
+    public String createRoom(String playerName) throws RemoteException {
+        return createRoom(playerName, 3, 3);
+    }
+
+    // Any node will do: it picks an id that hashes to itself
+    @Override
+    public String createRoom(String playerName, int boardSize, int winLength) throws RemoteException {
+        List<MorpionInterface> all = allNodes();
+        RemoteException failure = null;
+        for (int i = 0; i < all.size(); i++) {
+            try {
+                return all.get(Math.floorMod(nextNode.getAndIncrement(), all.size()))
+                        .createRoom(playerName, boardSize, winLength);
+            } catch (RemoteException e) {
+                failure = e;
+            }
+        }
+        throw failure;
+    }
+
+    @Override
+    public RegistrationStatus joinRoom(String roomId, String playerName) throws RemoteException {
+        return route(roomId, node -> node.joinRoom(roomId, playerName),
+                (node, status) -> status == RegistrationStatus.ERROR && absent(node, roomId));
+    }
+
+    @Override
+    public RegistrationStatus addBot(String roomId, BotDifficulty difficulty) throws RemoteException {
+        return route(roomId, node -> node.addBot(roomId, difficulty),
+                (node, status) -> status == RegistrationStatus.ERROR && absent(node, roomId));
+    }
+
+    @Override
+    public List<String> listAvailableRooms() throws RemoteException {
+        List<String> rooms = new ArrayList<>();
+        int pageSize = 0;
+        for (MorpionInterface node : allNodes()) {
+            List<String> page = node.listAvailableRooms();
+            rooms.addAll(page);
+            pageSize = Math.max(pageSize, page.size());
+        }
+        Collections.sort(rooms); // descriptions start with the room id
+        return new ArrayList<>(rooms.subList(0, Math.min(rooms.size(), pageSize)));
+    }
+
+    @Override
+    public LobbyPage listRooms(String afterRoomId, int limit) throws RemoteException {
+        List<String> rooms = new ArrayList<>();
+        long version = 0;
+        int total = 0;
+        boolean more = false;
+        for (MorpionInterface node : allNodes()) {
+            LobbyPage page = node.listRooms(afterRoomId, limit);
+            rooms.addAll(page.getRooms());
+            version += page.getVersion();
+            total += page.getTotalRooms();
+            more |= page.getNextCursor() != null;
+        }
+        Collections.sort(rooms);
+        if (rooms.size() > limit) {
+            rooms = rooms.subList(0, limit);
+            more = true;
+        }
+        String next = more && !rooms.isEmpty() ? rooms.get(rooms.size() - 1).split(" ", 2)[0] : null;
+        return new LobbyPage(version, total, next, rooms);
+    }
+
+    @Override
+    public LobbyPage subscribeLobby(String playerName, LobbyListener listener) throws RemoteException {
+        throw new RemoteException("Lobby notifications are not merged across shards");
+    }
+
+    @Override
+    public void unsubscribeLobby(String playerName) throws RemoteException {
+        // Never subscribed
+    }
+
+    @Override
+    public LobbyUpdate getLobbyChanges(long sinceVersion) throws RemoteException {
+        return new LobbyUpdate(sinceVersion, sinceVersion, 0, true, Collections.emptyList());
+    }
+
+    /* Matchmaking and ratings */
+
+    // Players after the same board meet on the same node, which also hosts their room
+    @Override
+    public MatchResult quickMatch(String playerName, MatchOptions options) throws RemoteException {
+        String key = options == null ? "match"
+                : "match:" + options.getBoardSize() + "x" + options.getWinLength();
+        return route(key, node -> node.quickMatch(playerName, options));
+    }
+
+    @Override
+    public void cancelQuickMatch(String playerName) throws RemoteException {
+        for (MorpionInterface node : allNodes()) {
+            node.cancelQuickMatch(playerName);
+        }
+    }
+
+    @Override
+    public MatchmakingStats getMatchmakingStats() throws RemoteException {
+        int queued = 0;
+        long matches = 0;
+        double totalWaitMs = 0;
+        long maxWaitMs = 0;
+        for (MorpionInterface node : allNodes()) {
+            MatchmakingStats stats = node.getMatchmakingStats();
+            queued += stats.getQueueDepth();
+            matches += stats.getMatchesMade();
+            totalWaitMs += stats.getAverageWaitMs() * stats.getMatchesMade();
+            maxWaitMs = Math.max(maxWaitMs, stats.getMaxWaitMs());
+        }
+        return new MatchmakingStats(queued, matches, matches > 0 ? totalWaitMs / matches : 0, maxWaitMs);
+    }
+
+    private MorpionInterface ratingsNode() throws RemoteException {
+        return allNodes().get(0);
+    }
+
+    @Override
+    public PlayerStats getPlayerStats(String playerName) throws RemoteException {
+        return ratingsNode().getPlayerStats(playerName);
+    }
+
+    @Override
+    public List<PlayerStats> getLeaderboard(int limit) throws RemoteException {
+        return ratingsNode().getLeaderboard(limit);
+    }
+
+    @Override
+    public int getRank(String playerName) throws RemoteException {
+        return ratingsNode().getRank(playerName);
+    }
+
+    @Override
+    public LeaderboardPage getLeaderboardAround(String playerName, int radius) throws RemoteException {
+        return ratingsNode().getLeaderboardAround(playerName, radius);
+    }
+
+    /* Spectators */
+
+    @Override
+    public RoomSnapshot watchRoom(String roomId, String spectatorName, SpectatorListener listener)
+            throws RemoteException {
+        return route(roomId, node -> node.watchRoom(roomId, spectatorName, listener),
+                (node, snapshot) -> snapshot == null && absent(node, roomId));
+    }
+
+    @Override
+    public void unwatchRoom(String roomId, String spectatorName) throws RemoteException {
+        route(roomId, node -> {
+            node.unwatchRoom(roomId, spectatorName);
+            return null;
+        });
+    }
+
+    /* Game Operations - Room-scoped */
+
+    @Override
+    public RoomStatus getRoomStatus(String roomId) throws RemoteException {
+        return route(roomId, node -> node.getRoomStatus(roomId), (node, status) -> status == RoomStatus.ERROR);
+    }
+
+    @Override
+    public MoveStatus makeMove(String roomId, int row, int col, String playerName) throws RemoteException {
+        return route(roomId, node -> node.makeMove(roomId, row, col, playerName),
+                (node, status) -> status == MoveStatus.GAME_NOT_READY && absent(node, roomId));
+    }
+
+    @Override
+    public String getCurrentBoard(String roomId) throws RemoteException {
+        return route(roomId, node -> node.getCurrentBoard(roomId),
+                (node, board) -> board.isEmpty() && absent(node, roomId));
+    }
+
+    // No result of these tells a missing room apart, so they are not followed
+    @Override
+    public boolean isGameOver(String roomId) throws RemoteException {
+        return route(roomId, node -> node.isGameOver(roomId));
+    }
+
+    @Override
+    public String getWinner(String roomId) throws RemoteException {
+        return route(roomId, node -> node.getWinner(roomId));
+    }
+
+    @Override
+    public boolean isPlayerTurn(String roomId, String playerName) throws RemoteException {
+        return route(roomId, node -> node.isPlayerTurn(roomId, playerName));
+    }
+
+    @Override
+    public boolean isGameReady(String roomId) throws RemoteException {
+        return route(roomId, node -> node.isGameReady(roomId));
+    }
+
+    @Override
+    public void resetGame(String roomId) throws RemoteException {
+        route(roomId, node -> {
+            node.resetGame(roomId);
+            return null;
+        });
+    }
+
+    @Override
+    public void disconnectPlayer(String roomId, String playerName) throws RemoteException {
+        route(roomId, node -> {
+            node.disconnectPlayer(roomId, playerName);
+            return null;
+        });
+    }
+
+    @Override
+    public String getPlayerSymbol(String roomId, String playerName) throws RemoteException {
+        return route(roomId, node -> node.getPlayerSymbol(roomId, playerName),
+                (node, symbol) -> symbol == null && absent(node, roomId));
+    }
+
+    @Override
+    public RoomSnapshot getRoomSnapshot(String roomId, String playerName) throws RemoteException {
+        return route(roomId, node -> node.getRoomSnapshot(roomId, playerName),
+                (node, snapshot) -> snapshot == null);
+    }
+
+    @Override
+    public RoomSnapshot waitForChange(String roomId, long sinceVersion, long timeoutMs) throws RemoteException {
+        return route(roomId, node -> node.waitForChange(roomId, sinceVersion, timeoutMs),
+                (node, snapshot) -> snapshot == null);
+    }
+
+    @Override
+    public boolean registerListener(String roomId, String playerName, GameListener listener) throws RemoteException {
+        return route(roomId, node -> node.registerListener(roomId, playerName, listener),
+                (node, registered) -> !registered && absent(node, roomId));
+    }
+
+    @Override
+    public void unregisterListener(String roomId, String playerName) throws RemoteException {
+        route(roomId, node -> {
+            node.unregisterListener(roomId, playerName);
+            return null;
+        });
+    }
+
+    /* Game Operations - Non-room-scoped (default room) */
+
+    @Override
+    public RegistrationStatus registerPlayer(String playerName) throws RemoteException {
+        return route(DEFAULT_ROOM_ID, node -> node.registerPlayer(playerName));
+    }
+
+    @Override
+    public MoveStatus makeMove(int row, int col, String playerName) throws RemoteException {
+        return route(DEFAULT_ROOM_ID, node -> node.makeMove(row, col, playerName));
+    }
+
+    @Override
+    public String getCurrentBoard() throws RemoteException {
+        return route(DEFAULT_ROOM_ID, MorpionInterface::getCurrentBoard);
+    }
+
+    @Override
+    public boolean isGameOver() throws RemoteException {
+        return route(DEFAULT_ROOM_ID, MorpionInterface::isGameOver);
+    }
+
+    @Override
+    public String getWinner() throws RemoteException {
+        return route(DEFAULT_ROOM_ID, MorpionInterface::getWinner);
+    }
+
+    @Override
+    public boolean isPlayerTurn(String playerName) throws RemoteException {
+        return route(DEFAULT_ROOM_ID, node -> node.isPlayerTurn(playerName));
+    }
+
+    @Override
+    public boolean isGameReady() throws RemoteException {
+        return route(DEFAULT_ROOM_ID, MorpionInterface::isGameReady);
+    }
+
+    @Override
+    public void resetGame() throws RemoteException {
+        route(DEFAULT_ROOM_ID, node -> {
+            node.resetGame();
+            return null;
+        });
+    }
+
+    @Override
+    public void disconnectPlayer(String playerName) throws RemoteException {
+        route(DEFAULT_ROOM_ID, node -> {
+            node.disconnectPlayer(playerName);
+            return null;
+        });
+    }
+
+    @Override
+    public String getPlayerSymbol(String playerName) throws RemoteException {
+        return route(DEFAULT_ROOM_ID, node -> node.getPlayerSymbol(playerName));
+    }
+}
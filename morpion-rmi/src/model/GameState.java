@@ -1,29 +1,91 @@
 package model;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
 public class GameState {
-    private String[][] board;
-    private String currentPlayer;
-    private boolean gameOver;
-    private String winner;
+    // Player codes, also used as cell values
+    private static final byte NONE = 0;
+    private static final byte PLAYER_X = 1;
+    private static final byte PLAYER_O = 2;
+    private static final byte DRAW = 3;
+    private static final String[] SYMBOLS = { null, "X", "O", "DRAW" };
+
+    public static final int CLASSIC_SIZE = 3;
+    public static final int MIN_SIZE = 3;
+    public static final int MAX_SIZE = 19;
+
+    // Classic 3x3 fast path: two 9-bit masks, bit (row * 3 + col)
+    private static final int FULL_BOARD = 0x1FF;
+    private static final int[] WIN_MASKS = {
+            0b000_000_111, 0b000_111_000, 0b111_000_000, // rows
+            0b001_001_001, 0b010_010_010, 0b100_100_100, // columns
+            0b100_010_001, 0b001_010_100 // diagonals
+    };
+    // WINNING[mask] is true if the mask contains a full line
+    private static final boolean[] WINNING = new boolean[FULL_BOARD + 1];
+
+    static {
+        for (int mask = 0; mask <= FULL_BOARD; mask++) {
+            for (int line : WIN_MASKS) {
+                if ((mask & line) == line) {
+                    WINNING[mask] = true;
+                    break;
+                }
+            }
+        }
+    }
+
+    // Row/column steps of the four line directions: horizontal, vertical, both diagonals
+    private static final int[][] DIRECTIONS = { { 0, 1 }, { 1, 0 }, { 1, 1 }, { 1, -1 } };
+
+    private final int size;
+    private final int winLength;
+    private final boolean classic;
+    private final byte[] cells; // row-major
+    private int xMask;
+    private int oMask;
+    private int moveCount;
+    private byte currentPlayer;
+    private byte winner;
     private String playerX;
     private String playerO;
     private long lastActivityTime;
     private static final long TIMEOUT_MS = 30000; // 30 seconds timeout
 
     public GameState() {
+        this(CLASSIC_SIZE, CLASSIC_SIZE);
+    }
+
+    /**
+     * @param size      Number of rows and columns
+     * @param winLength Stones in a row needed to win
+     * @throws IllegalArgumentException If the configuration is out of range
+     */
+    public GameState(int size, int winLength) {
+        if (!isValidConfig(size, winLength)) {
+            throw new IllegalArgumentException("Invalid board " + size + "x" + size + ", " + winLength + " in a row");
+        }
+        this.size = size;
+        this.winLength = winLength;
+        this.classic = size == CLASSIC_SIZE && winLength == CLASSIC_SIZE;
+        this.cells = new byte[size * size];
         resetGame();
     }
 
+    public static boolean isValidConfig(int size, int winLength) {
+        return size >= MIN_SIZE && size <= MAX_SIZE && winLength >= 3 && winLength <= size;
+    }
+
     public synchronized void resetGame() {
-        board = new String[3][3];
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
-                board[i][j] = " ";
-            }
-        }
-        currentPlayer = "X"; // Player X always starts
-        gameOver = false;
-        winner = null;
+        Arrays.fill(cells, NONE);
+        xMask = 0;
+        oMask = 0;
+        moveCount = 0;
+        currentPlayer = PLAYER_X; // Player X always starts
+        winner = NONE;
         updateActivity();
     }
 
@@ -54,7 +116,7 @@ public class GameState {
 
     public synchronized boolean makeMove(int row, int col, String playerName) {
         // Validate game state
-        if (gameOver)
+        if (winner != NONE)
             return false;
         if (!isGameReady())
             return false;
@@ -68,16 +130,18 @@ public class GameState {
             return false;
 
         // Validate move coordinates
-        if (row < 0 || row > 2 || col < 0 || col > 2)
+        if (row < 0 || row >= size || col < 0 || col >= size)
             return false;
-        if (!board[row][col].equals(" "))
+        int index = row * size + col;
+        if (cells[index] != NONE)
             return false;
 
         // Execute move
-        board[row][col] = currentPlayer;
-        checkGameOver();
-        if (!gameOver) {
-            currentPlayer = currentPlayer.equals("X") ? "O" : "X";
+        cells[index] = currentPlayer;
+        moveCount++;
+        checkGameOver(row, col);
+        if (winner == NONE) {
+            currentPlayer = (byte) (PLAYER_X + PLAYER_O - currentPlayer);
         }
         updateActivity();
         return true;
@@ -87,58 +151,52 @@ public class GameState {
         return playerName.equals(playerX) || playerName.equals(playerO);
     }
 
-    private void checkGameOver() {
-        // Check rows
-        for (int i = 0; i < 3; i++) {
-            if (checkLine(board[i][0], board[i][1], board[i][2])) {
-                gameOver = true;
-                winner = board[i][0];
-                return;
-            }
-        }
-
-        // Check columns
-        for (int i = 0; i < 3; i++) {
-            if (checkLine(board[0][i], board[1][i], board[2][i])) {
-                gameOver = true;
-                winner = board[0][i];
-                return;
+    // Only lines through the stone just placed can have been completed
+    private void checkGameOver(int row, int col) {
+        boolean won;
+        if (classic) {
+            int bit = 1 << (row * 3 + col);
+            if (currentPlayer == PLAYER_X) {
+                xMask |= bit;
+                won = WINNING[xMask];
+            } else {
+                oMask |= bit;
+                won = WINNING[oMask];
             }
+        } else {
+            won = completesLine(row, col);
         }
 
-        // Check diagonals
-        if (checkLine(board[0][0], board[1][1], board[2][2])) {
-            gameOver = true;
-            winner = board[0][0];
-            return;
-        }
-        if (checkLine(board[0][2], board[1][1], board[2][0])) {
-            gameOver = true;
-            winner = board[0][2];
-            return;
+        if (won) {
+            winner = currentPlayer;
+        } else if (moveCount == cells.length) {
+            winner = DRAW;
         }
+    }
 
-        // Check for draw
-        boolean isDraw = true;
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
-                if (board[i][j].equals(" ")) {
-                    isDraw = false;
-                    break;
-                }
+    private boolean completesLine(int row, int col) {
+        for (int[] direction : DIRECTIONS) {
+            int count = 1 + countStones(row, col, direction[0], direction[1])
+                    + countStones(row, col, -direction[0], -direction[1]);
+            if (count >= winLength) {
+                return true;
             }
-            if (!isDraw)
-                break;
-        }
-
-        if (isDraw) {
-            gameOver = true;
-            winner = "DRAW";
         }
+        return false;
     }
 
-    private boolean checkLine(String a, String b, String c) {
-        return !a.equals(" ") && a.equals(b) && a.equals(c);
+    // Consecutive stones of the current player from (row, col), not counting it
+    private int countStones(int row, int col, int dRow, int dCol) {
+        int count = 0;
+        int r = row + dRow;
+        int c = col + dCol;
+        while (count < winLength && r >= 0 && r < size && c >= 0 && c < size
+                && cells[r * size + c] == currentPlayer) {
+            count++;
+            r += dRow;
+            c += dCol;
+        }
+        return count;
     }
 
     private void updateActivity() {
@@ -150,8 +208,8 @@ public class GameState {
     }
 
     public synchronized boolean isPlayerTurn(String playerName) {
-        return (currentPlayer.equals("X") && playerName.equals(playerX)) ||
-                (currentPlayer.equals("O") && playerName.equals(playerO));
+        return (currentPlayer == PLAYER_X && playerName.equals(playerX)) ||
+                (currentPlayer == PLAYER_O && playerName.equals(playerO));
     }
 
     public synchronized boolean isGameReady() {
@@ -159,24 +217,122 @@ public class GameState {
     }
 
     public synchronized boolean isGameOver() {
-        return gameOver;
+        return winner != NONE;
     }
 
     public synchronized String getWinner() {
-        return winner;
+        return SYMBOLS[winner];
+    }
+
+    public int getBoardSize() {
+        return size;
+    }
+
+    public int getWinLength() {
+        return winLength;
     }
 
     public synchronized String getCurrentBoard() {
         StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < 3; i++) {
-            sb.append(" ").append(board[i][0]).append(" | ").append(board[i][1]).append(" | ").append(board[i][2])
-                    .append(" \n");
-            if (i < 2)
-                sb.append("-----------\n");
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                sb.append(j == 0 ? " " : " | ").append(cellAt(i * size + j));
+            }
+            sb.append(" \n");
+            if (i < size - 1)
+                sb.append("-".repeat(size * 4 - 1)).append('\n');
         }
         return sb.toString();
     }
 
+    private char cellAt(int index) {
+        switch (cells[index]) {
+            case PLAYER_X:
+                return 'X';
+            case PLAYER_O:
+                return 'O';
+            default:
+                return ' ';
+        }
+    }
+
+    /**
+     * @return Row-major copy of the board, 'X', 'O' or ' ' per cell
+     */
+    public synchronized char[] getCells() {
+        char[] result = new char[cells.length];
+        for (int i = 0; i < cells.length; i++) {
+            result[i] = cellAt(i);
+        }
+        return result;
+    }
+
+    /**
+     * @return "X" or "O", or null once the game is over
+     */
+    public synchronized String getCurrentPlayer() {
+        return winner != NONE ? null : SYMBOLS[currentPlayer];
+    }
+
+    /**
+     * Writes the full state in a compact binary form: the board is packed four
+     * cells per byte.
+     */
+    public synchronized void writeTo(DataOutput out) throws IOException {
+        out.writeByte(size);
+        out.writeByte(winLength);
+        for (int i = 0; i < cells.length; i += 4) {
+            int packed = 0;
+            for (int j = 0; j < 4 && i + j < cells.length; j++) {
+                packed |= cells[i + j] << (j * 2);
+            }
+            out.writeByte(packed);
+        }
+        out.writeByte(currentPlayer);
+        out.writeByte(winner);
+        writeName(out, playerX);
+        writeName(out, playerO);
+    }
+
+    /** Reads a state written by writeTo. */
+    public static GameState readFrom(DataInput in) throws IOException {
+        GameState state = new GameState(in.readUnsignedByte(), in.readUnsignedByte());
+        byte[] cells = state.cells;
+        for (int i = 0; i < cells.length; i += 4) {
+            int packed = in.readUnsignedByte();
+            for (int j = 0; j < 4 && i + j < cells.length; j++) {
+                byte cell = (byte) ((packed >> (j * 2)) & 0x3);
+                cells[i + j] = cell;
+                if (cell != NONE) {
+                    state.moveCount++;
+                    if (state.classic) {
+                        if (cell == PLAYER_X) {
+                            state.xMask |= 1 << (i + j);
+                        } else {
+                            state.oMask |= 1 << (i + j);
+                        }
+                    }
+                }
+            }
+        }
+        state.currentPlayer = in.readByte();
+        state.winner = in.readByte();
+        state.playerX = readName(in);
+        state.playerO = readName(in);
+        return state;
+    }
+
+    private static void writeName(DataOutput out, String name) throws IOException {
+        out.writeBoolean(name != null);
+        if (name != null) {
+            out.writeUTF(name);
+        }
+    }
+
+    private static String readName(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
     public synchronized String getPlayerSymbol(String playerName) {
         if (playerName.equals(playerX))
             return "X";
@@ -0,0 +1,194 @@
+package model;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Solved classic 3x3 game: for every position, the best move for the side to
+ * move and the outcome under perfect play. Positions are indexed by their
+ * base-3 encoding (cell i contributes 0, 1 for X or 2 for O times 3^i), so a
+ * lookup is one array read. Unreachable indices stay zero.
+ */
+public final class PerfectPlayTable {
+    public static final int POSITIONS = 19683; // 3^9
+    public static final String RESOURCE = "/model/perfect3x3.bin";
+
+    // Outcomes for the side to move
+    public static final int UNKNOWN = 0;
+    public static final int WIN = 1;
+    public static final int DRAW = 2;
+    public static final int LOSS = 3;
+
+    private static final int MAGIC = 0x4D505431; // "MPT1"
+    private static final int NO_MOVE = 0xF;
+    private static final int[] WIN_LINES = {
+            0b000_000_111, 0b000_111_000, 0b111_000_000,
+            0b001_001_001, 0b010_010_010, 0b100_100_100,
+            0b100_010_001, 0b001_010_100
+    };
+
+    // Low 4 bits: best move (0-8, 15 if none); bits 4-5: outcome
+    private final byte[] entries;
+
+    private PerfectPlayTable(byte[] entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Loads the table shipped as a classpath resource, solving it in memory if
+     * the resource is missing.
+     */
+    public static PerfectPlayTable load() {
+        try {
+            PerfectPlayTable shipped = loadResource();
+            if (shipped != null) {
+                return shipped;
+            }
+        } catch (IOException e) {
+            System.err.println("[MODEL] Could not read " + RESOURCE + ": " + e.getMessage());
+        }
+        return generate();
+    }
+
+    /** @return The table shipped as a classpath resource, or null if there is none */
+    public static PerfectPlayTable loadResource() throws IOException {
+        try (InputStream in = PerfectPlayTable.class.getResourceAsStream(RESOURCE)) {
+            return in != null ? readFrom(in) : null;
+        }
+    }
+
+    /** Solves every reachable position with a memoised full minimax. */
+    public static PerfectPlayTable generate() {
+        byte[] entries = new byte[POSITIONS];
+        int[] scores = new int[POSITIONS];
+        boolean[] solved = new boolean[POSITIONS];
+        solve(new int[9], 0, 1, entries, scores, solved);
+        return new PerfectPlayTable(entries);
+    }
+
+    /**
+     * @return Score for the side to move: positive wins (sooner is larger),
+     *         zero draws, negative loses
+     */
+    private static int solve(int[] cells, int index, int player, byte[] entries, int[] scores, boolean[] solved) {
+        if (solved[index]) {
+            return scores[index];
+        }
+        int opponent = 3 - player;
+        int empty = 0;
+        int score;
+        int bestMove = NO_MOVE;
+        if (hasLine(cells, opponent)) {
+            score = -10; // the previous move won
+        } else {
+            for (int cell : cells) {
+                if (cell == 0) {
+                    empty++;
+                }
+            }
+            if (empty == 0) {
+                score = 0;
+            } else {
+                score = Integer.MIN_VALUE;
+                for (int i = 0; i < 9; i++) {
+                    if (cells[i] != 0) {
+                        continue;
+                    }
+                    cells[i] = player;
+                    int child = solve(cells, index + player * pow3(i), opponent, entries, scores, solved);
+                    cells[i] = 0;
+                    // Shrink the magnitude by one per ply so faster wins and slower losses rank higher
+                    int value = child == 0 ? 0 : child > 0 ? -(child - 1) : -(child + 1);
+                    if (value > score) {
+                        score = value;
+                        bestMove = i;
+                    }
+                }
+            }
+        }
+        int outcome = score > 0 ? WIN : score < 0 ? LOSS : DRAW;
+        entries[index] = (byte) ((outcome << 4) | bestMove);
+        scores[index] = score;
+        solved[index] = true;
+        return score;
+    }
+
+    private static boolean hasLine(int[] cells, int player) {
+        int mask = 0;
+        for (int i = 0; i < 9; i++) {
+            if (cells[i] == player) {
+                mask |= 1 << i;
+            }
+        }
+        for (int line : WIN_LINES) {
+            if ((mask & line) == line) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int pow3(int exponent) {
+        int result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= 3;
+        }
+        return result;
+    }
+
+    /**
+     * @param cells Row-major board, 'X', 'O' or ' ' per cell
+     * @return Position index in [0, POSITIONS)
+     */
+    public static int index(char[] cells) {
+        int index = 0;
+        for (int i = 8; i >= 0; i--) {
+            index = index * 3 + (cells[i] == 'X' ? 1 : cells[i] == 'O' ? 2 : 0);
+        }
+        return index;
+    }
+
+    /** @return Best cell (row * 3 + col) for the side to move, or -1 if none */
+    public int bestMove(char[] cells) {
+        int entry = entries[index(cells)];
+        int move = entry & 0xF;
+        return entry == 0 || move == NO_MOVE ? -1 : move;
+    }
+
+    /** @return WIN, DRAW or LOSS for the side to move, UNKNOWN if unreachable */
+    public int outcome(char[] cells) {
+        return (entries[index(cells)] >> 4) & 0x3;
+    }
+
+    /** @return Number of positions reachable from the empty board */
+    public int getPositionCount() {
+        int count = 0;
+        for (byte entry : entries) {
+            if (entry != 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(POSITIONS);
+        data.write(entries);
+        data.flush();
+    }
+
+    public static PerfectPlayTable readFrom(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC || data.readInt() != POSITIONS) {
+            throw new IOException("Not a 3x3 perfect-play table");
+        }
+        byte[] entries = new byte[POSITIONS];
+        data.readFully(entries);
+        return new PerfectPlayTable(entries);
+    }
+}
@@ -0,0 +1,136 @@
+package model;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Builds the 3x3 perfect-play table resource, or cross-checks the shipped one
+ * against an independent full minimax played through GameState itself.
+ *
+ * Usage: java -cp bin model.PerfectPlayTableGenerator [output file]
+ *        java -cp bin model.PerfectPlayTableGenerator --verify
+ */
+public class PerfectPlayTableGenerator {
+    private static final String PLAYER_X = "x";
+    private static final String PLAYER_O = "o";
+
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("--verify")) {
+            System.exit(verifyShipped() == 0 ? 0 : 1);
+        }
+        String output = args.length > 0 ? args[0] : "src/model/perfect3x3.bin";
+
+        long start = System.nanoTime();
+        PerfectPlayTable table = PerfectPlayTable.generate();
+        System.out.printf("[MODEL] Solved %d positions in %.1f ms%n", table.getPositionCount(),
+                (System.nanoTime() - start) / 1e6);
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(output))) {
+            table.writeTo(out);
+        }
+        System.out.println("[MODEL] Wrote " + output);
+    }
+
+    // Checks the table the server loads, read from the classpath; nothing is written
+    private static int verifyShipped() throws IOException {
+        PerfectPlayTable table = PerfectPlayTable.loadResource();
+        if (table == null) {
+            System.out.println("[MODEL] Verification FAILED: " + PerfectPlayTable.RESOURCE + " is not on the classpath");
+            return 1;
+        }
+        int errors = verify(table);
+        System.out.println(errors == 0 ? "[MODEL] Verification of " + PerfectPlayTable.RESOURCE + " passed"
+                : "[MODEL] Verification of " + PerfectPlayTable.RESOURCE + " FAILED: " + errors);
+        return errors;
+    }
+
+    /**
+     * Walks every position reachable through GameState.makeMove and checks the
+     * table's outcome, and that its best move keeps that outcome.
+     *
+     * @return Number of mismatches
+     */
+    static int verify(PerfectPlayTable table) {
+        Map<String, Integer> memo = new HashMap<>();
+        Set<String> seen = new HashSet<>();
+        int[] errors = { 0 };
+        int visited = walk("", table, seen, memo, errors);
+        if (visited != table.getPositionCount()) {
+            System.out.println("[MODEL] Reached " + visited + " positions, table has " + table.getPositionCount());
+            errors[0]++;
+        }
+        return errors[0];
+    }
+
+    // Visits each distinct position once; returns how many were new
+    private static int walk(String moves, PerfectPlayTable table, Set<String> seen, Map<String, Integer> memo,
+            int[] errors) {
+        GameState state = replay(moves);
+        char[] cells = state.getCells();
+        String key = new String(cells);
+        if (!seen.add(key)) {
+            return 0;
+        }
+        int value = minimax(moves, memo);
+        int expected = value > 0 ? PerfectPlayTable.WIN : value < 0 ? PerfectPlayTable.LOSS : PerfectPlayTable.DRAW;
+        if (table.outcome(cells) != expected) {
+            System.out.println("[MODEL] Outcome mismatch at [" + key + "]");
+            errors[0]++;
+        }
+
+        int count = 1;
+        if (!state.isGameOver()) {
+            int best = table.bestMove(cells);
+            if (best < 0 || cells[best] != ' ' || -minimax(moves + best, memo) != value) {
+                System.out.println("[MODEL] Best move " + best + " is not optimal at [" + key + "]");
+                errors[0]++;
+            }
+            for (int i = 0; i < 9; i++) {
+                if (cells[i] == ' ') {
+                    count += walk(moves + i, table, seen, memo, errors);
+                }
+            }
+        }
+        return count;
+    }
+
+    /** Plain minimax through GameState: +1 win, 0 draw, -1 loss for the side to move. */
+    private static int minimax(String moves, Map<String, Integer> memo) {
+        GameState state = replay(moves);
+        String key = new String(state.getCells());
+        Integer cached = memo.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        int value;
+        if (state.isGameOver()) {
+            value = "DRAW".equals(state.getWinner()) ? 0 : -1; // the side to move has lost
+        } else {
+            value = -1;
+            char[] cells = state.getCells();
+            for (int i = 0; i < 9 && value < 1; i++) {
+                if (cells[i] == ' ') {
+                    value = Math.max(value, -minimax(moves + i, memo));
+                }
+            }
+        }
+        memo.put(key, value);
+        return value;
+    }
+
+    private static GameState replay(String moves) {
+        GameState state = new GameState();
+        state.registerPlayer(PLAYER_X);
+        state.registerPlayer(PLAYER_O);
+        for (int i = 0; i < moves.length(); i++) {
+            int cell = moves.charAt(i) - '0';
+            state.makeMove(cell / 3, cell % 3, (i & 1) == 0 ? PLAYER_X : PLAYER_O);
+        }
+        return state;
+    }
+}
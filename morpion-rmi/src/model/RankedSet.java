@@ -0,0 +1,241 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Immutable sorted set with positional access: rank lookups, the k-th element
+ * and range reads all take O(log n).
+ *
+ * It is a treap whose nodes carry their subtree size. Adding or removing an
+ * element copies only the O(log n) nodes on its path and returns a new set
+ * sharing everything else, so a writer can build the next version while any
+ * number of readers keep using the current one without locks.
+ *
+ * Ranks are 1-based: rank 1 is the first element in comparator order.
+ */
+public final class RankedSet<T> {
+    private static final class Node<T> {
+        final T value;
+        final int priority; // heap order keeps the tree balanced in expectation
+        final Node<T> left;
+        final Node<T> right;
+        final int size;
+
+        Node(T value, int priority, Node<T> left, Node<T> right) {
+            this.value = value;
+            this.priority = priority;
+            this.left = left;
+            this.right = right;
+            this.size = 1 + size(left) + size(right);
+        }
+
+        Node<T> with(Node<T> newLeft, Node<T> newRight) {
+            return new Node<>(value, priority, newLeft, newRight);
+        }
+    }
+
+    private final Comparator<? super T> order;
+    private final Node<T> root;
+
+    private RankedSet(Comparator<? super T> order, Node<T> root) {
+        this.order = order;
+        this.root = root;
+    }
+
+    /** @param order Must be consistent with equals: distinct elements never compare equal */
+    public static <T> RankedSet<T> empty(Comparator<? super T> order) {
+        return new RankedSet<>(order, null);
+    }
+
+    /**
+     * Builds a set from distinct elements in O(n log n), much faster than
+     * adding them one by one.
+     */
+    public static <T> RankedSet<T> of(Collection<? extends T> values, Comparator<? super T> order) {
+        List<T> sorted = new ArrayList<>(values);
+        sorted.sort(order);
+        return new RankedSet<>(order, build(sorted, 0, sorted.size(), 0));
+    }
+
+    // Perfectly balanced; priorities fall with depth so later inserts settle below the built nodes
+    private static <T> Node<T> build(List<T> sorted, int from, int to, int depth) {
+        if (from >= to) {
+            return null;
+        }
+        int mid = (from + to) >>> 1;
+        return new Node<>(sorted.get(mid), Integer.MAX_VALUE - depth, build(sorted, from, mid, depth + 1),
+                build(sorted, mid + 1, to, depth + 1));
+    }
+
+    private static int size(Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    /** @return A set that also holds value; this set if it already did */
+    public RankedSet<T> with(T value) {
+        if (contains(value)) {
+            return this;
+        }
+        return new RankedSet<>(order, insert(root, new Node<>(value, ThreadLocalRandom.current().nextInt(), null,
+                null)));
+    }
+
+    /** @return A set without value; this set if it didn't hold it */
+    public RankedSet<T> without(T value) {
+        if (!contains(value)) {
+            return this;
+        }
+        return new RankedSet<>(order, delete(root, value));
+    }
+
+    public boolean contains(T value) {
+        return rankOf(value) > 0;
+    }
+
+    /**
+     * @return The element that compares equal to probe, or null; lets a set
+     *         ordered by a key act as a map from that key
+     */
+    public T find(T probe) {
+        Node<T> node = root;
+        while (node != null) {
+            int cmp = order.compare(probe, node.value);
+            if (cmp == 0) {
+                return node.value;
+            }
+            node = cmp < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+
+    /** @return 1-based rank of value, or 0 if it is not in the set */
+    public int rankOf(T value) {
+        int before = 0;
+        Node<T> node = root;
+        while (node != null) {
+            int cmp = order.compare(value, node.value);
+            if (cmp < 0) {
+                node = node.left;
+            } else if (cmp > 0) {
+                before += size(node.left) + 1;
+                node = node.right;
+            } else {
+                return before + size(node.left) + 1;
+            }
+        }
+        return 0;
+    }
+
+    /** @return The element at rank (1-based), or null if out of range */
+    public T get(int rank) {
+        if (rank < 1 || rank > size()) {
+            return null;
+        }
+        int index = rank - 1;
+        Node<T> node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index > leftSize) {
+                index -= leftSize + 1;
+                node = node.right;
+            } else {
+                return node.value;
+            }
+        }
+    }
+
+    /** @return Up to count elements in order, starting at fromRank (1-based) */
+    public List<T> range(int fromRank, int count) {
+        int from = Math.max(fromRank, 1) - 1;
+        int wanted = Math.max(0, Math.min(count, size() - from));
+        List<T> out = new ArrayList<>(wanted);
+        collect(root, from, wanted, out);
+        return out;
+    }
+
+    // In-order walk that skips whole subtrees before index from: O(log n + count)
+    private static <T> void collect(Node<T> node, int from, int count, List<T> out) {
+        if (node == null || out.size() >= count) {
+            return;
+        }
+        int leftSize = size(node.left);
+        if (from < leftSize) {
+            collect(node.left, from, count, out);
+        }
+        if (from <= leftSize && out.size() < count) {
+            out.add(node.value);
+        }
+        collect(node.right, Math.max(0, from - leftSize - 1), count, out);
+    }
+
+    /* Persistent treap operations: each returns a new subtree and never modifies a node */
+
+    private Node<T> insert(Node<T> node, Node<T> added) {
+        if (node == null) {
+            return added;
+        }
+        if (added.priority > node.priority) {
+            Halves<T> halves = new Halves<>();
+            split(node, added.value, halves);
+            return added.with(halves.low, halves.high);
+        }
+        if (order.compare(added.value, node.value) < 0) {
+            return node.with(insert(node.left, added), node.right);
+        }
+        return node.with(node.left, insert(node.right, added));
+    }
+
+    private static final class Halves<T> {
+        Node<T> low;
+        Node<T> high;
+    }
+
+    // Splits into elements before value and elements after it (value itself is absent)
+    private void split(Node<T> node, T value, Halves<T> halves) {
+        if (node == null) {
+            halves.low = null;
+            halves.high = null;
+        } else if (order.compare(value, node.value) < 0) {
+            split(node.left, value, halves);
+            halves.high = node.with(halves.high, node.right);
+        } else {
+            split(node.right, value, halves);
+            halves.low = node.with(node.left, halves.low);
+        }
+    }
+
+    private Node<T> delete(Node<T> node, T value) {
+        int cmp = order.compare(value, node.value);
+        if (cmp < 0) {
+            return node.with(delete(node.left, value), node.right);
+        }
+        if (cmp > 0) {
+            return node.with(node.left, delete(node.right, value));
+        }
+        return merge(node.left, node.right);
+    }
+
+    // Every element of low comes before every element of high
+    private static <T> Node<T> merge(Node<T> low, Node<T> high) {
+        if (low == null) {
+            return high;
+        }
+        if (high == null) {
+            return low;
+        }
+        if (low.priority > high.priority) {
+            return low.with(low.left, merge(low.right, high));
+        }
+        return high.with(merge(low, high.left), high.right);
+    }
+}
@@ -0,0 +1,403 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Negamax search with alpha-beta pruning, iterative deepening, move ordering
+ * and a Zobrist-hashed transposition table, for any board handled by
+ * GameState. Not thread-safe: each bot owns its own engine.
+ */
+public class SearchEngine {
+    private static final byte EMPTY = 0;
+    private static final int WIN_SCORE = 1_000_000;
+    private static final int INFINITY = Integer.MAX_VALUE / 2;
+    private static final int MAX_CANDIDATES = 16; // widest branching on large boards
+    private static final int NEIGHBOURHOOD = 2; // candidate moves stay this close to stones
+    private static final int[][] DIRECTIONS = { { 0, 1 }, { 1, 0 }, { 1, 1 }, { 1, -1 } };
+
+    private final int size;
+    private final int winLength;
+    private final int cellCount;
+    private final long[][] zobrist; // [cell][player - 1]
+    private final TranspositionTable table = new TranspositionTable(16);
+    private final int[] windowWeights;
+
+    private byte[] board;
+    private int stones;
+    private long hash;
+    private long deadline;
+    private boolean timeUp;
+    private long nodes;
+
+    public SearchEngine(int size, int winLength) {
+        this.size = size;
+        this.winLength = winLength;
+        this.cellCount = size * size;
+        this.zobrist = new long[cellCount][2];
+        Random random = new Random(0x5EEDL * size + winLength);
+        for (long[] keys : zobrist) {
+            keys[0] = random.nextLong();
+            keys[1] = random.nextLong();
+        }
+        // A window holding n of one player's stones is worth 10^n
+        this.windowWeights = new int[winLength + 1];
+        int weight = 1;
+        for (int n = 1; n <= winLength; n++) {
+            windowWeights[n] = weight;
+            weight = (int) Math.min(weight * 10L, WIN_SCORE / 10);
+        }
+    }
+
+    /**
+     * Searches the position for the side to move.
+     *
+     * @param cells        Row-major board, 'X', 'O' or ' ' per cell
+     * @param toMove       'X' or 'O'
+     * @param maxDepth     Deepest iteration to search, in plies
+     * @param timeBudgetMs Wall-clock budget; the last completed iteration wins
+     * @return Index of the chosen cell (row * size + col), or -1 if the board
+     *         is full
+     */
+    public int findBestMove(char[] cells, char toMove, int maxDepth, long timeBudgetMs) {
+        board = new byte[cellCount];
+        stones = 0;
+        hash = 0;
+        for (int i = 0; i < cellCount; i++) {
+            byte player = code(cells[i]);
+            if (player != EMPTY) {
+                place(i, player);
+            }
+        }
+        byte player = code(toMove);
+        if (stones == cellCount) {
+            return -1;
+        }
+        if (stones == 0) {
+            return (size / 2) * size + size / 2;
+        }
+
+        deadline = System.nanoTime() + timeBudgetMs * 1_000_000L;
+        timeUp = false;
+        nodes = 0;
+        int bestMove = orderedMoves(player, -1)[0];
+        int depthLimit = Math.min(maxDepth, cellCount - stones);
+        for (int depth = 1; depth <= depthLimit; depth++) {
+            int[] result = searchRoot(player, depth);
+            if (timeUp) {
+                break;
+            }
+            bestMove = result[0];
+            if (isDecided(result[1])) {
+                break; // forced result found, deeper search won't change it
+            }
+        }
+        return bestMove;
+    }
+
+    /** @return Nodes visited by the last search */
+    public long getNodeCount() {
+        return nodes;
+    }
+
+    private int[] searchRoot(byte player, int depth) {
+        int alpha = -INFINITY;
+        int bestMove = -1;
+        for (int move : orderedMoves(player, table.bestMove(hash))) {
+            int score = scoreMove(move, player, depth, alpha, INFINITY, 1);
+            if (timeUp) {
+                break;
+            }
+            if (score > alpha || bestMove < 0) {
+                alpha = score;
+                bestMove = move;
+            }
+        }
+        if (!timeUp) {
+            table.store(hash, depth, alpha, TranspositionTable.EXACT, bestMove);
+        }
+        return new int[] { bestMove, alpha };
+    }
+
+    // Plays the move, scores it from the mover's point of view, then undoes it
+    private int scoreMove(int move, byte player, int depth, int alpha, int beta, int ply) {
+        place(move, player);
+        int score;
+        if (completesLine(move, player)) {
+            score = WIN_SCORE - ply;
+        } else if (stones == cellCount) {
+            score = 0;
+        } else {
+            score = -negamax(opponent(player), depth - 1, -beta, -alpha, ply + 1);
+        }
+        remove(move, player);
+        return score;
+    }
+
+    private int negamax(byte player, int depth, int alpha, int beta, int ply) {
+        if ((++nodes & 1023) == 0 && System.nanoTime() > deadline) {
+            timeUp = true;
+        }
+        if (timeUp) {
+            return 0;
+        }
+        if (depth == 0) {
+            return evaluate(player);
+        }
+
+        int originalAlpha = alpha;
+        int slot = table.probe(hash);
+        int ttMove = -1;
+        if (slot >= 0) {
+            ttMove = table.move(slot);
+            if (table.depth(slot) >= depth) {
+                int score = fromTable(table.score(slot), ply - 1);
+                int flag = table.flag(slot);
+                if (flag == TranspositionTable.EXACT) {
+                    return score;
+                } else if (flag == TranspositionTable.LOWER) {
+                    alpha = Math.max(alpha, score);
+                } else {
+                    beta = Math.min(beta, score);
+                }
+                if (alpha >= beta) {
+                    return score;
+                }
+            }
+        }
+
+        int best = -INFINITY;
+        int bestMove = -1;
+        for (int move : orderedMoves(player, ttMove)) {
+            int score = scoreMove(move, player, depth, alpha, beta, ply);
+            if (score > best) {
+                best = score;
+                bestMove = move;
+            }
+            alpha = Math.max(alpha, score);
+            if (alpha >= beta || timeUp) {
+                break;
+            }
+        }
+        if (!timeUp) {
+            int flag = best <= originalAlpha ? TranspositionTable.UPPER
+                    : best >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+            table.store(hash, depth, toTable(best, ply - 1), flag, bestMove);
+        }
+        return best;
+    }
+
+    private boolean isDecided(int score) {
+        return Math.abs(score) >= WIN_SCORE - cellCount;
+    }
+
+    /*
+     * Wins and losses are scored by distance from the root, which moves on by
+     * two plies with every move of the game while the table lives on. The
+     * table holds them as distances from the entry's own position instead;
+     * played is the number of plies from the root to that position.
+     */
+
+    private int toTable(int score, int played) {
+        return !isDecided(score) ? score : score > 0 ? score + played : score - played;
+    }
+
+    private int fromTable(int score, int played) {
+        return !isDecided(score) ? score : score > 0 ? score - played : score + played;
+    }
+
+    /**
+     * Empty cells worth considering, best first: the table move, then cells
+     * ranked by how many friendly and enemy stones line up through them. On
+     * large boards only cells near existing stones are kept.
+     */
+    private int[] orderedMoves(byte player, int ttMove) {
+        int[] moves = collectMoves(player, ttMove, cellCount <= 16);
+        // No stone nearby is possible on a sparse large board: fall back to every empty cell
+        return moves.length > 0 ? moves : collectMoves(player, ttMove, true);
+    }
+
+    private int[] collectMoves(byte player, int ttMove, boolean allCells) {
+        int[] moves = new int[cellCount];
+        int[] scores = new int[cellCount];
+        int count = 0;
+        for (int i = 0; i < cellCount; i++) {
+            if (board[i] != EMPTY || (!allCells && !hasNeighbour(i))) {
+                continue;
+            }
+            int score = i == ttMove ? INFINITY : localScore(i, player);
+            // Insertion sort, descending
+            int j = count++;
+            while (j > 0 && scores[j - 1] < score) {
+                moves[j] = moves[j - 1];
+                scores[j] = scores[j - 1];
+                j--;
+            }
+            moves[j] = i;
+            scores[j] = score;
+        }
+        int limit = cellCount <= 16 ? count : Math.min(count, MAX_CANDIDATES);
+        return Arrays.copyOf(moves, limit);
+    }
+
+    private boolean hasNeighbour(int index) {
+        int row = index / size;
+        int col = index % size;
+        for (int r = Math.max(0, row - NEIGHBOURHOOD); r <= Math.min(size - 1, row + NEIGHBOURHOOD); r++) {
+            for (int c = Math.max(0, col - NEIGHBOURHOOD); c <= Math.min(size - 1, col + NEIGHBOURHOOD); c++) {
+                if (board[r * size + c] != EMPTY) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Runs through the cell for both sides; completing or blocking long runs ranks first
+    private int localScore(int index, byte player) {
+        int row = index / size;
+        int col = index % size;
+        int score = 0;
+        for (int[] d : DIRECTIONS) {
+            for (byte side = 1; side <= 2; side++) {
+                int run = run(row, col, d[0], d[1], side) + run(row, col, -d[0], -d[1], side);
+                int weight = windowWeights[Math.min(run + 1, winLength)];
+                score += side == player ? weight * 2 : weight;
+            }
+        }
+        // Slight preference for the centre breaks ties
+        return score * 4 + (size - Math.abs(row - size / 2) - Math.abs(col - size / 2));
+    }
+
+    private boolean completesLine(int index, byte player) {
+        int row = index / size;
+        int col = index % size;
+        for (int[] d : DIRECTIONS) {
+            if (1 + run(row, col, d[0], d[1], player) + run(row, col, -d[0], -d[1], player) >= winLength) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int run(int row, int col, int dRow, int dCol, byte player) {
+        int count = 0;
+        int r = row + dRow;
+        int c = col + dCol;
+        while (count < winLength && r >= 0 && r < size && c >= 0 && c < size && board[r * size + c] == player) {
+            count++;
+            r += dRow;
+            c += dCol;
+        }
+        return count;
+    }
+
+    /** Static evaluation from player's point of view: open windows of each side. */
+    private int evaluate(byte player) {
+        int score = 0;
+        for (int[] d : DIRECTIONS) {
+            for (int row = 0; row < size; row++) {
+                for (int col = 0; col < size; col++) {
+                    int endRow = row + d[0] * (winLength - 1);
+                    int endCol = col + d[1] * (winLength - 1);
+                    if (endRow < 0 || endRow >= size || endCol < 0 || endCol >= size) {
+                        continue;
+                    }
+                    int mine = 0;
+                    int theirs = 0;
+                    for (int k = 0; k < winLength; k++) {
+                        byte cell = board[(row + d[0] * k) * size + col + d[1] * k];
+                        if (cell == player) {
+                            mine++;
+                        } else if (cell != EMPTY) {
+                            theirs++;
+                        }
+                    }
+                    if (theirs == 0) {
+                        score += windowWeights[mine];
+                    } else if (mine == 0) {
+                        score -= windowWeights[theirs];
+                    }
+                }
+            }
+        }
+        // Keep heuristic scores clear of the win/loss range
+        return Math.max(-WIN_SCORE / 2, Math.min(WIN_SCORE / 2, score));
+    }
+
+    private void place(int index, byte player) {
+        board[index] = player;
+        hash ^= zobrist[index][player - 1];
+        stones++;
+    }
+
+    private void remove(int index, byte player) {
+        board[index] = EMPTY;
+        hash ^= zobrist[index][player - 1];
+        stones--;
+    }
+
+    private static byte code(char symbol) {
+        return symbol == 'X' ? (byte) 1 : symbol == 'O' ? (byte) 2 : EMPTY;
+    }
+
+    private static byte opponent(byte player) {
+        return (byte) (3 - player);
+    }
+
+    /**
+     * Fixed-size, always-replace hash table keyed by Zobrist hash. Entries are
+     * packed into parallel primitive arrays to keep it allocation-free.
+     */
+    private static final class TranspositionTable {
+        static final int EXACT = 0;
+        static final int LOWER = 1;
+        static final int UPPER = 2;
+
+        private final long[] keys;
+        private final int[] scores;
+        private final int[] data; // move (16 bits) | depth (8 bits) | flag (8 bits)
+        private final int mask;
+
+        TranspositionTable(int bits) {
+            keys = new long[1 << bits];
+            scores = new int[1 << bits];
+            data = new int[1 << bits];
+            mask = (1 << bits) - 1;
+        }
+
+        int probe(long key) {
+            int slot = (int) key & mask;
+            return keys[slot] == key && data[slot] != 0 ? slot : -1;
+        }
+
+        int bestMove(long key) {
+            int slot = probe(key);
+            return slot >= 0 ? move(slot) : -1;
+        }
+
+        int move(int slot) {
+            return (data[slot] >>> 16) - 1;
+        }
+
+        int depth(int slot) {
+            return (data[slot] >>> 8) & 0xFF;
+        }
+
+        int flag(int slot) {
+            return data[slot] & 0xFF;
+        }
+
+        int score(int slot) {
+            return scores[slot];
+        }
+
+        void store(long key, int depth, int score, int flag, int move) {
+            int slot = (int) key & mask;
+            keys[slot] = key;
+            scores[slot] = score;
+            // move + 1 so that an occupied slot is never all zeroes
+            data[slot] = ((move + 1) << 16) | (Math.min(depth, 255) << 8) | flag;
+        }
+    }
+}
@@ -0,0 +1,473 @@
+package server;
+
+import shared.BinaryProtocol;
+import shared.ExecutionMode;
+import shared.LeaderboardPage;
+import shared.MatchOptions;
+import shared.MorpionInterface;
+import shared.MorpionInterface.BotDifficulty;
+import shared.PlayerStats;
+import shared.RoomSnapshot;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * NIO front-end speaking BinaryProtocol, served next to the RMI registry.
+ * Unlike RMI's thread per connection, every client is multiplexed onto a few
+ * threads: one accepts connections and deals them out to a fixed set of
+ * reactors, each a selector thread that reads frames, runs the call and
+ * writes the reply for its share of the connections.
+ *
+ * An idle connection costs its socket, a selection key and a small object:
+ * reactors read into one shared buffer, and a connection only keeps bytes of
+ * its own while a frame is incomplete or a reply can't be written yet.
+ *
+ * Nothing blocks a reactor. waitForChange parks the request on the room and
+ * replies when the room changes or the wait times out; quickMatch, which
+ * waits inside the matchmaker, runs on a worker thread.
+ */
+final class BinaryServer implements Runnable {
+    private static final int ACCEPT_BACKLOG = 4096;
+
+    private final MorpionServer server; // only for onRoomChange, which is not part of MorpionInterface
+    private final MorpionInterface game;
+    private final ServerSocketChannel serverChannel;
+    private final Reactor[] reactors;
+    private final Thread acceptThread;
+    private final AtomicInteger connections = new AtomicInteger();
+    private final ScheduledThreadPoolExecutor waitTimeouts = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "binary-timeouts");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService blockingCalls = ExecutionMode.newExecutor("binary-worker",
+            () -> Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "binary-worker");
+                thread.setDaemon(true);
+                return thread;
+            }));
+    private volatile boolean running = true;
+
+    private final class Reactor implements Runnable {
+        final Selector selector;
+        final Thread thread;
+        final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        // One frame plus its length fits, so a partial frame can always be completed here
+        final ByteBuffer readBuffer = ByteBuffer.allocate(BinaryProtocol.MAX_FRAME_BYTES + 4);
+
+        Reactor(int index) throws IOException {
+            this.selector = Selector.open();
+            this.thread = new Thread(this, "binary-reactor-" + index);
+            thread.setDaemon(true);
+        }
+
+        void execute(Runnable task) {
+            tasks.add(task);
+            if (Thread.currentThread() != thread) {
+                selector.wakeup();
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    if (tasks.isEmpty()) {
+                        selector.select();
+                    } else {
+                        selector.selectNow(); // a call handled last round queued work for us
+                    }
+                    Runnable task;
+                    while ((task = tasks.poll()) != null) {
+                        task.run();
+                    }
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        Connection connection = (Connection) key.attachment();
+                        if (key.isValid() && key.isWritable()) {
+                            connection.flush();
+                        }
+                        if (key.isValid() && key.isReadable()) {
+                            connection.read();
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("[SERVER] Binary reactor stopped: " + e.getMessage());
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    ((Connection) key.attachment()).close();
+                }
+                try {
+                    selector.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    // Touched only by its reactor's thread
+    private final class Connection {
+        final Reactor reactor;
+        final SocketChannel channel;
+        final SelectionKey key;
+        ByteBuffer partial; // start of an incomplete frame, null when there is none
+        Queue<ByteBuffer> replies; // not fully written yet, null when there are none
+
+        Connection(Reactor reactor, SocketChannel channel) throws ClosedChannelException {
+            this.reactor = reactor;
+            this.channel = channel;
+            this.key = channel.register(reactor.selector, SelectionKey.OP_READ, this);
+            connections.incrementAndGet();
+        }
+
+        void read() {
+            ByteBuffer buffer = reactor.readBuffer;
+            buffer.clear();
+            if (partial != null) {
+                buffer.put(partial);
+                partial = null;
+            }
+            try {
+                if (channel.read(buffer) < 0) {
+                    close();
+                    return;
+                }
+                buffer.flip();
+                while (buffer.remaining() >= 4) {
+                    int length = buffer.getInt(buffer.position());
+                    if (length < BinaryProtocol.HEADER_BYTES - 4 || length > BinaryProtocol.MAX_FRAME_BYTES) {
+                        throw new IOException("bad frame length " + length);
+                    }
+                    if (buffer.remaining() < 4 + length) {
+                        break;
+                    }
+                    buffer.getInt();
+                    byte[] frame = new byte[length];
+                    buffer.get(frame);
+                    handle(this, frame);
+                }
+                if (buffer.hasRemaining()) {
+                    partial = ByteBuffer.allocate(buffer.remaining()).put(buffer).flip();
+                }
+            } catch (IOException e) {
+                System.out.println("[SERVER] Closing binary connection: " + e.getMessage());
+                close();
+            }
+        }
+
+        void reply(ByteBuffer frame) {
+            if (replies == null) {
+                replies = new ArrayDeque<>(2);
+            }
+            replies.add(frame);
+            if (replies.size() == 1) {
+                flush();
+            }
+        }
+
+        // Writes what the socket takes and waits for OP_WRITE for the rest
+        void flush() {
+            if (!key.isValid()) {
+                return;
+            }
+            try {
+                ByteBuffer frame;
+                while ((frame = replies.peek()) != null) {
+                    channel.write(frame);
+                    if (frame.hasRemaining()) {
+                        key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                        return;
+                    }
+                    replies.poll();
+                }
+                replies = null;
+                key.interestOps(SelectionKey.OP_READ);
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        void close() {
+            if (key.isValid()) {
+                connections.decrementAndGet();
+            }
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private BinaryServer(MorpionServer server, MorpionInterface game, int port, int reactorCount) throws IOException {
+        this.server = server;
+        this.game = game;
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port), ACCEPT_BACKLOG);
+        this.reactors = new Reactor[Math.max(1, reactorCount)];
+        for (int i = 0; i < reactors.length; i++) {
+            reactors[i] = new Reactor(i);
+        }
+        this.acceptThread = new Thread(this, "binary-accept");
+        acceptThread.setDaemon(true);
+        waitTimeouts.setRemoveOnCancelPolicy(true); // answered waits don't linger until their timeout
+    }
+
+    /** Binds the port and starts serving; the threads are daemons */
+    static BinaryServer start(MorpionServer server, MorpionInterface game, int port, int reactorCount)
+            throws IOException {
+        BinaryServer binary = new BinaryServer(server, game, port, reactorCount);
+        for (Reactor reactor : binary.reactors) {
+            reactor.thread.start();
+        }
+        binary.acceptThread.start();
+        return binary;
+    }
+
+    int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    int getReactorCount() {
+        return reactors.length;
+    }
+
+    int getConnectionCount() {
+        return connections.get();
+    }
+
+    void close() {
+        running = false;
+        try {
+            serverChannel.close();
+        } catch (IOException ignored) {
+        }
+        for (Reactor reactor : reactors) {
+            reactor.selector.wakeup();
+        }
+        waitTimeouts.shutdownNow();
+        blockingCalls.shutdownNow();
+    }
+
+    // Accept thread: connections are dealt out round-robin and registered by their reactor
+    @Override
+    public void run() {
+        int next = 0;
+        while (running) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                Reactor reactor = reactors[next++ % reactors.length];
+                reactor.execute(() -> {
+                    try {
+                        new Connection(reactor, channel);
+                    } catch (ClosedChannelException e) {
+                        // Closed before it was registered
+                    }
+                });
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("[SERVER] Binary accept failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Body {
+        void write(DataOutputStream out) throws Exception;
+    }
+
+    private void handle(Connection connection, byte[] frame) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(frame));
+        int requestId = in.readInt();
+        byte code = in.readByte();
+        if (code == BinaryProtocol.WAIT_FOR_CHANGE) {
+            park(connection, requestId, in.readUTF(), in.readLong(), in.readLong());
+        } else if (code == BinaryProtocol.QUICK_MATCH) {
+            blockingCalls.execute(() -> {
+                ByteBuffer reply = respond(requestId, out -> dispatch(code, in, out));
+                connection.reactor.execute(() -> connection.reply(reply));
+            });
+        } else {
+            connection.reply(respond(requestId, out -> dispatch(code, in, out)));
+        }
+    }
+
+    /*
+     * A waitForChange holds no thread: the room runs the wakeup when it
+     * changes, the timeout thread when time is up, and whichever comes first
+     * has the reactor send the room's state.
+     */
+    private void park(Connection connection, int requestId, String roomId, long sinceVersion, long timeoutMs) {
+        AtomicBoolean answered = new AtomicBoolean();
+        ScheduledFuture<?>[] timeout = new ScheduledFuture<?>[1];
+        Runnable answer = () -> {
+            if (answered.compareAndSet(false, true)) {
+                connection.reactor.execute(() -> {
+                    if (timeout[0] != null) {
+                        timeout[0].cancel(false);
+                    }
+                    connection.reply(respond(requestId,
+                            out -> writeSnapshot(out, game.getRoomSnapshot(roomId, null))));
+                });
+            }
+        };
+        Runnable cancel = server.onRoomChange(roomId, sinceVersion, answer);
+        if (cancel != null && !answered.get()) {
+            long waitMs = Math.max(0, Math.min(timeoutMs, GameRoom.MAX_WAIT_MS));
+            timeout[0] = waitTimeouts.schedule(() -> {
+                cancel.run();
+                answer.run();
+            }, waitMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static ByteBuffer respond(int requestId, Body body) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(0); // length, filled in below
+            out.writeInt(requestId);
+            out.writeByte(BinaryProtocol.OK);
+            body.write(out);
+        } catch (Exception e) {
+            bytes.reset();
+            try {
+                out.writeInt(0);
+                out.writeInt(requestId);
+                out.writeByte(BinaryProtocol.FAILED);
+                out.writeUTF(String.valueOf(e.getMessage()));
+            } catch (IOException impossible) {
+                throw new IllegalStateException(impossible);
+            }
+        }
+        ByteBuffer frame = ByteBuffer.wrap(bytes.toByteArray());
+        frame.putInt(0, frame.remaining() - 4);
+        return frame;
+    }
+
+    private void dispatch(byte code, DataInputStream in, DataOutputStream out) throws IOException {
+        switch (code) {
+            case BinaryProtocol.CREATE_ROOM:
+                BinaryProtocol.writeNullable(out, game.createRoom(in.readUTF(), in.readInt(), in.readInt()));
+                break;
+            case BinaryProtocol.JOIN_ROOM:
+                out.writeByte(game.joinRoom(in.readUTF(), in.readUTF()).ordinal());
+                break;
+            case BinaryProtocol.ADD_BOT:
+                out.writeByte(game.addBot(in.readUTF(), BotDifficulty.values()[in.readUnsignedByte()]).ordinal());
+                break;
+            case BinaryProtocol.LIST_AVAILABLE_ROOMS:
+                BinaryProtocol.writeStrings(out, game.listAvailableRooms());
+                break;
+            case BinaryProtocol.LIST_ROOMS:
+                BinaryProtocol.writeLobbyPage(out, game.listRooms(BinaryProtocol.readNullable(in), in.readInt()));
+                break;
+            case BinaryProtocol.GET_LOBBY_CHANGES:
+                BinaryProtocol.writeLobbyUpdate(out, game.getLobbyChanges(in.readLong()));
+                break;
+            case BinaryProtocol.QUICK_MATCH:
+                String seeker = in.readUTF();
+                MatchOptions options = new MatchOptions(in.readInt(), in.readInt(), in.readLong());
+                BinaryProtocol.writeMatchResult(out, game.quickMatch(seeker, options));
+                break;
+            case BinaryProtocol.CANCEL_QUICK_MATCH:
+                game.cancelQuickMatch(in.readUTF());
+                break;
+            case BinaryProtocol.GET_MATCHMAKING_STATS:
+                BinaryProtocol.writeMatchmakingStats(out, game.getMatchmakingStats());
+                break;
+            case BinaryProtocol.GET_PLAYER_STATS:
+                PlayerStats stats = game.getPlayerStats(in.readUTF());
+                out.writeBoolean(stats != null);
+                if (stats != null) {
+                    BinaryProtocol.writePlayerStats(out, stats);
+                }
+                break;
+            case BinaryProtocol.GET_LEADERBOARD:
+                BinaryProtocol.writePlayerStatsList(out, game.getLeaderboard(in.readInt()));
+                break;
+            case BinaryProtocol.GET_RANK:
+                out.writeInt(game.getRank(in.readUTF()));
+                break;
+            case BinaryProtocol.GET_LEADERBOARD_AROUND:
+                LeaderboardPage page = game.getLeaderboardAround(in.readUTF(), in.readInt());
+                out.writeBoolean(page != null);
+                if (page != null) {
+                    BinaryProtocol.writeLeaderboardPage(out, page);
+                }
+                break;
+            case BinaryProtocol.GET_ROOM_STATUS:
+                out.writeByte(game.getRoomStatus(in.readUTF()).ordinal());
+                break;
+            case BinaryProtocol.MAKE_MOVE:
+                out.writeByte(game.makeMove(in.readUTF(), in.readInt(), in.readInt(), in.readUTF()).ordinal());
+                break;
+            case BinaryProtocol.GET_CURRENT_BOARD:
+                out.writeUTF(game.getCurrentBoard(in.readUTF()));
+                break;
+            case BinaryProtocol.GET_ROOM_SNAPSHOT:
+                writeSnapshot(out, game.getRoomSnapshot(in.readUTF(), BinaryProtocol.readNullable(in)));
+                break;
+            case BinaryProtocol.IS_GAME_OVER:
+                out.writeBoolean(game.isGameOver(in.readUTF()));
+                break;
+            case BinaryProtocol.GET_WINNER:
+                BinaryProtocol.writeNullable(out, game.getWinner(in.readUTF()));
+                break;
+            case BinaryProtocol.IS_PLAYER_TURN:
+                out.writeBoolean(game.isPlayerTurn(in.readUTF(), in.readUTF()));
+                break;
+            case BinaryProtocol.IS_GAME_READY:
+                out.writeBoolean(game.isGameReady(in.readUTF()));
+                break;
+            case BinaryProtocol.RESET_GAME:
+                game.resetGame(in.readUTF());
+                break;
+            case BinaryProtocol.DISCONNECT_PLAYER:
+                game.disconnectPlayer(in.readUTF(), in.readUTF());
+                break;
+            case BinaryProtocol.GET_PLAYER_SYMBOL:
+                BinaryProtocol.writeNullable(out, game.getPlayerSymbol(in.readUTF(), in.readUTF()));
+                break;
+            case BinaryProtocol.REGISTER_PLAYER:
+                out.writeByte(game.registerPlayer(in.readUTF()).ordinal());
+                break;
+            default:
+                throw new IOException("unknown operation " + code);
+        }
+    }
+
+    private static void writeSnapshot(DataOutputStream out, RoomSnapshot snapshot) throws IOException {
+        out.writeBoolean(snapshot != null);
+        if (snapshot != null) {
+            BinaryProtocol.writeSnapshot(out, snapshot);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package server;
+
+import model.GameState;
+import model.PerfectPlayTable;
+import model.SearchEngine;
+import shared.GameListener;
+import shared.MorpionInterface.BotDifficulty;
+import shared.MorpionInterface.MoveStatus;
+import shared.RoomSnapshot;
+import java.util.concurrent.Executor;
+
+/**
+ * Server-side guest player. It listens to its room like a remote client would
+ * and, when its turn comes, searches for a move on the bot executor so that
+ * thinking never runs on an RMI or event thread.
+ */
+class BotPlayer implements GameListener {
+    private static final String SYMBOL = "O"; // bots always join as the guest
+
+    private final GameRoom room;
+    private final String roomId;
+    private final String name;
+    private final BotDifficulty difficulty;
+    private SearchEngine engine; // created on first search, the table is about 1 MB
+    private final Executor executor;
+    private final PerfectPlayTable perfectPlay; // set only for hard bots on classic boards
+
+    BotPlayer(GameRoom room, String roomId, String name, BotDifficulty difficulty, Executor executor,
+            PerfectPlayTable perfectPlay) {
+        this.room = room;
+        this.roomId = roomId;
+        this.name = name;
+        this.difficulty = difficulty;
+        this.executor = executor;
+        boolean classic = room.getBoardSize() == GameState.CLASSIC_SIZE
+                && room.getWinLength() == GameState.CLASSIC_SIZE;
+        this.perfectPlay = classic && difficulty == BotDifficulty.HARD ? perfectPlay : null;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /** Plays straight away if it's already the bot's turn, e.g. after recovery. */
+    void resume() {
+        executor.execute(this::play);
+    }
+
+    @Override
+    public void onOpponentJoined(String roomId, String playerName) {
+    }
+
+    @Override
+    public void onOpponentLeft(String roomId, String playerName) {
+    }
+
+    @Override
+    public void onMove(String roomId, int row, int col, String symbol, String nextTurn) {
+        if (SYMBOL.equals(nextTurn)) {
+            executor.execute(this::play);
+        }
+    }
+
+    @Override
+    public void onGameOver(String roomId, String winner) {
+    }
+
+    @Override
+    public void onGameReset(String roomId) {
+    }
+
+    // Runs on the bot executor; the engine is only ever used by one search at a time
+    private synchronized void play() {
+        RoomSnapshot snapshot = room.getRoomSnapshot(roomId, name);
+        if (snapshot == null || !snapshot.isViewerTurn() || snapshot.isGameOver()) {
+            return;
+        }
+        char[] cells = snapshot.getCells();
+        int move = perfectPlay != null ? perfectPlay.bestMove(cells) : -1;
+        if (move < 0) {
+            if (engine == null) {
+                engine = new SearchEngine(room.getBoardSize(), room.getWinLength());
+            }
+            move = engine.findBestMove(cells, SYMBOL.charAt(0), difficulty.getDepth(), difficulty.getTimeBudgetMs());
+        }
+        if (move < 0) {
+            return;
+        }
+        int size = snapshot.getSize();
+        MoveStatus status = room.makeMove(roomId, move / size, move % size, name);
+        if (status != MoveStatus.VALID) {
+            System.out.println("[BOT] " + name + " move rejected in room " + roomId + ": " + status);
+        }
+    }
+}
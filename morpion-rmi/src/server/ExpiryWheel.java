@@ -0,0 +1,147 @@
+package server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Hashed timing wheel for inactivity expiry. Each key sits in the slot of its
+ * expected deadline, so a tick only looks at keys that may be due instead of
+ * scanning every room.
+ *
+ * Activity never touches the wheel: the deadline function is read again when
+ * a key's slot comes round, and a key that was active in the meantime is
+ * simply moved to its new slot (lazy re-insertion). Keeping a room alive is
+ * therefore one volatile write, and a room that stays busy costs one move per
+ * timeout period.
+ *
+ * schedule() may be called from any thread; tick() calls must not overlap, as
+ * the slots belong to whichever thread is ticking.
+ */
+final class ExpiryWheel<K> {
+    /** Returned by the deadline function for keys that no longer need tracking. */
+    static final long GONE = -1;
+
+    private final long tickMs;
+    private final int mask;
+    private final List<List<K>> slots;
+    private final Queue<K> incoming = new ConcurrentLinkedQueue<>();
+    private final ToLongFunction<K> deadline;
+    private final Predicate<K> expire;
+    private long currentTick;
+
+    // Statistics, written by the ticking thread and volatile for monitoring reads
+    private volatile int tracked;
+    private volatile int lastChecked;
+    private volatile int lastRescheduled;
+    private volatile int lastReaped;
+    private volatile long totalReaped;
+
+    /**
+     * @param tickMs   Resolution: keys expire at most this late
+     * @param slots    Wheel size, rounded up to a power of two; a timeout
+     *                 longer than slots * tickMs just costs extra visits
+     * @param deadline Current expiry time of a key in epoch millis, or GONE
+     * @param expire   Expires a due key; false if it turned out to be alive,
+     *                 in which case it is rescheduled
+     */
+    ExpiryWheel(long tickMs, int slots, ToLongFunction<K> deadline, Predicate<K> expire) {
+        int size = Integer.highestOneBit(Math.max(1, slots - 1)) << 1;
+        this.tickMs = tickMs;
+        this.mask = size - 1;
+        this.slots = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            this.slots.add(new ArrayList<>());
+        }
+        this.deadline = deadline;
+        this.expire = expire;
+        this.currentTick = System.currentTimeMillis() / tickMs;
+    }
+
+    /** Starts tracking a key. Call once per key, e.g. when a room is created. */
+    void schedule(K key) {
+        incoming.add(key);
+    }
+
+    /**
+     * Advances the wheel to now and expires every due key in the slots passed.
+     *
+     * @return Number of keys expired
+     */
+    int tick(long now) {
+        int inWheel = tracked;
+        K key;
+        while ((key = incoming.poll()) != null) {
+            long expiry = deadline.applyAsLong(key);
+            if (expiry != GONE) {
+                place(key, expiry);
+                inWheel++;
+            }
+        }
+
+        long targetTick = now / tickMs;
+        // After a long pause every slot is visited once, not once per missed tick
+        long firstTick = Math.max(currentTick + 1, targetTick - mask);
+        int checked = 0;
+        int rescheduled = 0;
+        int reaped = 0;
+        for (long tick = firstTick; tick <= targetTick; tick++) {
+            List<K> due = slots.get((int) (tick & mask));
+            if (due.isEmpty()) {
+                continue;
+            }
+            slots.set((int) (tick & mask), new ArrayList<>());
+            currentTick = tick;
+            for (K entry : due) {
+                checked++;
+                long expiry = deadline.applyAsLong(entry);
+                if (expiry == GONE) {
+                    inWheel--;
+                } else if (expiry > now || !expire.test(entry)) {
+                    place(entry, Math.max(expiry, now));
+                    rescheduled++;
+                } else {
+                    inWheel--;
+                    reaped++;
+                }
+            }
+        }
+        currentTick = Math.max(currentTick, targetTick);
+        tracked = inWheel;
+        lastChecked = checked;
+        lastRescheduled = rescheduled;
+        lastReaped = reaped;
+        totalReaped += reaped;
+        return reaped;
+    }
+
+    // Never into the slot being processed: the earliest is the next tick
+    private void place(K key, long expiry) {
+        long tick = Math.max(expiry / tickMs, currentTick + 1);
+        slots.get((int) (tick & mask)).add(key);
+    }
+
+    /** @return Keys in the wheel as of the last tick, including some already removed */
+    int getTrackedCount() {
+        return tracked;
+    }
+
+    int getLastChecked() {
+        return lastChecked;
+    }
+
+    int getLastRescheduled() {
+        return lastRescheduled;
+    }
+
+    int getLastReaped() {
+        return lastReaped;
+    }
+
+    long getTotalReaped() {
+        return totalReaped;
+    }
+}
@@ -1,26 +1,79 @@
 package server;
 
-import shared.MorpionInterface;
+import shared.GameListener;
+import shared.MorpionInterface.BotDifficulty;
+import shared.MorpionInterface.MoveStatus;
+import shared.MorpionInterface.RegistrationStatus;
+import shared.MorpionInterface.RoomStatus;
+import shared.RoomBroadcast;
+import shared.RoomSnapshot;
+import shared.SpectatorListener;
 import model.GameState;
+import model.PerfectPlayTable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.rmi.RemoteException;
-import java.util.List;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Objects;
-
-public class GameRoom implements MorpionInterface {
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class GameRoom {
     private final GameState gameState;
     private final String roomId;
     private RoomStatus status;
-    private long lastActivityTime;
+    private volatile long lastActivityTime; // read lock-free by the expiry wheel
     private final String hostPlayer;
     private String guestPlayer;
+    private volatile long version;
+    // A j.u.c. lock rather than a monitor, so a virtual thread parked in waitForChange releases its carrier
+    private final ReentrantLock changeLock = new ReentrantLock();
+    private final Condition changed = changeLock.newCondition();
+    private final Set<Runnable> changeWaiters = new HashSet<>(); // event-loop waiters, guarded by changeLock
+    private final Map<String, GameListener> listeners = new ConcurrentHashMap<>();
+    private final Executor eventExecutor;
+    private volatile MoveJournal journal; // null while recovering or when journaling is off
+    private volatile RatingService ratings; // null while recovering, so replayed games aren't rated twice
+    private volatile SpectatorFeed spectatorFeed; // created by the first spectator
+    private int botLevel = -1; // BotDifficulty ordinal of the seated bot, -1 if none
+    private volatile boolean removed; // dropped from the server, excluded from checkpoints
+    static final long MAX_WAIT_MS = 30000; // cap for long-poll waits
 
     public GameRoom(String roomId, String hostPlayer) {
+        this(roomId, hostPlayer, Runnable::run);
+    }
+
+    public GameRoom(String roomId, String hostPlayer, Executor callbackExecutor) {
+        this(roomId, hostPlayer, callbackExecutor, GameState.CLASSIC_SIZE, GameState.CLASSIC_SIZE);
+    }
+
+    public GameRoom(String roomId, String hostPlayer, Executor callbackExecutor, int boardSize, int winLength) {
         this.roomId = Objects.requireNonNull(roomId);
         this.hostPlayer = Objects.requireNonNull(hostPlayer);
-        this.gameState = new GameState();
+        this.gameState = new GameState(boardSize, winLength);
         this.status = RoomStatus.WAITING;
         this.lastActivityTime = System.currentTimeMillis();
         this.gameState.registerPlayer(hostPlayer);
+        this.eventExecutor = new SerialExecutor(callbackExecutor);
+    }
+
+    // Rebuilds a room from a checkpoint
+    private GameRoom(String roomId, String hostPlayer, String guestPlayer, RoomStatus status, long version,
+            GameState gameState, Executor callbackExecutor) {
+        this.roomId = roomId;
+        this.hostPlayer = hostPlayer;
+        this.guestPlayer = guestPlayer;
+        this.status = status;
+        this.version = version;
+        this.gameState = gameState;
+        this.lastActivityTime = System.currentTimeMillis();
+        this.eventExecutor = new SerialExecutor(callbackExecutor);
     }
 
     // Add this method to get room status
@@ -28,9 +81,27 @@ public class GameRoom implements MorpionInterface {
         return status;
     }
 
-    @Override
-    public synchronized RegistrationStatus registerPlayer(String playerName) {
-        if (playerName == null || playerName.isEmpty()) {
+    /** Starts recording this room's mutations, typically once recovery is over. */
+    void setJournal(MoveJournal journal) {
+        this.journal = journal;
+    }
+
+    /** Starts reporting finished games, typically once recovery is over. */
+    void setRatings(RatingService ratings) {
+        this.ratings = ratings;
+    }
+
+    synchronized RegistrationStatus registerPlayer(String playerName) {
+        RegistrationStatus registration = seatGuest(playerName);
+        MoveJournal journal = this.journal;
+        if (registration == RegistrationStatus.PLAYER_O && journal != null) {
+            journal.appendJoin(roomId, version, playerName);
+        }
+        return registration;
+    }
+
+    private RegistrationStatus seatGuest(String playerName) {
+        if (playerName == null || playerName.isEmpty() || removed) {
             return RegistrationStatus.ERROR;
         }
 
@@ -48,8 +119,12 @@ public class GameRoom implements MorpionInterface {
         guestPlayer = playerName;
         status = RoomStatus.IN_PROGRESS;
         updateActivity();
+        bumpVersion();
 
+        gameState.registerPlayer(playerName);
+        broadcast();
         System.out.println("[ROOM] Registered " + playerName + " as O in room " + roomId);
+        fireEvent(listener -> listener.onOpponentJoined(roomId, playerName));
         return RegistrationStatus.PLAYER_O;
     }
 
@@ -57,9 +132,9 @@ public class GameRoom implements MorpionInterface {
         return guestPlayer != null;
     }
 
-    @Override
-    public synchronized MoveStatus makeMove(String roomId, int row, int col, String playerName) throws RemoteException {
-        if (!this.roomId.equals(roomId)) {
+    synchronized MoveStatus makeMove(String roomId, int row, int col, String playerName) {
+        // A removed room may have been handed to another node: a move here would be lost
+        if (!this.roomId.equals(roomId) || removed) {
             return MoveStatus.GAME_NOT_READY;
         }
 
@@ -79,16 +154,32 @@ public class GameRoom implements MorpionInterface {
         updateActivity();
 
         if (moveSuccess) {
+            bumpVersion();
+            MoveJournal journal = this.journal;
+            if (journal != null) {
+                journal.appendMove(roomId, version, row, col, playerName);
+            }
+            String symbol = playerName.equals(hostPlayer) ? "X" : "O";
             if (gameState.isGameOver()) {
                 status = RoomStatus.COMPLETED;
+                String winner = gameState.getWinner();
+                RatingService ratings = this.ratings;
+                if (ratings != null && botLevel < 0) {
+                    ratings.gameCompleted(hostPlayer, guestPlayer, winner);
+                }
+                fireEvent(listener -> listener.onMove(roomId, row, col, symbol, null));
+                fireEvent(listener -> listener.onGameOver(roomId, winner));
+            } else {
+                String nextTurn = symbol.equals("X") ? "O" : "X";
+                fireEvent(listener -> listener.onMove(roomId, row, col, symbol, nextTurn));
             }
+            broadcast();
             return MoveStatus.VALID;
         }
         return MoveStatus.INVALID;
     }
 
-    @Override
-    public synchronized String getCurrentBoard(String roomId) throws RemoteException {
+    synchronized String getCurrentBoard(String roomId) {
         if (!this.roomId.equals(roomId)) {
             return "";
         }
@@ -96,8 +187,105 @@ public class GameRoom implements MorpionInterface {
         return gameState.getCurrentBoard();
     }
 
-    @Override
-    public synchronized boolean isGameOver(String roomId) throws RemoteException {
+    synchronized RoomSnapshot getRoomSnapshot(String roomId, String playerName) {
+        if (!this.roomId.equals(roomId)) {
+            return null;
+        }
+        updateActivity();
+        return snapshot(playerName);
+    }
+
+    private RoomSnapshot snapshot(String viewer) {
+        String viewerSymbol = null;
+        if (viewer != null) {
+            if (viewer.equals(hostPlayer)) {
+                viewerSymbol = "X";
+            } else if (viewer.equals(guestPlayer)) {
+                viewerSymbol = "O";
+            }
+        }
+        return new RoomSnapshot(roomId, gameState.getBoardSize(), gameState.getCells(), gameState.getCurrentPlayer(), status,
+                gameState.getWinner(), version, hostPlayer, guestPlayer, viewerSymbol);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Parks the caller on a dedicated signal rather than the room monitor, so
+     * idle waiters never contend with moves. Waiters hold no lock while parked;
+     * each is woken once per version change.
+     */
+    RoomSnapshot waitForChange(String roomId, long sinceVersion, long timeoutMs) {
+        if (!this.roomId.equals(roomId)) {
+            return null;
+        }
+        long remaining = TimeUnit.MILLISECONDS.toNanos(Math.max(0, Math.min(timeoutMs, MAX_WAIT_MS)));
+        changeLock.lock();
+        try {
+            while (version <= sinceVersion && remaining > 0 && !removed) {
+                remaining = changed.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            changeLock.unlock();
+        }
+        // Like a room that was never here, so a sharded client looks for it elsewhere
+        return removed ? null : getRoomSnapshot(roomId, null);
+    }
+
+    /**
+     * waitForChange for callers that can't park a thread, such as an event
+     * loop: wakeup runs once the version passes sinceVersion, right away if it
+     * already has, otherwise on the thread making the change. It must only
+     * hand work off.
+     *
+     * @return Cancels the wait, e.g. on timeout; null if wakeup already ran
+     */
+    Runnable onChange(long sinceVersion, Runnable wakeup) {
+        changeLock.lock();
+        try {
+            if (version <= sinceVersion) {
+                changeWaiters.add(wakeup);
+                return () -> {
+                    changeLock.lock();
+                    try {
+                        changeWaiters.remove(wakeup);
+                    } finally {
+                        changeLock.unlock();
+                    }
+                };
+            }
+        } finally {
+            changeLock.unlock();
+        }
+        wakeup.run();
+        return null;
+    }
+
+    // Called with the room lock held
+    private void bumpVersion() {
+        Runnable[] woken;
+        changeLock.lock();
+        try {
+            version++;
+            changed.signalAll();
+            if (changeWaiters.isEmpty()) {
+                return;
+            }
+            woken = changeWaiters.toArray(new Runnable[0]);
+            changeWaiters.clear();
+        } finally {
+            changeLock.unlock();
+        }
+        for (Runnable wakeup : woken) {
+            wakeup.run();
+        }
+    }
+
+    synchronized boolean isGameOver(String roomId) {
         if (!this.roomId.equals(roomId)) {
             return false;
         }
@@ -105,7 +293,7 @@ public class GameRoom implements MorpionInterface {
         return gameState.isGameOver();
     }
 
-    public synchronized String getWinner(String roomId) throws RemoteException {
+    synchronized String getWinner(String roomId) {
         if (!this.roomId.equals(roomId)) {
             return null;
         }
@@ -113,7 +301,7 @@ public class GameRoom implements MorpionInterface {
         return gameState.getWinner();
     }
 
-    public synchronized boolean isPlayerTurn(String roomId, String playerName) throws RemoteException {
+    synchronized boolean isPlayerTurn(String roomId, String playerName) {
         if (!this.roomId.equals(roomId)) {
             return false;
         }
@@ -121,7 +309,7 @@ public class GameRoom implements MorpionInterface {
         return gameState.isPlayerTurn(playerName);
     }
 
-    public synchronized boolean isGameReady(String roomId) throws RemoteException {
+    synchronized boolean isGameReady(String roomId) {
         if (!this.roomId.equals(roomId)) {
             return false;
         }
@@ -129,31 +317,53 @@ public class GameRoom implements MorpionInterface {
         return guestPlayer != null;
     }
 
-    public synchronized void resetGame(String roomId) throws RemoteException {
-        if (this.roomId.equals(roomId)) {
+    // Like makeMove, a removed room is left alone: its REMOVE record may already be journaled
+    synchronized void resetGame(String roomId) {
+        if (this.roomId.equals(roomId) && !removed) {
             gameState.resetGame();
             status = RoomStatus.IN_PROGRESS;
             updateActivity();
+            bumpVersion();
+            MoveJournal journal = this.journal;
+            if (journal != null) {
+                journal.appendReset(roomId, version);
+            }
+            broadcast();
+            fireEvent(listener -> listener.onGameReset(roomId));
         }
     }
 
-    public synchronized void disconnectPlayer(String roomId, String playerName) throws RemoteException {
-        if (this.roomId.equals(roomId)) {
-            if (playerName.equals(hostPlayer)) {
-                gameState.disconnectPlayer(hostPlayer);
-                if (guestPlayer != null) {
-                    gameState.disconnectPlayer(guestPlayer);
-                }
-            } else if (playerName.equals(guestPlayer)) {
+    /** @return false, changing nothing, if the room is removed or the player isn't seated in it */
+    synchronized boolean disconnectPlayer(String roomId, String playerName) {
+        if (!this.roomId.equals(roomId) || removed) {
+            return false;
+        }
+        if (hostPlayer.equals(playerName)) {
+            gameState.disconnectPlayer(hostPlayer);
+            if (guestPlayer != null) {
                 gameState.disconnectPlayer(guestPlayer);
-                guestPlayer = null;
             }
-            updateActivity();
-            status = RoomStatus.WAITING;
+        } else if (playerName != null && playerName.equals(guestPlayer)) {
+            gameState.disconnectPlayer(guestPlayer);
+            guestPlayer = null;
+            botLevel = -1;
+        } else {
+            return false;
+        }
+        listeners.remove(playerName);
+        updateActivity();
+        status = RoomStatus.WAITING;
+        bumpVersion();
+        MoveJournal journal = this.journal;
+        if (journal != null) {
+            journal.appendDisconnect(roomId, version, playerName);
         }
+        broadcast();
+        fireEvent(listener -> listener.onOpponentLeft(roomId, playerName));
+        return true;
     }
 
-    public synchronized String getPlayerSymbol(String roomId, String playerName) throws RemoteException {
+    synchronized String getPlayerSymbol(String roomId, String playerName) {
         if (!this.roomId.equals(roomId)) {
             return null;
         }
@@ -166,93 +376,260 @@ public class GameRoom implements MorpionInterface {
         return null;
     }
 
-    @Override
-    public String createRoom(String playerName) throws RemoteException {
-        throw new UnsupportedOperationException("Use GameRoomManager to create rooms");
+    synchronized RoomStatus getRoomStatus(String roomId) {
+        if (this.roomId.equals(roomId)) {
+            return status;
+        }
+        return RoomStatus.ERROR;
+    }
+
+    /**
+     * Seats a server-side bot as the guest. Its moves are searched on the given
+     * executor, driven by the same events remote listeners receive.
+     */
+    RegistrationStatus addBot(BotDifficulty difficulty, Executor botExecutor,
+            PerfectPlayTable perfectPlay) {
+        String botName = "Bot-" + difficulty.name().toLowerCase() + "-" + roomId;
+        synchronized (this) {
+            RegistrationStatus registration = seatGuest(botName);
+            if (registration != RegistrationStatus.PLAYER_O) {
+                return registration;
+            }
+            MoveJournal journal = this.journal;
+            if (journal != null) {
+                journal.appendBot(roomId, version, botName, difficulty.ordinal());
+            }
+        }
+        attachBot(botName, difficulty, botExecutor, perfectPlay);
+        return RegistrationStatus.PLAYER_O;
     }
 
-    @Override
-    public RegistrationStatus joinRoom(String roomId, String playerName) throws RemoteException {
-        return registerPlayer(playerName);
+    /**
+     * Gives an already seated guest a bot brain. Used directly by recovery,
+     * which replays the bot's journaled moves before letting it think again.
+     * Its first search is queued once the room lock is released.
+     */
+    void attachBot(String botName, BotDifficulty difficulty, Executor botExecutor,
+            PerfectPlayTable perfectPlay) {
+        BotPlayer bot;
+        synchronized (this) {
+            if (!botName.equals(guestPlayer)) {
+                return;
+            }
+            bot = new BotPlayer(this, roomId, botName, difficulty, botExecutor, perfectPlay);
+            botLevel = difficulty.ordinal();
+            listeners.put(botName, bot);
+        }
+        bot.resume();
     }
 
-    @Override
-    public List<String> listAvailableRooms() throws RemoteException {
-        throw new UnsupportedOperationException("Use GameRoomManager to list rooms");
+    boolean registerListener(String roomId, String playerName, GameListener listener) {
+        if (!this.roomId.equals(roomId) || listener == null) {
+            return false;
+        }
+        synchronized (this) {
+            if (!playerName.equals(hostPlayer) && !playerName.equals(guestPlayer)) {
+                return false;
+            }
+        }
+        listeners.put(playerName, listener);
+        return true;
     }
 
-    @Override
-    public synchronized RoomStatus getRoomStatus(String roomId) throws RemoteException {
+    void unregisterListener(String roomId, String playerName) {
         if (this.roomId.equals(roomId)) {
-            return status;
+            listeners.remove(playerName);
         }
-        return RoomStatus.ERROR;
     }
 
-    // Non-interface methods for room management
-    public synchronized boolean isInactive(long timeoutMillis) {
-        return (System.currentTimeMillis() - lastActivityTime) > timeoutMillis;
+    @FunctionalInterface
+    private interface ListenerCall {
+        void invoke(GameListener listener) throws RemoteException;
     }
 
-    public synchronized boolean isEmpty() {
-        return guestPlayer == null;
+    /**
+     * Queues an event for every registered listener. Delivery happens off the
+     * caller's thread and in order; a listener that cannot be reached is dropped
+     * and its client falls back to polling.
+     */
+    private void fireEvent(ListenerCall call) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        eventExecutor.execute(() -> listeners.forEach((name, listener) -> {
+            try {
+                call.invoke(listener);
+            } catch (RemoteException e) {
+                listeners.remove(name, listener);
+                System.out.println("[ROOM] Dropped unreachable listener of " + name + " in room " + roomId);
+            }
+        }));
     }
 
-    public synchronized String getHostPlayer() {
-        return hostPlayer;
+    /* Spectators */
+
+    /**
+     * Adds a spectator and returns the current state. Only the first
+     * spectator of a room reads it under the room lock; later ones get the
+     * last published state, and none of them counts as room activity.
+     */
+    RoomSnapshot watch(String spectatorName, SpectatorListener listener, Executor encoder, Executor deliverer) {
+        SpectatorFeed feed = spectatorFeed;
+        if (feed == null) {
+            synchronized (this) {
+                if (spectatorFeed == null) {
+                    spectatorFeed = new SpectatorFeed(roomId, encoder, deliverer);
+                }
+                feed = spectatorFeed;
+            }
+        }
+        // Every change from here on is published, so the state below is never left stale
+        RoomBroadcast current = feed.getLatest();
+        if (current == null) {
+            synchronized (this) {
+                current = new RoomBroadcast(snapshot(null));
+            }
+        }
+        feed.watch(spectatorName, listener, current);
+        return current.getSnapshot();
     }
 
-    public synchronized String getGuestPlayer() {
-        return guestPlayer;
+    void unwatch(String spectatorName) {
+        SpectatorFeed feed = spectatorFeed;
+        if (feed != null) {
+            feed.unwatch(spectatorName);
+        }
     }
 
-    private synchronized void updateActivity() {
-        lastActivityTime = System.currentTimeMillis();
+    // Called with the room lock held, after the change is applied
+    private void broadcast() {
+        SpectatorFeed feed = spectatorFeed;
+        if (feed != null) {
+            feed.publish(snapshot(null));
+        }
     }
 
-    // Default implementations of non-room-scoped methods
-    @Override
-    public MoveStatus makeMove(int row, int col, String playerName) throws RemoteException {
-        return makeMove(roomId, row, col, playerName);
+    /* Checkpointing */
+
+    /**
+     * Flags a room the server has just dropped. Called with the room lock held
+     * so that a checkpoint sees either the live room or nothing at all.
+     */
+    synchronized void markRemoved() {
+        removed = true;
+    }
+
+    /**
+     * Writes the room for another node and removes it here in one step, so
+     * nothing can change between the copy and the removal. Long polls are
+     * woken and get no snapshot, as for a room that isn't here.
+     *
+     * @return false, writing nothing, if the room has already been removed
+     */
+    synchronized boolean handOff(DataOutput out) throws IOException {
+        if (!writeTo(out)) {
+            return false;
+        }
+        removed = true;
+        Runnable[] woken;
+        changeLock.lock();
+        try {
+            changed.signalAll();
+            woken = changeWaiters.toArray(new Runnable[0]);
+            changeWaiters.clear();
+        } finally {
+            changeLock.unlock();
+        }
+        for (Runnable wakeup : woken) {
+            wakeup.run();
+        }
+        return true;
+    }
+
+    /** @return BotDifficulty ordinal of the seated bot, or -1 */
+    synchronized int getBotLevel() {
+        return botLevel;
+    }
+
+    /**
+     * Writes the room for a checkpoint. Listeners are not saved: clients
+     * register again after a restart.
+     *
+     * @return false, writing nothing, if the room has been removed
+     */
+    synchronized boolean writeTo(DataOutput out) throws IOException {
+        if (removed) {
+            return false;
+        }
+        out.writeUTF(roomId);
+        out.writeUTF(hostPlayer);
+        out.writeBoolean(guestPlayer != null);
+        if (guestPlayer != null) {
+            out.writeUTF(guestPlayer);
+        }
+        out.writeByte(status.ordinal());
+        out.writeLong(version);
+        out.writeByte(botLevel);
+        gameState.writeTo(out);
+        return true;
     }
 
-    @Override
-    public String getCurrentBoard() throws RemoteException {
-        return getCurrentBoard(roomId);
+    /** Reads a room written by writeTo; a seated bot must be attached again. */
+    static GameRoom readFrom(DataInput in, Executor callbackExecutor) throws IOException {
+        String roomId = in.readUTF();
+        String host = in.readUTF();
+        String guest = in.readBoolean() ? in.readUTF() : null;
+        int statusOrdinal = in.readUnsignedByte();
+        if (statusOrdinal >= RoomStatus.values().length) {
+            throw new IOException("Bad status for room " + roomId);
+        }
+        long version = in.readLong();
+        int botLevel = in.readByte();
+        GameRoom room = new GameRoom(roomId, host, guest, RoomStatus.values()[statusOrdinal], version,
+                GameState.readFrom(in), callbackExecutor);
+        room.botLevel = botLevel;
+        return room;
     }
 
-    @Override
-    public boolean isGameOver() throws RemoteException {
-        return isGameOver(roomId);
+    // Room management
+    public boolean isInactive(long timeoutMillis) {
+        return (System.currentTimeMillis() - lastActivityTime) > timeoutMillis;
     }
 
-    @Override
-    public String getWinner() throws RemoteException {
-        return getWinner(roomId);
+    public long getLastActivityTime() {
+        return lastActivityTime;
     }
 
-    @Override
-    public boolean isPlayerTurn(String playerName) throws RemoteException {
-        return isPlayerTurn(roomId, playerName);
+    boolean isRemoved() {
+        return removed;
     }
 
-    @Override
-    public boolean isGameReady() throws RemoteException {
-        return isGameReady(roomId);
+    public synchronized boolean isEmpty() {
+        return guestPlayer == null;
     }
 
-    @Override
-    public void resetGame() throws RemoteException {
-        resetGame(roomId);
+    public String getRoomId() {
+        return roomId;
     }
 
-    @Override
-    public void disconnectPlayer(String playerName) throws RemoteException {
-        disconnectPlayer(roomId, playerName);
+    public synchronized String getHostPlayer() {
+        return hostPlayer;
     }
 
-    @Override
-    public String getPlayerSymbol(String playerName) throws RemoteException {
-        return getPlayerSymbol(roomId, playerName);
+    public synchronized String getGuestPlayer() {
+        return guestPlayer;
+    }
+
+    public int getBoardSize() {
+        return gameState.getBoardSize();
+    }
+
+    public int getWinLength() {
+        return gameState.getWinLength();
+    }
+
+    // A plain volatile write: no lock, and the expiry wheel picks it up lazily
+    private void updateActivity() {
+        lastActivityTime = System.currentTimeMillis();
     }
-}
\ No newline at end of file
+}
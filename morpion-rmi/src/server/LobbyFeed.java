@@ -0,0 +1,104 @@
+package server;
+
+import shared.LobbyListener;
+import shared.LobbyPage;
+import shared.LobbyUpdate;
+import java.rmi.RemoteException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pushes lobby changes to subscribed clients. Changes are never sent one by
+ * one: the first change after a quiet period schedules a flush BATCH_DELAY_MS
+ * later, and that flush sends each subscriber everything past its cursor,
+ * coalesced per room, in a single call. Subscribers at the same cursor share
+ * one update. A subscriber has at most one call in flight, so a slow client
+ * just gets bigger batches.
+ */
+final class LobbyFeed {
+    static final long BATCH_DELAY_MS = 100;
+
+    private final LobbyIndex index;
+    private final ScheduledExecutorService scheduler;
+    private final Executor deliveryExecutor;
+    private final Map<String, Subscriber> subscribers = new ConcurrentHashMap<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    private static final class Subscriber {
+        final LobbyListener listener;
+        final AtomicBoolean inFlight = new AtomicBoolean();
+        volatile long cursor; // last version delivered
+
+        Subscriber(LobbyListener listener, long cursor) {
+            this.listener = listener;
+            this.cursor = cursor;
+        }
+    }
+
+    LobbyFeed(LobbyIndex index, ScheduledExecutorService scheduler, Executor deliveryExecutor) {
+        this.index = index;
+        this.scheduler = scheduler;
+        this.deliveryExecutor = deliveryExecutor;
+    }
+
+    /**
+     * Registers (or replaces) a player's listener.
+     *
+     * @return The first lobby page; updates continue from its version
+     */
+    LobbyPage subscribe(String playerName, LobbyListener listener) {
+        LobbyPage page = index.page(null, LobbyIndex.PAGE_SIZE);
+        subscribers.put(playerName, new Subscriber(listener, page.getVersion()));
+        changed(); // catch up on anything newer than the page
+        return page;
+    }
+
+    void unsubscribe(String playerName) {
+        subscribers.remove(playerName);
+    }
+
+    int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /** Called after every lobby change; schedules at most one pending flush. */
+    void changed() {
+        if (!subscribers.isEmpty() && flushScheduled.compareAndSet(false, true)) {
+            scheduler.schedule(this::flush, BATCH_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flush() {
+        flushScheduled.set(false);
+        long current = index.getVersion();
+        Map<Long, LobbyUpdate> updates = new HashMap<>();
+        subscribers.forEach((name, subscriber) -> {
+            if (subscriber.cursor >= current || !subscriber.inFlight.compareAndSet(false, true)) {
+                return;
+            }
+            LobbyUpdate update = updates.computeIfAbsent(subscriber.cursor, index::changesSince);
+            deliveryExecutor.execute(() -> deliver(name, subscriber, update));
+        });
+    }
+
+    private void deliver(String name, Subscriber subscriber, LobbyUpdate update) {
+        try {
+            subscriber.listener.onLobbyUpdate(update);
+            subscriber.cursor = update.getToVersion();
+        } catch (RemoteException e) {
+            subscribers.remove(name, subscriber);
+            System.out.println("[SERVER] Dropped unreachable lobby subscriber " + name);
+        } finally {
+            subscriber.inFlight.set(false);
+        }
+        // Changes that arrived during the call missed the flush that skipped us
+        if (subscriber.cursor < index.getVersion()) {
+            changed();
+        }
+    }
+}
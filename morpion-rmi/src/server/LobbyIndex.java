@@ -0,0 +1,158 @@
+package server;
+
+import shared.LobbyDelta;
+import shared.LobbyPage;
+import shared.LobbyUpdate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Joinable rooms, updated as rooms are created, filled and removed so that the
+ * lobby never has to look at the rooms themselves. Entries are kept in room id
+ * order, which makes any page a range read from its cursor: a lobby refresh
+ * costs O(log n + page size) whatever the number of rooms.
+ *
+ * The first page is what almost every client asks for, so it is built at most
+ * once per lobby version and the same instance is returned until the lobby
+ * changes.
+ *
+ * Every change gets the next version number and is kept in a ring of the last
+ * LOG_CAPACITY changes, from which subscribers are sent what they missed.
+ */
+final class LobbyIndex {
+    static final int PAGE_SIZE = 50;
+    static final int MAX_PAGE_SIZE = 200;
+    private static final int LOG_CAPACITY = 4096; // power of two
+
+    private final ConcurrentSkipListMap<String, String> rooms = new ConcurrentSkipListMap<>();
+    private final AtomicInteger count = new AtomicInteger(); // skip list size() is O(n)
+    private final LobbyDelta[] log = new LobbyDelta[LOG_CAPACITY]; // change n is at n % LOG_CAPACITY
+    private final Runnable onChange;
+    private volatile long version; // written under the log lock only
+    private volatile LobbyPage firstPage;
+
+    /** @param onChange Called after every change, e.g. to wake the lobby feed */
+    LobbyIndex(Runnable onChange) {
+        this.onChange = onChange;
+    }
+
+    static String describe(String roomId, String host, int boardSize) {
+        return roomId + " (Host: " + host + ", " + boardSize + "x" + boardSize + ")";
+    }
+
+    /*
+     * No lock orders the changes of one room; the order of its life does. A
+     * room is added once, by whoever put it in the room map, after its
+     * putIfAbsent and before its id is returned or listed, so nobody can fill
+     * or remove it earlier. It is taken off once filled (after the guest is
+     * seated) or removed (after markRemoved), and taking off a room that is no
+     * longer listed is a no-op, so a room's changes reach the log in order.
+     */
+
+    /** Lists a room as joinable. */
+    void add(String roomId, String description) {
+        if (rooms.put(roomId, description) == null) {
+            count.incrementAndGet();
+        }
+        record(new LobbyDelta(LobbyDelta.Type.ADDED, roomId, description));
+    }
+
+    /**
+     * Takes a room off the lobby; no-op if it isn't listed.
+     *
+     * @param type FILLED or REMOVED
+     */
+    void remove(String roomId, LobbyDelta.Type type) {
+        if (rooms.remove(roomId) != null) {
+            count.decrementAndGet();
+            record(new LobbyDelta(type, roomId, null));
+        }
+    }
+
+    private void record(LobbyDelta delta) {
+        synchronized (log) {
+            long next = version + 1;
+            log[(int) (next & (LOG_CAPACITY - 1))] = delta;
+            version = next;
+        }
+        onChange.run();
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return Changes after sinceVersion up to now, latest per room, or a
+     *         resync request if they have left the log
+     */
+    LobbyUpdate changesSince(long sinceVersion) {
+        long current;
+        List<LobbyDelta> slice;
+        synchronized (log) {
+            current = version;
+            if (sinceVersion < current - LOG_CAPACITY || sinceVersion > current) {
+                return new LobbyUpdate(sinceVersion, current, count.get(), true, new ArrayList<>());
+            }
+            slice = new ArrayList<>((int) (current - sinceVersion));
+            for (long v = sinceVersion + 1; v <= current; v++) {
+                slice.add(log[(int) (v & (LOG_CAPACITY - 1))]);
+            }
+        }
+        // Coalesce: a burst of changes to one room becomes its last change
+        Map<String, LobbyDelta> latest = new LinkedHashMap<>();
+        for (LobbyDelta delta : slice) {
+            latest.remove(delta.getRoomId());
+            latest.put(delta.getRoomId(), delta);
+        }
+        return new LobbyUpdate(sinceVersion, current, count.get(), false, new ArrayList<>(latest.values()));
+    }
+
+    int size() {
+        return count.get();
+    }
+
+    /**
+     * @param afterRoomId Cursor from the previous page, or null for the first
+     * @param limit       Rooms wanted, capped at MAX_PAGE_SIZE
+     */
+    LobbyPage page(String afterRoomId, int limit) {
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        if (afterRoomId == null && size == PAGE_SIZE) {
+            return firstPage();
+        }
+        return build(afterRoomId, size);
+    }
+
+    private LobbyPage firstPage() {
+        LobbyPage cached = firstPage;
+        if (cached != null && cached.getVersion() == version) {
+            return cached;
+        }
+        LobbyPage page = build(null, PAGE_SIZE);
+        firstPage = page;
+        return page;
+    }
+
+    // The version is read first: a page may show changes newer than its version, never older
+    private LobbyPage build(String afterRoomId, int size) {
+        long pageVersion = version;
+        ConcurrentNavigableMap<String, String> range = afterRoomId == null ? rooms : rooms.tailMap(afterRoomId, false);
+        List<String> entries = new ArrayList<>(size);
+        String last = null;
+        Iterator<Map.Entry<String, String>> it = range.entrySet().iterator();
+        while (it.hasNext() && entries.size() < size) {
+            Map.Entry<String, String> entry = it.next();
+            entries.add(entry.getValue());
+            last = entry.getKey();
+        }
+        String nextCursor = it.hasNext() ? last : null;
+        return new LobbyPage(pageVersion, count.get(), nextCursor, entries);
+    }
+}
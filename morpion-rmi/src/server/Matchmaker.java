@@ -0,0 +1,289 @@
+package server;
+
+import shared.MatchOptions;
+import shared.MatchResult;
+import shared.MatchmakingStats;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+
+/**
+ * Pairs quickMatch players without a global lock. Players wait in one
+ * lock-free queue per board configuration, and a ticket is claimed with a
+ * single compare-and-set on its state, so two matchers can never take the same
+ * player.
+ *
+ * An arriving player first looks for an opponent among the oldest tickets of
+ * its bucket. A periodic pass then pairs whoever is left by rating. The
+ * acceptable rating gap starts at BASE_BAND and widens the longer a player
+ * waits, so nobody waits forever for a perfect opponent.
+ */
+final class Matchmaker {
+    static final int DEFAULT_RATING = 1500;
+    static final long PASS_INTERVAL_MS = 250;
+    static final long MAX_WAIT_MS = 30000; // cap for one blocking quickMatch call
+    private static final int BASE_BAND = 100;
+    private static final int BAND_GROWTH_PER_SECOND = 50;
+    private static final int SCAN_LIMIT = 64; // tickets an arrival looks at
+    private static final long ABANDON_MS = 60000; // waiting tickets nobody polled for this long are dropped
+
+    /** Creates a room with both players already seated and returns its id. */
+    @FunctionalInterface
+    interface RoomFactory {
+        String openRoom(String host, String guest, int boardSize, int winLength);
+    }
+
+    private static final class Ticket {
+        static final int WAITING = 0;
+        static final int CLAIMED = 1; // held by a matcher while it pairs
+        static final int DONE = 2;
+
+        final String player;
+        final int rating;
+        final int boardSize;
+        final int winLength;
+        final long enqueuedAt = System.currentTimeMillis();
+        final AtomicInteger state = new AtomicInteger(WAITING);
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile long lastPolled = enqueuedAt;
+        volatile MatchResult result;
+
+        Ticket(String player, int rating, int boardSize, int winLength) {
+            this.player = player;
+            this.rating = rating;
+            this.boardSize = boardSize;
+            this.winLength = winLength;
+        }
+
+        int band(long now) {
+            return BASE_BAND + (int) Math.min(Integer.MAX_VALUE / 2, (now - enqueuedAt) / 1000 * BAND_GROWTH_PER_SECOND);
+        }
+
+        void finish(MatchResult outcome) {
+            result = outcome;
+            state.set(DONE);
+            done.countDown();
+        }
+    }
+
+    private final Map<Integer, Queue<Ticket>> buckets = new ConcurrentHashMap<>();
+    private final Map<String, Ticket> tickets = new ConcurrentHashMap<>(); // by player
+    private final ToIntFunction<String> ratings;
+    private final RoomFactory rooms;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final LongAdder matches = new LongAdder();
+    private final LongAdder matchedPlayers = new LongAdder();
+    private final LongAdder totalWaitMs = new LongAdder();
+    private final AtomicLong maxWaitMs = new AtomicLong();
+
+    Matchmaker(ToIntFunction<String> ratings, RoomFactory rooms) {
+        this.ratings = ratings;
+        this.rooms = rooms;
+    }
+
+    private static int bucketKey(int boardSize, int winLength) {
+        return boardSize << 8 | winLength;
+    }
+
+    /**
+     * Queues the player, or resumes waiting on their existing ticket, and
+     * blocks up to options.getMaxWaitMs() for an opponent.
+     */
+    MatchResult quickMatch(String playerName, MatchOptions options) {
+        AtomicBoolean fresh = new AtomicBoolean();
+        AtomicReference<Ticket> replaced = new AtomicReference<>();
+        Ticket ticket = tickets.compute(playerName, (name, existing) -> {
+            if (existing != null && existing.boardSize == options.getBoardSize()
+                    && existing.winLength == options.getWinLength()) {
+                return existing;
+            }
+            replaced.set(existing);
+            fresh.set(true);
+            return new Ticket(name, ratings.applyAsInt(name), options.getBoardSize(), options.getWinLength());
+        });
+        if (replaced.get() != null) {
+            // Looking for another board now; cancelled out here, as it may wait for a matcher
+            cancel(replaced.get());
+        }
+        if (fresh.get()) {
+            waiting.incrementAndGet();
+            Queue<Ticket> bucket = buckets.computeIfAbsent(bucketKey(ticket.boardSize, ticket.winLength),
+                    key -> new ConcurrentLinkedQueue<>());
+            // Published before searching, so two simultaneous arrivals can't miss each other
+            bucket.add(ticket);
+            matchOnArrival(bucket, ticket);
+        }
+
+        ticket.lastPolled = System.currentTimeMillis();
+        try {
+            ticket.done.await(Math.max(0, Math.min(options.getMaxWaitMs(), MAX_WAIT_MS)), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        MatchResult result = ticket.result;
+        if (result == null) {
+            return MatchResult.of(MatchResult.Status.WAITING, System.currentTimeMillis() - ticket.enqueuedAt);
+        }
+        tickets.remove(playerName, ticket);
+        return result;
+    }
+
+    /** Takes the player out of the queue; no-op if they are not waiting. */
+    void cancel(String playerName) {
+        Ticket ticket = tickets.remove(playerName);
+        if (ticket != null) {
+            cancel(ticket);
+        }
+    }
+
+    private void cancel(Ticket ticket) {
+        while (true) {
+            int state = ticket.state.get();
+            if (state == Ticket.DONE) {
+                return;
+            }
+            if (state == Ticket.WAITING && ticket.state.compareAndSet(Ticket.WAITING, Ticket.CLAIMED)) {
+                waiting.decrementAndGet();
+                ticket.finish(MatchResult.of(MatchResult.Status.CANCELLED,
+                        System.currentTimeMillis() - ticket.enqueuedAt));
+                return;
+            }
+            Thread.onSpinWait(); // a matcher holds it for a moment
+        }
+    }
+
+    // Oldest tickets first: they have waited longest and accept the widest gap
+    private void matchOnArrival(Queue<Ticket> bucket, Ticket ticket) {
+        long now = System.currentTimeMillis();
+        int scanned = 0;
+        for (Iterator<Ticket> it = bucket.iterator(); it.hasNext() && scanned < SCAN_LIMIT;) {
+            if (ticket.state.get() != Ticket.WAITING) {
+                return; // someone else paired us meanwhile
+            }
+            Ticket candidate = it.next();
+            if (candidate == ticket) {
+                continue;
+            }
+            int state = candidate.state.get();
+            if (state == Ticket.DONE) {
+                it.remove();
+                continue;
+            }
+            scanned++;
+            if (state == Ticket.WAITING && compatible(candidate, ticket, now) && tryPair(candidate, ticket)) {
+                return;
+            }
+        }
+    }
+
+    private static boolean compatible(Ticket a, Ticket b, long now) {
+        return Math.abs(a.rating - b.rating) <= Math.max(a.band(now), b.band(now));
+    }
+
+    /**
+     * Claims both tickets, then seats them in a new room. The host (X) is the
+     * one who waited longer.
+     */
+    private boolean tryPair(Ticket host, Ticket guest) {
+        if (!host.state.compareAndSet(Ticket.WAITING, Ticket.CLAIMED)) {
+            return false;
+        }
+        if (!guest.state.compareAndSet(Ticket.WAITING, Ticket.CLAIMED)) {
+            host.state.set(Ticket.WAITING);
+            return false;
+        }
+        waiting.addAndGet(-2);
+        String roomId;
+        try {
+            roomId = rooms.openRoom(host.player, guest.player, host.boardSize, host.winLength);
+        } catch (RuntimeException e) {
+            // Both are claimed: finish them, or they would wait forever
+            long now = System.currentTimeMillis();
+            host.finish(MatchResult.of(MatchResult.Status.ERROR, now - host.enqueuedAt));
+            guest.finish(MatchResult.of(MatchResult.Status.ERROR, now - guest.enqueuedAt));
+            System.err.println("[MATCH] Could not open a room for " + host.player + " and " + guest.player + ": "
+                    + e);
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        long hostWait = now - host.enqueuedAt;
+        long guestWait = now - guest.enqueuedAt;
+        host.finish(new MatchResult(MatchResult.Status.MATCHED, roomId, "X", guest.player, hostWait));
+        guest.finish(new MatchResult(MatchResult.Status.MATCHED, roomId, "O", host.player, guestWait));
+        matches.increment();
+        matchedPlayers.add(2);
+        totalWaitMs.add(hostWait + guestWait);
+        maxWaitMs.accumulateAndGet(hostWait, Math::max);
+        System.out.println("[MATCH] Paired " + host.player + " (" + host.rating + ") with " + guest.player + " ("
+                + guest.rating + ") in room " + roomId + " after " + hostWait + " ms, " + waiting.get()
+                + " waiting");
+        return true;
+    }
+
+    /**
+     * Periodic pass over every bucket: drops abandoned and finished tickets,
+     * then pairs rating neighbours whose widened bands now overlap. Results
+     * nobody came back for within ABANDON_MS are forgotten too. Never throws,
+     * so a failure can't cancel the schedule that runs it.
+     */
+    void pass() {
+        try {
+            matchWaiting(System.currentTimeMillis());
+        } catch (RuntimeException e) {
+            System.err.println("[MATCH] Matching pass failed: " + e);
+        }
+    }
+
+    private void matchWaiting(long now) {
+        for (Ticket ticket : tickets.values()) {
+            if (ticket.state.get() == Ticket.DONE && now - ticket.lastPolled > ABANDON_MS) {
+                tickets.remove(ticket.player, ticket);
+            }
+        }
+        for (Queue<Ticket> bucket : buckets.values()) {
+            List<Ticket> open = new ArrayList<>();
+            for (Iterator<Ticket> it = bucket.iterator(); it.hasNext();) {
+                Ticket ticket = it.next();
+                if (ticket.state.get() == Ticket.WAITING && now - ticket.lastPolled > ABANDON_MS) {
+                    tickets.remove(ticket.player, ticket);
+                    cancel(ticket);
+                }
+                if (ticket.state.get() == Ticket.DONE) {
+                    it.remove();
+                } else {
+                    open.add(ticket);
+                }
+            }
+            open.sort(Comparator.comparingInt(ticket -> ticket.rating));
+            for (int i = 0; i + 1 < open.size(); i++) {
+                Ticket a = open.get(i);
+                Ticket b = open.get(i + 1);
+                if (compatible(a, b, now)) {
+                    boolean paired = a.enqueuedAt <= b.enqueuedAt ? tryPair(a, b) : tryPair(b, a);
+                    if (paired) {
+                        i++;
+                    }
+                }
+            }
+        }
+    }
+
+    MatchmakingStats getStats() {
+        long players = matchedPlayers.sum();
+        return new MatchmakingStats(waiting.get(), matches.sum(),
+                players == 0 ? 0 : (double) totalWaitMs.sum() / players, maxWaitMs.get());
+    }
+}
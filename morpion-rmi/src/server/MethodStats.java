@@ -0,0 +1,65 @@
+package server;
+
+import java.util.Map;
+
+/**
+ * Statistics of one remote method at the time they were read, as shown by
+ * ServerMetricsMXBean. Latencies are in microseconds, measured on the
+ * server from dispatch to return, so network time is not included.
+ */
+public final class MethodStats {
+    private final long calls;
+    private final long failures;
+    private final double meanMicros;
+    private final double p50Micros;
+    private final double p99Micros;
+    private final double p999Micros;
+    private final double maxMicros;
+    private final Map<String, Long> outcomes;
+
+    MethodStats(long calls, long failures, double meanMicros, double p50Micros, double p99Micros,
+            double p999Micros, double maxMicros, Map<String, Long> outcomes) {
+        this.calls = calls;
+        this.failures = failures;
+        this.meanMicros = meanMicros;
+        this.p50Micros = p50Micros;
+        this.p99Micros = p99Micros;
+        this.p999Micros = p999Micros;
+        this.maxMicros = maxMicros;
+        this.outcomes = outcomes;
+    }
+
+    public long getCalls() {
+        return calls;
+    }
+
+    /** @return Calls that ended with an exception */
+    public long getFailures() {
+        return failures;
+    }
+
+    public double getMeanMicros() {
+        return meanMicros;
+    }
+
+    public double getP50Micros() {
+        return p50Micros;
+    }
+
+    public double getP99Micros() {
+        return p99Micros;
+    }
+
+    public double getP999Micros() {
+        return p999Micros;
+    }
+
+    public double getMaxMicros() {
+        return maxMicros;
+    }
+
+    /** @return Count per returned status (MoveStatus, RegistrationStatus...), empty for other methods */
+    public Map<String, Long> getOutcomes() {
+        return outcomes;
+    }
+}
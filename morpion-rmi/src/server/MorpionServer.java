@@ -1,89 +1,382 @@
 package server;
 
+import shared.ExecutionMode;
+import shared.GameListener;
+import shared.LeaderboardPage;
+import shared.LobbyDelta;
+import shared.LobbyListener;
+import shared.LobbyPage;
+import shared.LobbyUpdate;
+import shared.MatchOptions;
+import shared.MatchResult;
+import shared.MatchmakingStats;
 import shared.MorpionInterface;
+import shared.PlayerStats;
+import shared.RoomSnapshot;
+import shared.ShardDirectoryInterface;
+import shared.ShardNodeInterface;
+import shared.SpectatorListener;
+import model.GameState;
+import model.PerfectPlayTable;
+import java.rmi.NotBoundException;
 import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
 import java.rmi.server.UnicastRemoteObject;
+import java.lang.management.ManagementFactory;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.UUID;
 import java.util.List;
 import java.util.ArrayList;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
-public class MorpionServer extends UnicastRemoteObject implements MorpionInterface {
+public class MorpionServer implements MorpionInterface {
     private final ConcurrentHashMap<String, GameRoom> gameRooms = new ConcurrentHashMap<>();
-    private final ScheduledExecutorService cleanupExecutor = Executors.newScheduledThreadPool(1);
+    private final LobbyIndex lobby = new LobbyIndex(this::lobbyChanged); // joinable rooms only
+    private final PerfectPlayTable perfectPlay;
+    // Daemon, like the other housekeeping threads: the exported RMI object is what keeps the JVM up
+    private final ScheduledExecutorService cleanupExecutor = Executors.newSingleThreadScheduledExecutor(
+            task -> {
+                Thread thread = new Thread(task, "room-cleanup");
+                thread.setDaemon(true);
+                return thread;
+            });
+    // Callbacks block on the network, so they may run on virtual threads (see ExecutionMode)
+    private final ExecutorService callbackExecutor = ExecutionMode.newExecutor("callback",
+            () -> Executors.newFixedThreadPool(CALLBACK_THREADS));
+    // Spectators get their own threads: a stalled spectator can't delay the players' callbacks
+    private final ExecutorService spectatorExecutor = ExecutionMode.newExecutor("spectator",
+            () -> Executors.newFixedThreadPool(SPECTATOR_THREADS));
+    // Encoding never blocks, and has threads of its own so stalled spectator calls can't queue it
+    private final ExecutorService spectatorEncoder = Executors.newFixedThreadPool(SPECTATOR_ENCODER_THREADS);
+    // Bounded so that bot searches can never starve the rest of the server; a search
+    // that finds the queue full is queued again later, never run by the caller
+    private final ExecutorService botPool = new ThreadPoolExecutor(BOT_THREADS, BOT_THREADS,
+            0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(BOT_QUEUE_CAPACITY));
+    private final Executor botExecutor = this::searchWhenFree;
+    private final LobbyFeed lobbyFeed = new LobbyFeed(lobby, cleanupExecutor, callbackExecutor);
+    private final Matchmaker matchmaker;
     private static final long ROOM_TIMEOUT = TimeUnit.MINUTES.toMillis(5);
+    // One-second resolution; 512 slots span the whole timeout, so a room is visited about once per timeout
+    private static final long EXPIRY_TICK_MS = 1000;
+    private static final int EXPIRY_SLOTS = 512;
+    private final ExpiryWheel<String> expiryWheel = new ExpiryWheel<>(EXPIRY_TICK_MS, EXPIRY_SLOTS,
+            this::roomDeadline, this::expireRoom);
     private static final String DEFAULT_ROOM_ID = "default";
+    private static final int CALLBACK_THREADS = 4;
+    private static final int SPECTATOR_THREADS = 4;
+    private static final int SPECTATOR_ENCODER_THREADS = 2;
+    private static final int BOT_THREADS = 2;
+    private static final int BOT_QUEUE_CAPACITY = 1000;
+    private static final long BOT_RETRY_MS = 100;
 
-    public MorpionServer() throws RemoteException {
-        cleanupExecutor.scheduleAtFixedRate(this::cleanupInactiveRooms, 1, 1, TimeUnit.MINUTES);
+    // Journal location ("none" disables it) and durability window between fsyncs
+    private static final String JOURNAL_PROPERTY = "morpion.journal";
+    private static final String JOURNAL_SYNC_PROPERTY = "morpion.journal.syncMs";
+    private static final String DEFAULT_JOURNAL = "data/morpion.journal";
+    private static final long DEFAULT_SYNC_MS = 20;
+    private final MoveJournal journal;
+
+    // Checkpoint location and how often one is taken; each lets the journal start over
+    private static final String CHECKPOINT_PROPERTY = "morpion.checkpoint";
+    private static final String CHECKPOINT_INTERVAL_PROPERTY = "morpion.checkpoint.intervalSec";
+    private static final String DEFAULT_CHECKPOINT = "data/morpion.checkpoint";
+    private static final long DEFAULT_CHECKPOINT_INTERVAL_SEC = 300;
+    private final Object checkpointLock = new Object();
+    private Path checkpointPath;
+    // Its own thread: a checkpoint writes every room and may wait on the journal, which
+    // must not hold up matchmaking, expiry or the lobby feed on the maintenance thread
+    private final ScheduledExecutorService checkpointExecutor = Executors.newSingleThreadScheduledExecutor(
+            task -> {
+                Thread thread = new Thread(task, "checkpoint");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    // Port of the BinaryProtocol front-end, off unless set: -Dmorpion.binary.port=1100
+    // (BinaryProtocol.DEFAULT_PORT, where clients look by default) turns it on
+    private static final String BINARY_PORT_PROPERTY = "morpion.binary.port";
+    // Selector threads sharing its connections; defaults to one per core
+    private static final String BINARY_REACTORS_PROPERTY = "morpion.binary.reactors";
+
+    // Player profile file ("none" keeps ratings in memory only)
+    private static final String PROFILES_PROPERTY = "morpion.profiles";
+    private static final String DEFAULT_PROFILES = "data/morpion.profiles";
+    private final RatingService ratings;
+    // One exclusive lock per data file, held for the life of the process so that a second
+    // server pointed at the same journal, checkpoint or profiles refuses to start
+    private final List<FileLock> dataLocks = new ArrayList<>();
+    // Lock files taken in this JVM: a second channel on one would drop the first lock on close
+    private static final Set<Path> LOCKED_FILES = ConcurrentHashMap.newKeySet();
+
+    // Sharded deployment: the directory to join ("host:port"), this node's name and its registry port
+    private static final String DIRECTORY_PROPERTY = "morpion.directory";
+    private static final String NODE_PROPERTY = "morpion.node";
+    private static final String RMI_PORT_PROPERTY = "morpion.rmi.port";
+    private static final int DEFAULT_RMI_PORT = 1099;
+    private volatile ShardNode shard; // null unless this server is one node of several
+
+    // Hot standby: the port followers connect to (0 keeps replication off) and, on a follower,
+    // the leader's replication address ("host:port")
+    private static final String REPLICATION_PORT_PROPERTY = "morpion.replication.port";
+    // (a standby on the same host needs its own morpion.journal, morpion.checkpoint and morpion.profiles)
+    private static final String REPLICA_OF_PROPERTY = "morpion.replicaOf";
+    private volatile ReplicationServer replication;
+    private final Map<String, MoveJournal.Record> replicaBots = new HashMap<>(); // follower thread only
+
+    public MorpionServer() {
+        long start = System.nanoTime();
+        perfectPlay = PerfectPlayTable.load();
+        System.out.printf("[SERVER] 3x3 perfect-play table ready: %d positions in %.1f ms%n",
+                perfectPlay.getPositionCount(), (System.nanoTime() - start) / 1e6);
+        journal = recoverAndOpenJournal();
+        ratings = openRatings();
+        matchmaker = new Matchmaker(ratings::getRating, this::openRoom);
+        gameRooms.forEach((roomId, room) -> {
+            room.setRatings(ratings);
+            expiryWheel.schedule(roomId);
+            if (room.getGuestPlayer() == null) {
+                lobby.add(roomId, LobbyIndex.describe(roomId, room.getHostPlayer(), room.getBoardSize()));
+            }
+        });
+        cleanupExecutor.scheduleAtFixedRate(this::cleanupInactiveRooms, EXPIRY_TICK_MS, EXPIRY_TICK_MS,
+                TimeUnit.MILLISECONDS);
+        cleanupExecutor.scheduleAtFixedRate(matchmaker::pass, Matchmaker.PASS_INTERVAL_MS,
+                Matchmaker.PASS_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        if (journal != null) {
+            long interval = Long.getLong(CHECKPOINT_INTERVAL_PROPERTY, DEFAULT_CHECKPOINT_INTERVAL_SEC);
+            checkpointExecutor.scheduleWithFixedDelay(this::checkpoint, interval, interval, TimeUnit.SECONDS);
+        }
     }
 
+    /*
+     * The server holds no lock of its own: room-scoped calls go straight to the
+     * ConcurrentHashMap and only lock the target GameRoom, so rooms never wait
+     * on each other. A room is flagged removed under its own lock before it
+     * leaves the map, which is what keeps joins and moves from racing a
+     * removal; the map itself is only ever used for the insert or the delete.
+     */
+
     /* Room Management Methods */
     @Override
-    public synchronized String createRoom(String playerName) throws RemoteException {
-        String roomId = UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-        GameRoom newRoom = new GameRoom(roomId, playerName);
-        gameRooms.put(roomId, newRoom);
-
-        // Auto-join the creator as player X
-        newRoom.registerPlayer(playerName);
+    public String createRoom(String playerName) throws RemoteException {
+        return createRoom(playerName, GameState.CLASSIC_SIZE, GameState.CLASSIC_SIZE);
+    }
 
-        System.out.println("[SERVER] Room created: " + roomId + " by " + playerName);
-        System.out.println("[SERVER] Current rooms: " + gameRooms.keySet() +
+    @Override
+    public String createRoom(String playerName, int boardSize, int winLength) throws RemoteException {
+        if (!GameState.isValidConfig(boardSize, winLength)) {
+            System.out.println("[SERVER] Rejected room config " + boardSize + "x" + boardSize + "/" + winLength);
+            return null;
+        }
+        String roomId = openRoom(playerName, null, boardSize, winLength);
+        System.out.println("[SERVER] Room created: " + roomId + " by " + playerName
+                + " (" + boardSize + "x" + boardSize + ", " + winLength + " in a row)");
+        System.out.println("[SERVER] Current rooms: " + gameRooms.size() +
                 " - Host: " + playerName +
-                ", Status: " + newRoom.getStatus());
+                ", Status: " + getRoomStatus(roomId));
         return roomId;
     }
 
+    /**
+     * Creates a room under a fresh id. With a guest, both seats are filled
+     * before the id is handed out and the room never appears in the lobby.
+     */
+    private String openRoom(String host, String guest, int boardSize, int winLength) {
+        String roomId;
+        GameRoom room;
+        do {
+            // A sharded node only hands out ids that hash to itself, so the id alone locates the room
+            ShardNode node = shard;
+            do {
+                roomId = UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+            } while (node != null && !node.owns(roomId));
+            // The creator is registered as player X by the GameRoom constructor
+            room = new GameRoom(roomId, host, callbackExecutor, boardSize, winLength);
+            room.setRatings(ratings);
+        } while (gameRooms.putIfAbsent(roomId, room) != null);
+        // Nobody can join before the id is listed or returned, so the create record still precedes any join
+        if (journal != null) {
+            journal.appendCreate(roomId, host, boardSize, winLength);
+            room.setJournal(journal);
+        }
+        if (guest == null) {
+            lobby.add(roomId, LobbyIndex.describe(roomId, host, boardSize));
+        } else {
+            room.registerPlayer(guest);
+        }
+        expiryWheel.schedule(roomId);
+        return roomId;
+    }
+
+    /* Matchmaking */
+    @Override
+    public MatchResult quickMatch(String playerName, MatchOptions options) throws RemoteException {
+        if (playerName == null || playerName.isEmpty() || options == null
+                || !GameState.isValidConfig(options.getBoardSize(), options.getWinLength())) {
+            return MatchResult.of(MatchResult.Status.ERROR, 0);
+        }
+        return matchmaker.quickMatch(playerName, options);
+    }
+
+    @Override
+    public void cancelQuickMatch(String playerName) throws RemoteException {
+        matchmaker.cancel(playerName);
+    }
+
+    @Override
+    public MatchmakingStats getMatchmakingStats() throws RemoteException {
+        return matchmaker.getStats();
+    }
+
+    /* Ratings */
+    @Override
+    public PlayerStats getPlayerStats(String playerName) throws RemoteException {
+        return playerName != null ? ratings.getStats(playerName) : null;
+    }
+
+    @Override
+    public List<PlayerStats> getLeaderboard(int limit) throws RemoteException {
+        return ratings.top(limit);
+    }
+
+    @Override
+    public int getRank(String playerName) throws RemoteException {
+        return playerName != null ? ratings.getRank(playerName) : 0;
+    }
+
+    @Override
+    public LeaderboardPage getLeaderboardAround(String playerName, int radius) throws RemoteException {
+        return playerName != null ? ratings.around(playerName, radius) : null;
+    }
+
+    /* Spectators */
+    @Override
+    public RoomSnapshot watchRoom(String roomId, String spectatorName, SpectatorListener listener)
+            throws RemoteException {
+        GameRoom room = gameRooms.get(roomId);
+        if (room == null || spectatorName == null || listener == null) {
+            return null;
+        }
+        return room.watch(spectatorName, listener, spectatorEncoder, spectatorExecutor);
+    }
+
     @Override
-    public synchronized RegistrationStatus joinRoom(String roomId, String playerName) throws RemoteException {
+    public void unwatchRoom(String roomId, String spectatorName) throws RemoteException {
+        GameRoom room = gameRooms.get(roomId);
+        if (room != null) {
+            room.unwatch(spectatorName);
+        }
+    }
+
+    @Override
+    public RegistrationStatus joinRoom(String roomId, String playerName) throws RemoteException {
         GameRoom room = gameRooms.get(roomId);
         if (room == null) {
             System.out.println("[SERVER] Join failed - room not found: " + roomId);
             return RegistrationStatus.ERROR;
         }
 
-        synchronized (room) {
-            if (room.getHostPlayer().equals(playerName)) {
-                System.out.println("[SERVER] Player " + playerName + " is already host of room " + roomId);
-                return RegistrationStatus.ERROR;
-            }
+        // A room removed meanwhile refuses the player, so a join can't outlive its room
+        RegistrationStatus status = room.registerPlayer(playerName);
+        if (status == RegistrationStatus.PLAYER_O) {
+            lobby.remove(roomId, LobbyDelta.Type.FILLED);
+            System.out.println("[SERVER] Player " + playerName + " joined room " + roomId);
+            System.out.println("[SERVER] Room status: " + room.getStatus() +
+                    ", Players: X=" + room.getHostPlayer() +
+                    ", O=" + playerName);
+        } else if (room.getHostPlayer().equals(playerName)) {
+            System.out.println("[SERVER] Player " + playerName + " is already host of room " + roomId);
+        }
+        return status;
+    }
 
-            RegistrationStatus status = room.registerPlayer(playerName);
-            if (status == RegistrationStatus.PLAYER_O) {
-                System.out.println("[SERVER] Player " + playerName + " joined room " + roomId);
-                System.out.println("[SERVER] Room status: " + room.getStatus() +
-                        ", Players: X=" + room.getHostPlayer() +
-                        ", O=" + playerName);
-            }
-            return status;
+    @Override
+    public RegistrationStatus addBot(String roomId, BotDifficulty difficulty) throws RemoteException {
+        GameRoom room = gameRooms.get(roomId);
+        if (room == null) {
+            return RegistrationStatus.ERROR;
+        }
+        RegistrationStatus status = room.addBot(difficulty, botExecutor, perfectPlay);
+        if (status == RegistrationStatus.PLAYER_O) {
+            lobby.remove(roomId, LobbyDelta.Type.FILLED);
+            System.out.println("[SERVER] " + difficulty + " bot joined room " + roomId);
+        }
+        return status;
+    }
+
+    // The retry only queues the search again, so the maintenance thread never searches itself
+    private void searchWhenFree(Runnable search) {
+        try {
+            botPool.execute(search);
+        } catch (RejectedExecutionException e) {
+            cleanupExecutor.schedule(() -> searchWhenFree(search), BOT_RETRY_MS, TimeUnit.MILLISECONDS);
         }
     }
 
     @Override
-    public synchronized List<String> listAvailableRooms() throws RemoteException {
-        List<String> availableRooms = new ArrayList<>();
+    public List<String> listAvailableRooms() throws RemoteException {
+        // The cached first page: no room is looked at, whatever the room count
+        return lobby.page(null, LobbyIndex.PAGE_SIZE).getRooms();
+    }
 
-        gameRooms.forEach((roomId, room) -> {
-            synchronized (room) {
-                if (!room.isFull() && !room.isInactive(ROOM_TIMEOUT)) {
-                    availableRooms.add(roomId + " (Host: " + room.getHostPlayer() + ")");
-                }
-            }
-        });
+    @Override
+    public LobbyPage listRooms(String afterRoomId, int limit) throws RemoteException {
+        return lobby.page(afterRoomId, limit);
+    }
+
+    /* Lobby change feed */
+    @Override
+    public LobbyPage subscribeLobby(String playerName, LobbyListener listener) throws RemoteException {
+        LobbyPage page = lobbyFeed.subscribe(playerName, listener);
+        System.out.println("[SERVER] " + playerName + " subscribed to the lobby ("
+                + lobbyFeed.getSubscriberCount() + " subscribers)");
+        return page;
+    }
+
+    @Override
+    public void unsubscribeLobby(String playerName) throws RemoteException {
+        lobbyFeed.unsubscribe(playerName);
+    }
+
+    @Override
+    public LobbyUpdate getLobbyChanges(long sinceVersion) throws RemoteException {
+        return lobby.changesSince(sinceVersion);
+    }
 
-        System.out.println("[SERVER] Listing " + availableRooms.size() + " available rooms");
-        return availableRooms;
+    private void lobbyChanged() {
+        lobbyFeed.changed();
     }
 
     /* Game Operations - Room-scoped */
     @Override
-    public synchronized RoomStatus getRoomStatus(String roomId) throws RemoteException {
+    public RoomStatus getRoomStatus(String roomId) throws RemoteException {
         GameRoom room = gameRooms.get(roomId);
         if (room == null) {
             return RoomStatus.ERROR;
@@ -91,18 +384,18 @@ public class MorpionServer extends UnicastRemoteObject implements MorpionInterfa
         return room.getRoomStatus(roomId);
     }
 
-    public synchronized String getHostPlayer(String roomId) throws RemoteException {
+    public String getHostPlayer(String roomId) throws RemoteException {
         GameRoom room = gameRooms.get(roomId);
         return room != null ? room.getHostPlayer() : null;
     }
 
-    public synchronized boolean isRoomJoinable(String roomId) throws RemoteException {
+    public boolean isRoomJoinable(String roomId) throws RemoteException {
         GameRoom room = gameRooms.get(roomId);
         return room != null && room.getGuestPlayer() == null && !room.isInactive(ROOM_TIMEOUT);
     }
 
     @Override
-    public synchronized MoveStatus makeMove(String roomId, int row, int col, String playerName) throws RemoteException {
+    public MoveStatus makeMove(String roomId, int row, int col, String playerName) throws RemoteException {
         GameRoom room = gameRooms.get(roomId);
         if (room == null) {
             return MoveStatus.GAME_NOT_READY;
@@ -111,122 +404,711 @@ public class MorpionServer extends UnicastRemoteObject implements MorpionInterfa
     }
 
     @Override
-    public synchronized String getCurrentBoard(String roomId) throws RemoteException {
+    public String getCurrentBoard(String roomId) throws RemoteException {
         GameRoom room = gameRooms.get(roomId);
         return room != null ? room.getCurrentBoard(roomId) : "";
     }
 
     @Override
-    public synchronized boolean isGameOver(String roomId) throws RemoteException {
+    public RoomSnapshot getRoomSnapshot(String roomId, String playerName) throws RemoteException {
+        GameRoom room = gameRooms.get(roomId);
+        return room != null ? room.getRoomSnapshot(roomId, playerName) : null;
+    }
+
+    @Override
+    public RoomSnapshot waitForChange(String roomId, long sinceVersion, long timeoutMs) throws RemoteException {
+        GameRoom room = gameRooms.get(roomId);
+        return room != null ? room.waitForChange(roomId, sinceVersion, timeoutMs) : null;
+    }
+
+    // Non-blocking waitForChange for the binary front-end; see GameRoom.onChange
+    Runnable onRoomChange(String roomId, long sinceVersion, Runnable wakeup) {
+        GameRoom room = gameRooms.get(roomId);
+        if (room == null) {
+            wakeup.run();
+            return null;
+        }
+        return room.onChange(sinceVersion, wakeup);
+    }
+
+    @Override
+    public boolean isGameOver(String roomId) throws RemoteException {
         GameRoom room = gameRooms.get(roomId);
         return room != null && room.isGameOver(roomId);
     }
 
-    public synchronized String getWinner(String roomId) throws RemoteException {
+    @Override
+    public String getWinner(String roomId) throws RemoteException {
         GameRoom room = gameRooms.get(roomId);
         return room != null ? room.getWinner(roomId) : null;
     }
 
-    public synchronized boolean isPlayerTurn(String roomId, String playerName) throws RemoteException {
+    @Override
+    public boolean isPlayerTurn(String roomId, String playerName) throws RemoteException {
         GameRoom room = gameRooms.get(roomId);
         return room != null && room.isPlayerTurn(roomId, playerName);
     }
 
-    public synchronized boolean isGameReady(String roomId) throws RemoteException {
+    @Override
+    public boolean isGameReady(String roomId) throws RemoteException {
         GameRoom room = gameRooms.get(roomId);
         return room != null && room.isGameReady(roomId);
     }
 
-    public synchronized void resetGame(String roomId) throws RemoteException {
+    @Override
+    public void resetGame(String roomId) throws RemoteException {
         GameRoom room = gameRooms.get(roomId);
         if (room != null) {
             room.resetGame(roomId);
         }
     }
 
-    public synchronized void disconnectPlayer(String roomId, String playerName) throws RemoteException {
+    @Override
+    public void disconnectPlayer(String roomId, String playerName) throws RemoteException {
         GameRoom room = gameRooms.get(roomId);
-        if (room != null) {
-            room.disconnectPlayer(roomId, playerName);
-            if (room.getGuestPlayer() == null) {
-                gameRooms.remove(roomId);
-                System.out.println("[SERVER] Removed empty room: " + roomId);
+        if (room == null) {
+            return;
+        }
+        synchronized (room) {
+            if (!room.disconnectPlayer(roomId, playerName) || room.getGuestPlayer() != null) {
+                return;
             }
+            room.markRemoved();
         }
+        gameRooms.remove(roomId, room);
+        lobby.remove(roomId, LobbyDelta.Type.REMOVED);
+        System.out.println("[SERVER] Removed empty room: " + roomId);
     }
 
-    public synchronized String getPlayerSymbol(String roomId, String playerName) throws RemoteException {
+    @Override
+    public String getPlayerSymbol(String roomId, String playerName) throws RemoteException {
         GameRoom room = gameRooms.get(roomId);
         return room != null ? room.getPlayerSymbol(roomId, playerName) : null;
     }
 
+    /* Event callbacks */
+    @Override
+    public boolean registerListener(String roomId, String playerName, GameListener listener) throws RemoteException {
+        GameRoom room = gameRooms.get(roomId);
+        return room != null && room.registerListener(roomId, playerName, listener);
+    }
+
+    @Override
+    public void unregisterListener(String roomId, String playerName) throws RemoteException {
+        GameRoom room = gameRooms.get(roomId);
+        if (room != null) {
+            room.unregisterListener(roomId, playerName);
+        }
+    }
+
     /* Game Operations - Non-room-scoped (default room) */
     @Override
-    public synchronized RegistrationStatus registerPlayer(String playerName) throws RemoteException {
+    public RegistrationStatus registerPlayer(String playerName) throws RemoteException {
         return joinRoom(DEFAULT_ROOM_ID, playerName);
     }
 
     @Override
-    public synchronized MoveStatus makeMove(int row, int col, String playerName) throws RemoteException {
+    public MoveStatus makeMove(int row, int col, String playerName) throws RemoteException {
         return makeMove(DEFAULT_ROOM_ID, row, col, playerName);
     }
 
     @Override
-    public synchronized String getCurrentBoard() throws RemoteException {
+    public String getCurrentBoard() throws RemoteException {
         return getCurrentBoard(DEFAULT_ROOM_ID);
     }
 
     @Override
-    public synchronized boolean isGameOver() throws RemoteException {
+    public boolean isGameOver() throws RemoteException {
         return isGameOver(DEFAULT_ROOM_ID);
     }
 
     @Override
-    public synchronized String getWinner() throws RemoteException {
+    public String getWinner() throws RemoteException {
         return getWinner(DEFAULT_ROOM_ID);
     }
 
     @Override
-    public synchronized boolean isPlayerTurn(String playerName) throws RemoteException {
+    public boolean isPlayerTurn(String playerName) throws RemoteException {
         return isPlayerTurn(DEFAULT_ROOM_ID, playerName);
     }
 
     @Override
-    public synchronized boolean isGameReady() throws RemoteException {
+    public boolean isGameReady() throws RemoteException {
         return isGameReady(DEFAULT_ROOM_ID);
     }
 
     @Override
-    public synchronized void resetGame() throws RemoteException {
+    public void resetGame() throws RemoteException {
         resetGame(DEFAULT_ROOM_ID);
     }
 
     @Override
-    public synchronized void disconnectPlayer(String playerName) throws RemoteException {
+    public void disconnectPlayer(String playerName) throws RemoteException {
         disconnectPlayer(DEFAULT_ROOM_ID, playerName);
     }
 
     @Override
-    public synchronized String getPlayerSymbol(String playerName) throws RemoteException {
+    public String getPlayerSymbol(String playerName) throws RemoteException {
         return getPlayerSymbol(DEFAULT_ROOM_ID, playerName);
     }
 
     /* Maintenance Methods */
+
+    // Runs once per wheel tick on the maintenance thread; only rooms that may be due are looked at
     private void cleanupInactiveRooms() {
-        long currentTime = System.currentTimeMillis();
-        int initialCount = gameRooms.size();
+        long start = System.nanoTime();
+        int reaped = expiryWheel.tick(System.currentTimeMillis());
+        if (reaped > 0) {
+            System.out.printf("[SERVER] Expiry tick: reaped %d rooms (%d checked, %d rescheduled) in %.2f ms."
+                    + " Remaining rooms: %d%n", reaped, expiryWheel.getLastChecked(),
+                    expiryWheel.getLastRescheduled(), (System.nanoTime() - start) / 1e6, gameRooms.size());
+        }
+    }
 
-        gameRooms.entrySet().removeIf(entry -> {
-            GameRoom room = entry.getValue();
-            if (room.isInactive(ROOM_TIMEOUT)) {
-                System.out.println("[SERVER] Cleaning up inactive room: " + entry.getKey());
-                return true;
-            }
+    private long roomDeadline(String roomId) {
+        GameRoom room = gameRooms.get(roomId);
+        if (room == null || room.isRemoved()) {
+            return ExpiryWheel.GONE;
+        }
+        return room.getLastActivityTime() + ROOM_TIMEOUT;
+    }
+
+    // Re-checked under the room lock: activity since the wheel looked keeps the room
+    private boolean expireRoom(String roomId) {
+        GameRoom room = gameRooms.get(roomId);
+        if (room == null) {
             return false;
+        }
+        synchronized (room) {
+            if (room.isRemoved() || !room.isInactive(ROOM_TIMEOUT)) {
+                return false;
+            }
+            room.markRemoved();
+            // Under the room lock, like the room's other records, so nothing of it is journaled after this
+            if (journal != null) {
+                journal.appendRemove(roomId);
+            }
+        }
+        gameRooms.remove(roomId, room);
+        lobby.remove(roomId, LobbyDelta.Type.REMOVED);
+        System.out.println("[SERVER] Cleaning up inactive room: " + roomId);
+        return true;
+    }
+
+    /* Persistence */
+
+    /**
+     * Writes every live room to the checkpoint file and drops the journal
+     * records it covers. The journal is rotated first, so moves keep flowing
+     * into a fresh file while the rooms are written out one lock at a time.
+     */
+    public void checkpoint() {
+        if (journal == null) {
+            return;
+        }
+        synchronized (checkpointLock) {
+            long start = System.nanoTime();
+            try {
+                Path rotated = journal.rotate();
+                int rooms = RoomCheckpoint.write(checkpointPath, new ArrayList<>(gameRooms.values()));
+                Files.delete(rotated);
+                System.out.printf("[SERVER] Checkpoint of %d rooms written (%,d bytes) in %.1f ms%n",
+                        rooms, Files.size(checkpointPath), (System.nanoTime() - start) / 1e6);
+            } catch (IOException e) {
+                System.err.println("[SERVER] Checkpoint failed, journal kept: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Loads the player profiles. Falls back to in-memory ratings when the
+     * profile file is disabled or unusable.
+     */
+    private RatingService openRatings() {
+        String location = System.getProperty(PROFILES_PROPERTY, DEFAULT_PROFILES);
+        RatingService opened = null;
+        if (!location.isEmpty() && !location.equals("none")) {
+            lockDataFile(Paths.get(location));
+            try {
+                opened = RatingService.open(Paths.get(location));
+                System.out.println("[SERVER] Player profiles stored in " + location);
+            } catch (IOException e) {
+                System.err.println("[SERVER] Profiles unavailable, ratings will not survive a restart: "
+                        + e.getMessage());
+            }
+        }
+        if (opened == null) {
+            opened = RatingService.inMemory();
+        }
+        RatingService service = opened;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                service.close();
+            } catch (IOException e) {
+                System.err.println("[SERVER] Profile close failed: " + e.getMessage());
+            }
+        }));
+        return service;
+    }
+
+    /**
+     * Takes an exclusive lock on a file next to the given data file, which
+     * checkpoints and compaction replace. Throws IllegalStateException when
+     * another server, in this process or another, already holds it.
+     */
+    private void lockDataFile(Path file) {
+        Path lockPath = file.resolveSibling(file.getFileName() + ".lock").toAbsolutePath().normalize();
+        String inUse = file + " is in use by another server (locked through " + lockPath + ")";
+        if (!LOCKED_FILES.add(lockPath)) {
+            throw new IllegalStateException(inUse);
+        }
+        FileLock lock = null;
+        try {
+            Files.createDirectories(lockPath.getParent());
+            FileChannel channel = FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            lock = channel.tryLock();
+            if (lock == null) {
+                channel.close();
+                throw new IllegalStateException(inUse);
+            }
+            dataLocks.add(lock);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not lock " + file + ": " + e.getMessage(), e);
+        } finally {
+            if (lock == null) {
+                LOCKED_FILES.remove(lockPath);
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the room map from the last checkpoint and the journal records
+     * written after it, compacts both into a new checkpoint, then reopens the
+     * journal for appending. Returns null when journaling is disabled or the
+     * journal can't be opened.
+     */
+    private MoveJournal recoverAndOpenJournal() {
+        String location = System.getProperty(JOURNAL_PROPERTY, DEFAULT_JOURNAL);
+        if (location.isEmpty() || location.equals("none")) {
+            System.out.println("[SERVER] Journaling disabled, rooms will not survive a restart");
+            return null;
+        }
+        Path path = Paths.get(location);
+        Path rotated = MoveJournal.rotatedPath(path);
+        checkpointPath = Paths.get(System.getProperty(CHECKPOINT_PROPERTY, DEFAULT_CHECKPOINT));
+        long syncMs = Long.getLong(JOURNAL_SYNC_PROPERTY, DEFAULT_SYNC_MS);
+        lockDataFile(path);
+        lockDataFile(checkpointPath);
+        try {
+            long start = System.nanoTime();
+            Map<String, MoveJournal.Record> bots = new HashMap<>();
+            List<GameRoom> checkpointed = RoomCheckpoint.read(checkpointPath, callbackExecutor);
+            for (GameRoom room : checkpointed) {
+                gameRooms.put(room.getRoomId(), room);
+                if (room.getBotLevel() >= 0) {
+                    MoveJournal.Record bot = new MoveJournal.Record();
+                    bot.player = room.getGuestPlayer();
+                    bot.botLevel = room.getBotLevel();
+                    bots.put(room.getRoomId(), bot);
+                }
+            }
+            // A rotated journal is left behind only by a checkpoint that never completed
+            int records = MoveJournal.replay(rotated, record -> applyRecord(record, bots))
+                    + MoveJournal.replay(path, record -> applyRecord(record, bots));
+            // Bots only start thinking once their journaled moves have all been replayed
+            bots.forEach((roomId, bot) -> {
+                GameRoom room = gameRooms.get(roomId);
+                if (room != null) {
+                    room.attachBot(bot.player, BotDifficulty.values()[bot.botLevel], botExecutor, perfectPlay);
+                }
+            });
+            System.out.printf("[SERVER] Recovered %d rooms from a checkpoint of %d rooms (%,d bytes) and %d journal"
+                    + " records in %.1f ms%n", gameRooms.size(), checkpointed.size(),
+                    Files.exists(checkpointPath) ? Files.size(checkpointPath) : 0, records,
+                    (System.nanoTime() - start) / 1e6);
+
+            if (records > 0 || Files.exists(rotated)) {
+                compactAfterRecovery(path, rotated);
+            }
+
+            MoveJournal opened = new MoveJournal(path, syncMs);
+            gameRooms.values().forEach(room -> room.setJournal(opened));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    opened.close();
+                } catch (IOException e) {
+                    System.err.println("[SERVER] Journal close failed: " + e.getMessage());
+                }
+            }));
+            System.out.println("[SERVER] Journaling to " + path + " (fsync every " + syncMs + " ms)");
+            return opened;
+        } catch (IOException e) {
+            System.err.println("[SERVER] Journal unavailable, continuing without it: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Nothing is appending yet, so the replayed journals can simply be folded into a checkpoint
+    private void compactAfterRecovery(Path path, Path rotated) {
+        long start = System.nanoTime();
+        try {
+            int rooms = RoomCheckpoint.write(checkpointPath, gameRooms.values());
+            Files.deleteIfExists(rotated);
+            Files.deleteIfExists(path);
+            System.out.printf("[SERVER] Compacted journal into a checkpoint of %d rooms (%,d bytes) in %.1f ms%n",
+                    rooms, Files.size(checkpointPath), (System.nanoTime() - start) / 1e6);
+        } catch (IOException e) {
+            System.err.println("[SERVER] Compaction failed, journal kept: " + e.getMessage());
+        }
+    }
+
+    /*
+     * Rooms are rebuilt with no journal attached, so replaying writes nothing
+     * back. Records a checkpointed room already reflects are skipped by
+     * version; removals always apply.
+     */
+    private void applyRecord(MoveJournal.Record record, Map<String, MoveJournal.Record> bots) {
+        if (record.type == MoveJournal.CREATE) {
+            if (GameState.isValidConfig(record.boardSize, record.winLength)) {
+                gameRooms.computeIfAbsent(record.roomId, id -> new GameRoom(id, record.player, callbackExecutor,
+                        record.boardSize, record.winLength));
+            }
+            return;
+        }
+        if (record.type == MoveJournal.ADOPT) {
+            if (!gameRooms.containsKey(record.roomId)) {
+                adoptRecorded(record, bots);
+            }
+            return;
+        }
+        GameRoom room = gameRooms.get(record.roomId);
+        if (room == null || (record.type != MoveJournal.REMOVE && record.version <= room.getVersion())) {
+            return;
+        }
+        switch (record.type) {
+            case MoveJournal.JOIN:
+                room.registerPlayer(record.player);
+                break;
+            case MoveJournal.BOT:
+                room.registerPlayer(record.player);
+                bots.put(record.roomId, record);
+                break;
+            case MoveJournal.MOVE:
+                room.makeMove(record.roomId, record.row, record.col, record.player);
+                break;
+            case MoveJournal.RESET:
+                room.resetGame(record.roomId);
+                break;
+            case MoveJournal.DISCONNECT:
+                room.disconnectPlayer(record.roomId, record.player);
+                if (room.getGuestPlayer() == null) {
+                    gameRooms.remove(record.roomId);
+                    bots.remove(record.roomId);
+                }
+                break;
+            case MoveJournal.REMOVE:
+                gameRooms.remove(record.roomId);
+                bots.remove(record.roomId);
+                break;
+            default:
+                break;
+        }
+    }
+
+    // As adoptRooms did, minus what only a live room needs
+    private void adoptRecorded(MoveJournal.Record record, Map<String, MoveJournal.Record> bots) {
+        GameRoom room;
+        try {
+            room = GameRoom.readFrom(new DataInputStream(new ByteArrayInputStream(record.room)), callbackExecutor);
+        } catch (IOException e) {
+            System.err.println("[SERVER] Skipping unreadable adopted room " + record.roomId + ": " + e.getMessage());
+            return;
+        }
+        gameRooms.put(room.getRoomId(), room);
+        if (room.getBotLevel() >= 0) {
+            MoveJournal.Record bot = new MoveJournal.Record();
+            bot.player = room.getGuestPlayer();
+            bot.botLevel = room.getBotLevel();
+            bots.put(room.getRoomId(), bot);
+        }
+    }
+
+    /* Sharding */
+
+    /**
+     * Makes this server one node of a sharded deployment: binds its hand-off
+     * endpoint, joins the directory and from then on only keeps the rooms the
+     * shard map gives it. Leaves the ring, handing every room on, when the
+     * JVM shuts down.
+     *
+     * @param registry  Registry this server is bound in
+     * @param nodeId    Stable node name
+     * @param endpoint  "host:port" of that registry, as clients reach it
+     * @param directory "host:port" of the directory's registry
+     */
+    public void joinShards(Registry registry, String nodeId, String endpoint, String directory)
+            throws RemoteException, NotBoundException {
+        String[] hostPort = directory.split(":");
+        ShardDirectoryInterface shards = (ShardDirectoryInterface) LocateRegistry
+                .getRegistry(hostPort[0], Integer.parseInt(hostPort[1])).lookup(ShardDirectoryInterface.NAME);
+        ShardNode node = new ShardNode(this, nodeId, endpoint, shards);
+        registry.rebind(ShardNodeInterface.NAME, node);
+        shard = node;
+        node.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(node::leave, "shard-leave"));
+    }
+
+    Set<String> getRoomIds() {
+        return gameRooms.keySet();
+    }
+
+    /**
+     * Removes a room so that it can be handed to the node that now owns it.
+     * Its journal records stay until handedOff confirms the transfer.
+     *
+     * @return The room as written for a checkpoint, or null if it is gone
+     */
+    byte[] handOffRoom(String roomId) {
+        GameRoom room = gameRooms.get(roomId);
+        if (room == null) {
+            return null;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try {
+            if (!room.handOff(new DataOutputStream(bytes))) {
+                return null;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // ByteArrayOutputStream does not throw
+        }
+        gameRooms.remove(roomId, room);
+        lobby.remove(roomId, LobbyDelta.Type.REMOVED);
+        return bytes.toByteArray();
+    }
+
+    // Journaled only once the new owner has the rooms, so a crash mid hand-off leaves them recoverable here
+    void handedOff(Collection<String> roomIds) {
+        if (journal != null) {
+            roomIds.forEach(journal::appendRemove);
+        }
+    }
+
+    /**
+     * Takes over rooms written by handOffRoom, on this node or another. A
+     * room already here is left alone, so the same rooms may be offered
+     * again. Each adopted room is journaled whole, which is all recovery
+     * needs to rebuild it.
+     *
+     * @return Number of rooms adopted
+     */
+    int adoptRooms(List<byte[]> rooms) throws IOException {
+        int adopted = 0;
+        for (byte[] bytes : rooms) {
+            GameRoom room = GameRoom.readFrom(new DataInputStream(new ByteArrayInputStream(bytes)), callbackExecutor);
+            room.setRatings(ratings);
+            String roomId = room.getRoomId();
+            // Under the room lock, so no record of the room can be journaled ahead of it
+            synchronized (room) {
+                if (gameRooms.putIfAbsent(roomId, room) != null) {
+                    continue;
+                }
+                if (journal != null) {
+                    journal.appendAdopt(roomId, bytes);
+                    room.setJournal(journal);
+                }
+            }
+            if (room.getBotLevel() >= 0) {
+                room.attachBot(room.getGuestPlayer(), BotDifficulty.values()[room.getBotLevel()], botExecutor,
+                        perfectPlay);
+            }
+            if (room.getGuestPlayer() == null) {
+                lobby.add(roomId, LobbyIndex.describe(roomId, room.getHostPlayer(), room.getBoardSize()));
+            }
+            expiryWheel.schedule(roomId);
+            adopted++;
+        }
+        return adopted;
+    }
+
+    boolean holdsRoom(String roomId) {
+        return gameRooms.containsKey(roomId);
+    }
+
+    /* Replication */
+
+    /**
+     * Streams every room mutation to follower servers, which keep identical
+     * rooms and take over if this server is lost
+     *
+     * @param port TCP port for followers, 0 for any free one
+     * @return The port bound
+     * @throws IOException If journaling is disabled: the stream carries
+     *                     journal records
+     */
+    public int startReplication(int port) throws IOException {
+        if (journal == null) {
+            throw new IOException("replication streams journal records, enable " + JOURNAL_PROPERTY);
+        }
+        ReplicationServer started = ReplicationServer.start(port, () -> new ArrayList<>(gameRooms.values()));
+        journal.setMirror(started::publish);
+        replication = started;
+        System.out.println("[SERVER] Replicating to followers on port " + started.getPort());
+        return started.getPort();
+    }
+
+    /** Stops streaming and disconnects the followers, which then take over. */
+    public void stopReplication() throws IOException {
+        ReplicationServer stopped = replication;
+        if (stopped != null) {
+            journal.setMirror(null);
+            replication = null;
+            stopped.close();
+        }
+    }
+
+    public int getFollowerCount() {
+        ReplicationServer current = replication;
+        return current != null ? current.getFollowerCount() : 0;
+    }
+
+    /** @return Records not yet sent to the slowest follower */
+    public int getReplicationLag() {
+        ReplicationServer current = replication;
+        return current != null ? current.getLag() : 0;
+    }
+
+    /**
+     * Makes this server a hot standby: its rooms are replaced by the
+     * leader's and kept in step until the leader is lost, when it takes over
+     * and runs onPromoted. Clients must not reach it before then.
+     *
+     * @param host       Leader host
+     * @param port       Leader's replication port
+     * @param onPromoted Makes the server reachable once it has taken over
+     */
+    public void followLeader(String host, int port, Runnable onPromoted) {
+        new ReplicaFollower(this, host, port, onPromoted).start();
+    }
+
+    // The methods below run on the follower thread only
+
+    void clearReplicatedRooms() {
+        gameRooms.forEach((roomId, room) -> {
+            room.markRemoved();
+            lobby.remove(roomId, LobbyDelta.Type.REMOVED);
+        });
+        gameRooms.clear();
+        replicaBots.clear();
+    }
+
+    void applyReplicatedRoom(byte[] bytes) throws IOException {
+        GameRoom room = GameRoom.readFrom(new DataInputStream(new ByteArrayInputStream(bytes)), callbackExecutor);
+        gameRooms.put(room.getRoomId(), room);
+        if (room.getBotLevel() >= 0) {
+            MoveJournal.Record bot = new MoveJournal.Record();
+            bot.player = room.getGuestPlayer();
+            bot.botLevel = room.getBotLevel();
+            replicaBots.put(room.getRoomId(), bot);
+        }
+    }
+
+    // As in recovery: records a room already reflects are skipped by version
+    void applyReplicatedRecord(MoveJournal.Record record) {
+        applyRecord(record, replicaBots);
+    }
+
+    /**
+     * Turns the replicated rooms into live ones, as recovery does after a
+     * restart: bots think again, rooms are journaled, rated, listed and
+     * expired here from now on. A checkpoint makes them durable.
+     */
+    void promoteReplica() {
+        replicaBots.forEach((roomId, bot) -> {
+            GameRoom room = gameRooms.get(roomId);
+            if (room != null) {
+                room.attachBot(bot.player, BotDifficulty.values()[bot.botLevel], botExecutor, perfectPlay);
+            }
+        });
+        gameRooms.forEach((roomId, room) -> {
+            room.setRatings(ratings);
+            if (journal != null) {
+                room.setJournal(journal);
+            }
+            expiryWheel.schedule(roomId);
+            if (room.getGuestPlayer() == null) {
+                lobby.add(roomId, LobbyIndex.describe(roomId, room.getHostPlayer(), room.getBoardSize()));
+            }
         });
+        checkpoint();
+        System.out.println("[SERVER] Took over " + gameRooms.size() + " replicated rooms");
+    }
+
+    /**
+     * Serves this server over BinaryProtocol as well as RMI
+     *
+     * @param port TCP port to listen on, 0 for any free one
+     * @return The port bound
+     */
+    public int startBinaryProtocol(int port) throws IOException {
+        return startBinaryProtocol(port, this);
+    }
+
+    /**
+     * Serves this server over BinaryProtocol, making every call through front
+     *
+     * @param port  TCP port to listen on, 0 for any free one
+     * @param front This server or a wrapper of it, e.g. the one startMetrics returns
+     * @return The port bound
+     */
+    public int startBinaryProtocol(int port, MorpionInterface front) throws IOException {
+        int reactors = Integer.getInteger(BINARY_REACTORS_PROPERTY, Runtime.getRuntime().availableProcessors());
+        BinaryServer binary = BinaryServer.start(this, front, port, reactors);
+        System.out.println("[SERVER] Binary protocol on port " + binary.getPort() + " with "
+                + binary.getReactorCount() + " reactor threads");
+        return binary.getPort();
+    }
+
+    /**
+     * Starts recording per-method statistics and registers them with the
+     * platform MBean server, replacing any earlier registration under the
+     * same name.
+     *
+     * @param name Told apart from other servers in the JVM by it:
+     *             morpion:type=Server,name="..."
+     * @return A MorpionInterface that records every call, then makes it on
+     *         this server; export and bind it in place of the server itself
+     */
+    public MorpionInterface startMetrics(String name) throws JMException {
+        ServerMetrics started = new ServerMetrics(this, gameRooms::values, expiryWheel);
+        MBeanServer mbeans = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = new ObjectName("morpion:type=Server,name=" + ObjectName.quote(name));
+        if (mbeans.isRegistered(objectName)) {
+            mbeans.unregisterMBean(objectName);
+        }
+        mbeans.registerMBean(started, objectName);
+        System.out.println("[SERVER] Metrics published over JMX as " + objectName);
+        return started.instrument();
+    }
+
+    private void serve(Registry registry, int port) throws Exception {
+        MorpionInterface front = startMetrics("port-" + port);
+        registry.rebind("MorpionGame", UnicastRemoteObject.exportObject(front, 0));
+        System.out.println("[SERVER] Server ready on port " + port + ". Waiting for players...");
+
+        String directory = System.getProperty(DIRECTORY_PROPERTY);
+        if (directory != null) {
+            String host = System.getProperty("java.rmi.server.hostname", "localhost");
+            joinShards(registry, System.getProperty(NODE_PROPERTY, host + "-" + port), host + ":" + port, directory);
+        }
+
+        int binaryPort = Integer.getInteger(BINARY_PORT_PROPERTY, 0);
+        if (binaryPort > 0) {
+            startBinaryProtocol(binaryPort, front);
+        }
 
-        if (initialCount != gameRooms.size()) {
-            System.out.println("[SERVER] Room cleanup completed. Remaining rooms: " + gameRooms.size());
+        int replicationPort = Integer.getInteger(REPLICATION_PORT_PROPERTY, 0);
+        if (replicationPort > 0) {
+            startReplication(replicationPort);
         }
     }
 
@@ -235,9 +1117,25 @@ public class MorpionServer extends UnicastRemoteObject implements MorpionInterfa
             System.setProperty("sun.rmi.transport.tcp.responseTimeout", "5000");
             System.setProperty("sun.rmi.transport.connectionTimeout", "5000");
 
-            Registry registry = LocateRegistry.createRegistry(1099);
-            registry.rebind("MorpionGame", new MorpionServer());
-            System.out.println("[SERVER] Server ready on port 1099. Waiting for players...");
+            MorpionServer server = new MorpionServer();
+            int port = Integer.getInteger(RMI_PORT_PROPERTY, DEFAULT_RMI_PORT);
+            Registry registry = LocateRegistry.createRegistry(port);
+            String leader = System.getProperty(REPLICA_OF_PROPERTY);
+            if (leader == null) {
+                server.serve(registry, port);
+            } else {
+                // A standby stays unbound, so clients only find it once it has taken over
+                String[] hostPort = leader.split(":");
+                server.followLeader(hostPort[0], Integer.parseInt(hostPort[1]), () -> {
+                    try {
+                        server.serve(registry, port);
+                    } catch (Exception e) {
+                        System.err.println("[SERVER] Failed to take over: " + e.getMessage());
+                        System.exit(1);
+                    }
+                });
+                System.out.println("[SERVER] Standby on port " + port + ", following " + leader);
+            }
         } catch (Exception e) {
             System.err.println("[SERVER] Failed to start: " + e.getMessage());
             e.printStackTrace();
@@ -0,0 +1,415 @@
+package server;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead journal of room mutations. Callers only encode a
+ * record and queue it; a single writer thread appends queued records in
+ * batches and fsyncs at most once per durability window (group commit), so
+ * disk latency never lands on makeMove.
+ *
+ * Each record is framed as [length][crc32][payload] so that a torn write at
+ * the tail is detected and cut off during recovery.
+ *
+ * Once a checkpoint covers its records, the journal is rotated: appends move
+ * to a fresh file and the old one is deleted after the checkpoint is on disk.
+ */
+class MoveJournal implements Closeable {
+    static final byte CREATE = 1;
+    static final byte JOIN = 2;
+    static final byte MOVE = 3;
+    static final byte RESET = 4;
+    static final byte DISCONNECT = 5;
+    static final byte BOT = 6;
+    static final byte REMOVE = 7;
+    static final byte ADOPT = 8; // a whole room, handed over by another shard node
+
+    private static final int MAX_BATCH = 4096;
+    private static final byte[] SHUTDOWN = new byte[0];
+    private static final byte[] ROTATE = new byte[0];
+
+    private final Path path;
+    private volatile FileChannel channel; // replaced by the writer thread on rotation
+    private volatile CompletableFuture<Path> rotation;
+    private final long syncIntervalMs;
+    private final BlockingQueue<byte[]> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean closed;
+    private volatile Consumer<byte[]> mirror; // also sees every record, e.g. to replicate it
+
+    MoveJournal(Path path, long syncIntervalMs) throws IOException {
+        this.path = path;
+        this.syncIntervalMs = syncIntervalMs;
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.channel = openAppend(path);
+        this.writer = new Thread(this::writeLoop, "journal-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    private static FileChannel openAppend(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    /**
+     * Hands every record appended from now on to the mirror as well, on the
+     * appending thread and in journal order per room. The mirror must not
+     * block: it runs inside the room lock.
+     */
+    void setMirror(Consumer<byte[]> mirror) {
+        this.mirror = mirror;
+    }
+
+    /** @return Where rotate() moves the journal until a checkpoint covers it */
+    static Path rotatedPath(Path path) {
+        return path.resolveSibling(path.getFileName() + ".old");
+    }
+
+    /**
+     * Moves the current file aside and continues in a fresh one. Every record
+     * queued before this call ends up in the returned file, every later one in
+     * the new file.
+     *
+     * A rotated file that is still there, left by a checkpoint that failed or
+     * timed out, is returned as it is: the caller's checkpoint covers it as
+     * well. A rotation still pending from a timed-out call is waited for
+     * rather than queued twice.
+     *
+     * @return The rotated file, to be deleted once a checkpoint covers it
+     * @throws IOException If the writer could not switch files in time
+     */
+    synchronized Path rotate() throws IOException {
+        Path rotated = rotatedPath(path);
+        if (closed) {
+            throw new IOException("Journal is closed");
+        }
+        CompletableFuture<Path> done = rotation;
+        if (done == null || done.isDone()) {
+            if (Files.exists(rotated)) {
+                return rotated;
+            }
+            done = new CompletableFuture<>();
+            rotation = done;
+            queue.add(ROTATE);
+        }
+        try {
+            return done.get(10, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            throw new IOException("Journal rotation failed", e.getCause());
+        } catch (TimeoutException e) {
+            throw new IOException("Journal rotation timed out, the next checkpoint picks it up");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while rotating the journal");
+        }
+    }
+
+    /** A decoded journal entry; unused fields are left at their defaults. */
+    static final class Record {
+        byte type;
+        String roomId;
+        long version;
+        String player;
+        int row;
+        int col;
+        int boardSize;
+        int winLength;
+        int botLevel;
+        byte[] room; // ADOPT: the room as written by GameRoom.writeTo
+    }
+
+    /* Appenders: encode on the caller's thread, write on the journal thread */
+
+    void appendCreate(String roomId, String host, int boardSize, int winLength) {
+        append(CREATE, roomId, 0, out -> {
+            out.writeUTF(host);
+            out.writeByte(boardSize);
+            out.writeByte(winLength);
+        });
+    }
+
+    void appendJoin(String roomId, long version, String player) {
+        append(JOIN, roomId, version, out -> out.writeUTF(player));
+    }
+
+    void appendBot(String roomId, long version, String botName, int botLevel) {
+        append(BOT, roomId, version, out -> {
+            out.writeUTF(botName);
+            out.writeByte(botLevel);
+        });
+    }
+
+    void appendMove(String roomId, long version, int row, int col, String player) {
+        append(MOVE, roomId, version, out -> {
+            out.writeByte(row);
+            out.writeByte(col);
+            out.writeUTF(player);
+        });
+    }
+
+    void appendReset(String roomId, long version) {
+        append(RESET, roomId, version, out -> {
+        });
+    }
+
+    void appendDisconnect(String roomId, long version, String player) {
+        append(DISCONNECT, roomId, version, out -> out.writeUTF(player));
+    }
+
+    void appendRemove(String roomId) {
+        append(REMOVE, roomId, 0, out -> {
+        });
+    }
+
+    void appendAdopt(String roomId, byte[] room) {
+        append(ADOPT, roomId, 0, out -> {
+            out.writeShort(room.length);
+            out.write(room);
+        });
+    }
+
+    @FunctionalInterface
+    private interface Body {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private void append(byte type, String roomId, long version, Body body) {
+        if (closed) {
+            return;
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(48);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(type);
+            out.writeUTF(roomId);
+            out.writeLong(version);
+            body.write(out);
+            byte[] record = bytes.toByteArray();
+            queue.add(record);
+            Consumer<byte[]> mirror = this.mirror;
+            if (mirror != null) {
+                mirror.accept(record);
+            }
+        } catch (IOException e) {
+            // ByteArrayOutputStream does not throw
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /* Writer thread */
+
+    private void writeLoop() {
+        List<byte[]> batch = new ArrayList<>(MAX_BATCH);
+        long lastSync = System.currentTimeMillis();
+        boolean dirty = false;
+        boolean running = true;
+        CRC32 crc = new CRC32();
+        try {
+            while (running) {
+                byte[] first = queue.poll(Math.max(1, syncIntervalMs), TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, MAX_BATCH - 1);
+                    running = write(batch, crc);
+                    dirty = true;
+                    batch.clear();
+                }
+                long now = System.currentTimeMillis();
+                if (dirty && (now - lastSync >= syncIntervalMs || !running)) {
+                    channel.force(false);
+                    lastSync = now;
+                    dirty = false;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.err.println("[JOURNAL] Write failed, journaling stopped: " + e.getMessage());
+            closed = true;
+            CompletableFuture<Path> pending = rotation;
+            if (pending != null) {
+                pending.completeExceptionally(e);
+            }
+        }
+    }
+
+    // Returns false once the shutdown marker has been written out
+    private boolean write(List<byte[]> batch, CRC32 crc) throws IOException {
+        int total = 0;
+        for (byte[] record : batch) {
+            total += record.length + 8;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(total);
+        boolean running = true;
+        for (byte[] record : batch) {
+            if (record == SHUTDOWN) {
+                running = false;
+                continue;
+            }
+            if (record == ROTATE) {
+                flush(buffer);
+                switchFile();
+                continue;
+            }
+            crc.reset();
+            crc.update(record);
+            buffer.putInt(record.length).putInt((int) crc.getValue()).put(record);
+        }
+        flush(buffer);
+        return running;
+    }
+
+    private void flush(ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void switchFile() throws IOException {
+        Path rotated = rotatedPath(path);
+        channel.force(false);
+        channel.close();
+        Files.move(path, rotated, StandardCopyOption.ATOMIC_MOVE);
+        channel = openAppend(path);
+        rotation.complete(rotated);
+    }
+
+    /** Flushes and fsyncs everything queued so far, then stops the writer. */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        queue.add(SHUTDOWN);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    /* Recovery */
+
+    /**
+     * Reads every intact record of a journal file in order. A truncated or
+     * corrupt tail (torn last write) is cut off so appending can resume.
+     *
+     * @return Number of records applied
+     */
+    static int replay(Path path, Consumer<Record> handler) throws IOException {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        long goodBytes = 0;
+        int count = 0;
+        CRC32 crc = new CRC32();
+        try (InputStream file = Files.newInputStream(path);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(file, 1 << 16))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                int expectedCrc = in.readInt();
+                if (length <= 0 || length > 1 << 16) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != expectedCrc) {
+                    break;
+                }
+                handler.accept(decode(payload));
+                goodBytes += length + 8;
+                count++;
+            }
+        } catch (EOFException e) {
+            // Torn record at the tail
+        }
+        if (goodBytes < Files.size(path)) {
+            System.out.println("[JOURNAL] Discarding " + (Files.size(path) - goodBytes) + " bytes of torn tail");
+            try (FileChannel truncate = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                truncate.truncate(goodBytes);
+            }
+        }
+        return count;
+    }
+
+    static Record decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        Record record = new Record();
+        record.type = in.readByte();
+        record.roomId = in.readUTF();
+        record.version = in.readLong();
+        switch (record.type) {
+            case CREATE:
+                record.player = in.readUTF();
+                record.boardSize = in.readByte();
+                record.winLength = in.readByte();
+                break;
+            case JOIN:
+            case DISCONNECT:
+                record.player = in.readUTF();
+                break;
+            case BOT:
+                record.player = in.readUTF();
+                record.botLevel = in.readByte();
+                break;
+            case MOVE:
+                record.row = in.readByte();
+                record.col = in.readByte();
+                record.player = in.readUTF();
+                break;
+            case RESET:
+            case REMOVE:
+                break;
+            case ADOPT:
+                record.room = new byte[in.readUnsignedShort()];
+                in.readFully(record.room);
+                break;
+            default:
+                throw new IOException("Unknown journal record type " + record.type);
+        }
+        return record;
+    }
+}
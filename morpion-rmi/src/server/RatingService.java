@@ -0,0 +1,340 @@
+package server;
+
+import shared.LeaderboardPage;
+import shared.PlayerStats;
+import model.RankedSet;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.CRC32;
+
+/**
+ * Elo ratings and win/loss/draw records of every player who finished a game.
+ *
+ * Rooms only queue their result; a single updater thread applies queued
+ * results in batches, appends the changed profiles to the profile file and
+ * fsyncs once per batch, so makeMove never waits for the disk.
+ *
+ * Profiles are immutable PlayerStats held in two RankedSets, one ordered by
+ * name and one by rating. The updater builds new versions of both after each
+ * game and publishes them together through a single volatile, so profile,
+ * rank, top-N and around-player reads take O(log n) and no lock, and see
+ * either the standings before a game or those after it, never a mix.
+ *
+ * The profile file is a log of [length][crc32][profile] records, the latest
+ * per player winning. It is rewritten with one record per player on startup.
+ * Results still queued when the server dies are lost; the games themselves
+ * are in the move journal but are not rated again on replay.
+ */
+final class RatingService implements Closeable {
+    static final int INITIAL_RATING = 1500;
+    static final int MAX_LEADERBOARD = 100;
+    private static final double K_FACTOR = 32;
+    private static final int MAX_BATCH = 1024;
+
+    private static final class Result {
+        final String playerX;
+        final String playerO;
+        final String winner; // "X", "O" or "DRAW"
+
+        Result(String playerX, String playerO, String winner) {
+            this.playerX = playerX;
+            this.playerO = playerO;
+            this.winner = winner;
+        }
+    }
+
+    private static final Result SHUTDOWN = new Result(null, null, null);
+
+    private static final Comparator<PlayerStats> BY_NAME = Comparator.comparing(PlayerStats::getPlayerName);
+
+    /** One version of every profile, by name and by rating. */
+    private static final class Standings {
+        final RankedSet<PlayerStats> byName;
+        final RankedSet<PlayerStats> byRating;
+
+        Standings(RankedSet<PlayerStats> byName, RankedSet<PlayerStats> byRating) {
+            this.byName = byName;
+            this.byRating = byRating;
+        }
+
+        PlayerStats get(String playerName) {
+            return byName.find(new PlayerStats(playerName, INITIAL_RATING, 0, 0, 0));
+        }
+
+        Standings replace(PlayerStats old, PlayerStats updated) {
+            return new Standings(byName.without(old).with(updated), byRating.without(old).with(updated));
+        }
+    }
+
+    // Replaced by the updater after every game, never modified, so readers need no lock
+    private volatile Standings standings;
+    private final BlockingQueue<Result> queue = new LinkedBlockingQueue<>();
+    private final FileChannel channel; // null keeps profiles in memory only
+    private final Thread updater;
+    private volatile long gamesRated;
+
+    private RatingService(Collection<PlayerStats> loaded, FileChannel channel) {
+        standings = new Standings(RankedSet.of(loaded, BY_NAME), RankedSet.of(loaded, PlayerStats.BY_RATING));
+        this.channel = channel;
+        this.updater = new Thread(this::updateLoop, "rating-updater");
+        this.updater.setDaemon(true);
+        this.updater.start();
+    }
+
+    /** Ratings that are lost on restart. */
+    static RatingService inMemory() {
+        return new RatingService(new ArrayList<>(), null);
+    }
+
+    /** Loads the profiles stored at path, compacts the file and appends to it from then on. */
+    static RatingService open(Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Collection<PlayerStats> loaded = load(path).values();
+        compact(path, loaded);
+        return new RatingService(loaded, FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND));
+    }
+
+    /** Queues a finished game for rating; returns immediately. */
+    void gameCompleted(String playerX, String playerO, String winner) {
+        if (playerX != null && playerO != null && winner != null) {
+            queue.add(new Result(playerX, playerO, winner));
+        }
+    }
+
+    /** @return The player's rating, or INITIAL_RATING if they are unrated */
+    int getRating(String playerName) {
+        PlayerStats stats = standings.get(playerName);
+        return stats == null ? INITIAL_RATING : (int) Math.round(stats.getRating());
+    }
+
+    PlayerStats getStats(String playerName) {
+        return standings.get(playerName);
+    }
+
+    /** @return Up to limit best profiles, best first */
+    List<PlayerStats> top(int limit) {
+        return standings.byRating.range(1, Math.min(limit, MAX_LEADERBOARD));
+    }
+
+    /** @return 1-based rank of the player, or 0 if they are unrated */
+    int getRank(String playerName) {
+        LeaderboardPage page = around(playerName, 0);
+        return page == null ? 0 : page.getFirstRank();
+    }
+
+    /**
+     * @return The player with up to radius players above and below them, or
+     *         null if they are unrated
+     */
+    LeaderboardPage around(String playerName, int radius) {
+        int span = Math.max(0, Math.min(radius, MAX_LEADERBOARD / 2));
+        Standings current = standings; // one version, so the profile is always on its board
+        PlayerStats stats = current.get(playerName);
+        if (stats == null) {
+            return null;
+        }
+        RankedSet<PlayerStats> board = current.byRating;
+        int rank = board.rankOf(stats);
+        int first = Math.max(1, rank - span);
+        return new LeaderboardPage(first, board.size(), board.range(first, rank - first + span + 1));
+    }
+
+    int getPlayerCount() {
+        return standings.byName.size();
+    }
+
+    long getGamesRated() {
+        return gamesRated;
+    }
+
+    /** Rates what is still queued, then stops the updater. */
+    @Override
+    public void close() throws IOException {
+        queue.add(SHUTDOWN);
+        try {
+            updater.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    private void updateLoop() {
+        List<Result> batch = new ArrayList<>(MAX_BATCH);
+        Map<String, PlayerStats> changed = new HashMap<>();
+        try {
+            while (true) {
+                batch.add(queue.take());
+                queue.drainTo(batch, MAX_BATCH - 1);
+                boolean shutdown = false;
+                for (Result result : batch) {
+                    if (result == SHUTDOWN) {
+                        shutdown = true;
+                    } else {
+                        apply(result, changed);
+                    }
+                }
+                if (!changed.isEmpty()) {
+                    persist(changed.values());
+                }
+                batch.clear();
+                changed.clear();
+                if (shutdown) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void apply(Result result, Map<String, PlayerStats> changed) {
+        if (result.playerX.equals(result.playerO)) {
+            return;
+        }
+        PlayerStats x = profile(result.playerX);
+        PlayerStats o = profile(result.playerO);
+        double scoreX = result.winner.equals("X") ? 1 : result.winner.equals("O") ? 0 : 0.5;
+        double expectedX = 1 / (1 + Math.pow(10, (o.getRating() - x.getRating()) / 400));
+        double delta = K_FACTOR * (scoreX - expectedX);
+        PlayerStats newX = updated(x, x.getRating() + delta, scoreX);
+        PlayerStats newO = updated(o, o.getRating() - delta, 1 - scoreX);
+        // Both players move in place: O(log n) each, published as one new version
+        standings = standings.replace(x, newX).replace(o, newO);
+        changed.put(newX.getPlayerName(), newX);
+        changed.put(newO.getPlayerName(), newO);
+        gamesRated++;
+    }
+
+    private PlayerStats profile(String playerName) {
+        PlayerStats stats = standings.get(playerName);
+        return stats != null ? stats : new PlayerStats(playerName, INITIAL_RATING, 0, 0, 0);
+    }
+
+    private static PlayerStats updated(PlayerStats old, double rating, double score) {
+        return new PlayerStats(old.getPlayerName(), rating,
+                old.getWins() + (score == 1 ? 1 : 0),
+                old.getLosses() + (score == 0 ? 1 : 0),
+                old.getDraws() + (score == 0.5 ? 1 : 0));
+    }
+
+    /* Persistence */
+
+    private void persist(Collection<PlayerStats> changed) {
+        if (channel == null) {
+            return;
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(encodeAll(changed));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            System.err.println("[RATING] Profile write failed, " + changed.size() + " updates kept in memory only: "
+                    + e.getMessage());
+        }
+    }
+
+    private static byte[] encodeAll(Collection<PlayerStats> profiles) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(profiles.size() * 48);
+        DataOutputStream out = new DataOutputStream(bytes);
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(64);
+        DataOutputStream record = new DataOutputStream(payload);
+        CRC32 crc = new CRC32();
+        for (PlayerStats stats : profiles) {
+            payload.reset();
+            record.writeUTF(stats.getPlayerName());
+            record.writeDouble(stats.getRating());
+            record.writeInt(stats.getWins());
+            record.writeInt(stats.getLosses());
+            record.writeInt(stats.getDraws());
+            crc.reset();
+            crc.update(payload.toByteArray());
+            out.writeInt(payload.size());
+            out.writeInt((int) crc.getValue());
+            payload.writeTo(out);
+        }
+        return bytes.toByteArray();
+    }
+
+    // A torn record at the tail ends the read; compaction then drops it
+    private static Map<String, PlayerStats> load(Path path) throws IOException {
+        Map<String, PlayerStats> loaded = new HashMap<>();
+        if (!Files.exists(path)) {
+            return loaded;
+        }
+        long start = System.nanoTime();
+        CRC32 crc = new CRC32();
+        try (InputStream file = Files.newInputStream(path);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(file, 1 << 16))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                int expectedCrc = in.readInt();
+                if (length <= 0 || length > 1 << 16) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != expectedCrc) {
+                    break;
+                }
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+                PlayerStats stats = new PlayerStats(record.readUTF(), record.readDouble(), record.readInt(),
+                        record.readInt(), record.readInt());
+                loaded.put(stats.getPlayerName(), stats);
+            }
+        } catch (EOFException e) {
+            // Torn record at the tail
+        }
+        System.out.printf("[RATING] Loaded %d player profiles in %.1f ms%n", loaded.size(),
+                (System.nanoTime() - start) / 1e6);
+        return loaded;
+    }
+
+    private static void compact(Path path, Collection<PlayerStats> profiles) throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(encodeAll(profiles));
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            out.force(true);
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,116 @@
+package server;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Follower side of hot-standby replication: keeps this server's rooms
+ * identical to the leader's by applying its snapshot and record stream (see
+ * ReplicationServer). The follower serves nobody while it follows. Once the
+ * leader is lost, by a closed connection or LEADER_TIMEOUT_MS without even a
+ * heartbeat, it takes over with the rooms it has and runs the promotion
+ * callback, which makes it reachable to clients.
+ *
+ * There is no fencing: a follower cut off from a leader that is still alive
+ * takes over all the same. Until its first full snapshot the follower has
+ * nothing worth serving, so it keeps trying to reach the leader instead.
+ * Records are applied without a journal; the promoted server checkpoints
+ * the rooms and journals from then on.
+ */
+final class ReplicaFollower {
+    static final long LEADER_TIMEOUT_MS = 8 * ReplicationServer.HEARTBEAT_MS;
+    private static final long RETRY_MS = 1000;
+
+    private final MorpionServer server;
+    private final String host;
+    private final int port;
+    private final Runnable onPromoted;
+    private long applied;
+
+    ReplicaFollower(MorpionServer server, String host, int port, Runnable onPromoted) {
+        this.server = server;
+        this.host = host;
+        this.port = port;
+        this.onPromoted = onPromoted;
+    }
+
+    void start() {
+        Thread thread = new Thread(this::run, "replica-follower");
+        thread.start();
+    }
+
+    /*
+     * A stream that breaks after a full snapshot is reconnected straight
+     * away: the leader may only have dropped a lagging follower. The rooms
+     * are only replaced when a new snapshot has fully arrived, so a failed
+     * attempt leaves the last known state to take over with.
+     */
+    private void run() {
+        boolean everSynced = false;
+        while (true) {
+            boolean synced = false;
+            try (Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress(host, port), (int) LEADER_TIMEOUT_MS);
+                socket.setSoTimeout((int) LEADER_TIMEOUT_MS);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+                long start = System.nanoTime();
+                List<byte[]> snapshot = new ArrayList<>();
+                while (true) {
+                    int length = in.readInt();
+                    byte kind = in.readByte();
+                    byte[] payload = new byte[length - 1];
+                    in.readFully(payload);
+                    switch (kind) {
+                        case ReplicationServer.ROOM:
+                            snapshot.add(payload);
+                            break;
+                        case ReplicationServer.SNAPSHOT_END:
+                            server.clearReplicatedRooms();
+                            for (byte[] room : snapshot) {
+                                server.applyReplicatedRoom(room);
+                            }
+                            synced = true;
+                            everSynced = true;
+                            System.out.printf("[REPLICA] Following %s:%d, snapshot of %d rooms applied in %.1f ms%n",
+                                    host, port, snapshot.size(), (System.nanoTime() - start) / 1e6);
+                            snapshot = null;
+                            break;
+                        case ReplicationServer.RECORD:
+                            server.applyReplicatedRecord(MoveJournal.decode(payload));
+                            applied++;
+                            break;
+                        case ReplicationServer.HEARTBEAT:
+                            break;
+                        default:
+                            throw new IOException("Unknown replication frame " + kind);
+                    }
+                }
+            } catch (IOException e) {
+                if (everSynced && !synced) {
+                    System.out.println("[REPLICA] Leader lost (" + e.getMessage() + ") after " + applied
+                            + " records, taking over");
+                    server.promoteReplica();
+                    onPromoted.run();
+                    return;
+                }
+                if (synced) {
+                    System.out.println("[REPLICA] Stream from the leader broke (" + e.getMessage()
+                            + "), reconnecting");
+                    continue;
+                }
+                System.out.println("[REPLICA] Leader " + host + ":" + port + " not reachable yet: " + e.getMessage());
+            }
+            try {
+                Thread.sleep(RETRY_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
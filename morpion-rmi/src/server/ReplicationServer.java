@@ -0,0 +1,203 @@
+package server;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Leader side of hot-standby replication. Each follower that connects first
+ * gets every room as written for a checkpoint, then the stream of journal
+ * records appended since it connected; replaying them as recovery does, skipping
+ * records older than a room's version, keeps its rooms identical to ours.
+ *
+ * The journal hands each record to publish() inside the room lock, which only
+ * queues it. One sender thread per follower drains its queue in batches, one
+ * socket write per batch, so makeMove never waits for the network. A follower
+ * more than MAX_LAG_RECORDS behind is disconnected; it resyncs from a fresh
+ * snapshot when it reconnects. An idle stream carries a heartbeat every
+ * HEARTBEAT_MS, so followers can tell a quiet leader from a dead one.
+ *
+ * Frames: [int length][byte kind][payload], length counting the kind byte.
+ */
+final class ReplicationServer implements Closeable {
+    static final byte ROOM = 1;
+    static final byte SNAPSHOT_END = 2;
+    static final byte RECORD = 3;
+    static final byte HEARTBEAT = 4;
+    static final long HEARTBEAT_MS = 250;
+    private static final int MAX_LAG_RECORDS = 1 << 20;
+    private static final int MAX_BATCH = 4096;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final ServerSocket serverSocket;
+    private final Supplier<Collection<GameRoom>> rooms;
+    private final List<Follower> followers = new CopyOnWriteArrayList<>();
+    private volatile boolean closed;
+
+    private ReplicationServer(ServerSocket serverSocket, Supplier<Collection<GameRoom>> rooms) {
+        this.serverSocket = serverSocket;
+        this.rooms = rooms;
+    }
+
+    /**
+     * @param port  TCP port for followers, 0 for any free one
+     * @param rooms The live rooms, for the snapshot a new follower starts from
+     */
+    static ReplicationServer start(int port, Supplier<Collection<GameRoom>> rooms) throws IOException {
+        ServerSocket serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(port));
+        ReplicationServer server = new ReplicationServer(serverSocket, rooms);
+        Thread acceptor = new Thread(server::acceptLoop, "replication-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return server;
+    }
+
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    int getFollowerCount() {
+        return followers.size();
+    }
+
+    /** @return Records queued for the slowest follower, 0 without followers */
+    int getLag() {
+        int lag = 0;
+        for (Follower follower : followers) {
+            lag = Math.max(lag, follower.queue.size());
+        }
+        return lag;
+    }
+
+    /** Journal mirror: queues one encoded record for every follower. */
+    void publish(byte[] record) {
+        for (Follower follower : followers) {
+            follower.offer(record);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        serverSocket.close();
+        for (Follower follower : followers) {
+            follower.disconnect();
+        }
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                Follower follower = new Follower(socket);
+                Thread sender = new Thread(follower::run, "replication-" + socket.getRemoteSocketAddress());
+                sender.setDaemon(true);
+                sender.start();
+            } catch (IOException e) {
+                if (!closed) {
+                    System.err.println("[REPLICA] Accept failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private final class Follower {
+        private final Socket socket;
+        private final BlockingQueue<byte[]> queue = new LinkedBlockingQueue<>(MAX_LAG_RECORDS);
+
+        Follower(Socket socket) {
+            this.socket = socket;
+        }
+
+        void offer(byte[] record) {
+            if (!queue.offer(record) && followers.remove(this)) {
+                System.err.println("[REPLICA] Follower " + socket.getRemoteSocketAddress() + " is "
+                        + MAX_LAG_RECORDS + " records behind, disconnecting it");
+                disconnect();
+            }
+        }
+
+        void disconnect() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Closing anyway
+            }
+        }
+
+        // Registered before the snapshot is taken, so no record falls between the two
+        void run() {
+            followers.add(this);
+            try {
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(),
+                        BUFFER_SIZE));
+                long start = System.nanoTime();
+                ByteArrayOutputStream roomBytes = new ByteArrayOutputStream(256);
+                DataOutputStream roomOut = new DataOutputStream(roomBytes);
+                int count = 0;
+                for (GameRoom room : rooms.get()) {
+                    roomBytes.reset();
+                    if (room.writeTo(roomOut)) {
+                        out.writeInt(1 + roomBytes.size());
+                        out.writeByte(ROOM);
+                        roomBytes.writeTo(out);
+                        count++;
+                    }
+                }
+                writeFrame(out, SNAPSHOT_END, null);
+                out.flush();
+                System.out.printf("[REPLICA] Follower %s connected, sent %d rooms in %.1f ms%n",
+                        socket.getRemoteSocketAddress(), count, (System.nanoTime() - start) / 1e6);
+
+                List<byte[]> batch = new ArrayList<>(MAX_BATCH);
+                while (!closed) {
+                    byte[] first = queue.poll(HEARTBEAT_MS, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        writeFrame(out, HEARTBEAT, null);
+                    } else {
+                        batch.add(first);
+                        queue.drainTo(batch, MAX_BATCH - 1);
+                        for (byte[] record : batch) {
+                            writeFrame(out, RECORD, record);
+                        }
+                        batch.clear();
+                    }
+                    out.flush();
+                }
+            } catch (IOException e) {
+                if (!closed) {
+                    System.err.println("[REPLICA] Follower " + socket.getRemoteSocketAddress() + " lost: "
+                            + e.getMessage());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                followers.remove(this);
+                disconnect();
+            }
+        }
+
+        private void writeFrame(DataOutputStream out, byte kind, byte[] payload) throws IOException {
+            out.writeInt(1 + (payload == null ? 0 : payload.length));
+            out.writeByte(kind);
+            if (payload != null) {
+                out.write(payload);
+            }
+        }
+    }
+}
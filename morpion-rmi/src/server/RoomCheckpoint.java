@@ -0,0 +1,104 @@
+package server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Point-in-time copy of every live room in a compact binary file. Loading it
+ * and then replaying the journal records newer than each room's version
+ * rebuilds the server, so the records it covers can be thrown away.
+ *
+ * Layout: magic, creation time, one [1][room] entry per room, a 0 end marker
+ * and a CRC32 of everything before it. The file is written under a temporary
+ * name and renamed into place, so a crash mid-write keeps the previous one.
+ */
+final class RoomCheckpoint {
+    private static final int MAGIC = 0x4D434B31; // "MCK1"
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private RoomCheckpoint() {
+    }
+
+    /** @return Number of rooms written */
+    static int write(Path path, Collection<GameRoom> rooms) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        int count = 0;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            CheckedOutputStream checked = new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE), new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+            out.writeInt(MAGIC);
+            out.writeLong(System.currentTimeMillis());
+
+            // Each room is staged first: one removed in the meantime writes nothing
+            ByteArrayOutputStream roomBytes = new ByteArrayOutputStream(256);
+            DataOutputStream roomOut = new DataOutputStream(roomBytes);
+            for (GameRoom room : rooms) {
+                roomBytes.reset();
+                if (room.writeTo(roomOut)) {
+                    out.writeByte(1);
+                    roomBytes.writeTo(out);
+                    count++;
+                }
+            }
+            out.writeByte(0);
+            out.writeInt((int) checked.getChecksum().getValue());
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return count;
+    }
+
+    /**
+     * Reads a checkpoint. Nothing is returned unless the whole file checks out.
+     *
+     * @return Rooms in the file, empty if there is no checkpoint yet
+     */
+    static List<GameRoom> read(Path path, Executor callbackExecutor) throws IOException {
+        List<GameRoom> rooms = new ArrayList<>();
+        if (!Files.exists(path)) {
+            return rooms;
+        }
+        try (CheckedInputStream checked = new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE), new CRC32());
+                DataInputStream in = new DataInputStream(checked)) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(path + " is not a room checkpoint");
+            }
+            in.readLong(); // creation time
+            while (in.readByte() == 1) {
+                rooms.add(GameRoom.readFrom(in, callbackExecutor));
+            }
+            int expected = (int) checked.getChecksum().getValue();
+            if (in.readInt() != expected) {
+                throw new IOException(path + " is corrupt (checksum mismatch)");
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IOException(path + " is corrupt: " + e.getMessage());
+        }
+        return rooms;
+    }
+}
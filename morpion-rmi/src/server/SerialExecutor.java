@@ -0,0 +1,50 @@
+package server;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs tasks one at a time, in submission order, on top of a shared executor.
+ * Used to keep the events of one room ordered without giving each room its
+ * own thread.
+ */
+class SerialExecutor implements Executor {
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+    private final Executor backend;
+
+    SerialExecutor(Executor backend) {
+        this.backend = backend;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        tasks.add(task);
+        scheduleDrain();
+    }
+
+    private void scheduleDrain() {
+        if (!tasks.isEmpty() && scheduled.compareAndSet(false, true)) {
+            backend.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        try {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    System.err.println("[SERVER] Event task failed: " + e);
+                }
+            }
+        } finally {
+            scheduled.set(false);
+            // A task may have been queued between the last poll and the reset
+            scheduleDrain();
+        }
+    }
+}
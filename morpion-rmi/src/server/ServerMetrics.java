@@ -0,0 +1,172 @@
+package server;
+
+import shared.LatencyHistogram;
+import shared.MorpionInterface;
+import shared.MorpionInterface.RoomStatus;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Per-method instrumentation of the RMI surface. instrument() wraps the
+ * server in a MorpionInterface proxy that times every call into a
+ * LatencyHistogram, counts failures, and counts each status returned by
+ * methods such as makeMove and joinRoom; the proxy is what gets exported
+ * and bound. Nothing is locked on the call path: the method's counters are
+ * found in a map built up front, and recording is a handful of atomic adds.
+ *
+ * Room counts per RoomStatus are not kept up to date on every change but
+ * counted when read, which costs one pass over the rooms per JMX read. The
+ * expiry figures are those the wheel keeps for itself.
+ */
+final class ServerMetrics implements InvocationHandler, ServerMetricsMXBean {
+    private final MorpionInterface target;
+    private final Supplier<Collection<GameRoom>> rooms;
+    private final ExpiryWheel<?> expiry;
+    private final Map<Method, MethodMetrics> byMethod = new HashMap<>(); // read-only once built
+    private final Map<String, MethodMetrics> byName = new TreeMap<>();
+
+    private static final class MethodMetrics {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder failures = new LongAdder();
+        final Object[] statuses; // enum constants a method can return, null for other methods
+        final LongAdder[] outcomes;
+
+        MethodMetrics(Class<?> returnType) {
+            statuses = returnType.isEnum() ? returnType.getEnumConstants() : null;
+            outcomes = statuses == null ? null : new LongAdder[statuses.length];
+            for (int i = 0; outcomes != null && i < outcomes.length; i++) {
+                outcomes[i] = new LongAdder();
+            }
+        }
+    }
+
+    /**
+     * @param target The server to instrument
+     * @param rooms  Its live rooms, for the room counts
+     * @param expiry The wheel that expires them
+     */
+    ServerMetrics(MorpionInterface target, Supplier<Collection<GameRoom>> rooms, ExpiryWheel<?> expiry) {
+        this.target = target;
+        this.rooms = rooms;
+        this.expiry = expiry;
+        // Overloads share their counters: createRoom(name) is createRoom with the classic board
+        for (Method method : MorpionInterface.class.getMethods()) {
+            MethodMetrics metrics = byName.computeIfAbsent(method.getName(),
+                    name -> new MethodMetrics(method.getReturnType()));
+            byMethod.put(method, metrics);
+        }
+    }
+
+    /** @return A MorpionInterface that records every call into these metrics, then makes it on the target */
+    MorpionInterface instrument() {
+        return (MorpionInterface) Proxy.newProxyInstance(MorpionInterface.class.getClassLoader(),
+                new Class<?>[] { MorpionInterface.class }, this);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        MethodMetrics metrics = byMethod.get(method);
+        if (metrics == null) {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return "ServerMetrics proxy of " + target;
+            }
+        }
+        long start = System.nanoTime();
+        try {
+            Object result = method.invoke(target, args);
+            if (metrics.outcomes != null && result != null) {
+                metrics.outcomes[((Enum<?>) result).ordinal()].increment();
+            }
+            return result;
+        } catch (InvocationTargetException e) {
+            metrics.failures.increment();
+            throw e.getCause();
+        } finally {
+            metrics.latency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Map<String, MethodStats> getMethods() {
+        Map<String, MethodStats> methods = new LinkedHashMap<>();
+        byName.forEach((name, metrics) -> {
+            LatencyHistogram latency = metrics.latency;
+            Map<String, Long> outcomes = new LinkedHashMap<>();
+            for (int i = 0; metrics.outcomes != null && i < metrics.outcomes.length; i++) {
+                outcomes.put(metrics.statuses[i].toString(), metrics.outcomes[i].sum());
+            }
+            methods.put(name, new MethodStats(latency.getCount(), metrics.failures.sum(), latency.getMean() / 1e3,
+                    latency.getPercentile(50) / 1e3, latency.getPercentile(99) / 1e3,
+                    latency.getPercentile(99.9) / 1e3, latency.getMax() / 1e3, outcomes));
+        });
+        return methods;
+    }
+
+    @Override
+    public Map<String, Integer> getRoomsByStatus() {
+        int[] counts = new int[RoomStatus.values().length];
+        for (GameRoom room : rooms.get()) {
+            counts[room.getStatus().ordinal()]++;
+        }
+        Map<String, Integer> byStatus = new LinkedHashMap<>();
+        for (RoomStatus status : RoomStatus.values()) {
+            byStatus.put(status.toString(), counts[status.ordinal()]);
+        }
+        return byStatus;
+    }
+
+    @Override
+    public int getLiveRooms() {
+        return rooms.get().size();
+    }
+
+    @Override
+    public int getExpiryTrackedRooms() {
+        return expiry.getTrackedCount();
+    }
+
+    @Override
+    public int getExpiryLastChecked() {
+        return expiry.getLastChecked();
+    }
+
+    @Override
+    public int getExpiryLastRescheduled() {
+        return expiry.getLastRescheduled();
+    }
+
+    @Override
+    public int getExpiryLastReaped() {
+        return expiry.getLastReaped();
+    }
+
+    @Override
+    public long getExpiryTotalReaped() {
+        return expiry.getTotalReaped();
+    }
+
+    @Override
+    public void resetStatistics() {
+        for (MethodMetrics metrics : byName.values()) {
+            metrics.latency.reset();
+            metrics.failures.reset();
+            for (int i = 0; metrics.outcomes != null && i < metrics.outcomes.length; i++) {
+                metrics.outcomes[i].reset();
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package server;
+
+import java.util.Map;
+
+/**
+ * Management view of a running MorpionServer, registered with the platform
+ * MBean server as "morpion:type=Server,name=..." (see
+ * MorpionServer.startMetrics). Readable from jconsole, VisualVM or any JMX
+ * client; statistics cover calls made through RMI since the start or the
+ * last reset.
+ */
+public interface ServerMetricsMXBean {
+    /**
+     * @return Per MorpionInterface method (overloads together): calls,
+     *         failures, latency percentiles and, for methods that return a
+     *         status, how often each status came back
+     */
+    Map<String, MethodStats> getMethods();
+
+    /** @return Live rooms per RoomStatus, counted when read */
+    Map<String, Integer> getRoomsByStatus();
+
+    /** @return Rooms currently held by the server */
+    int getLiveRooms();
+
+    /** @return Rooms the expiry wheel tracks, including some removed since its last tick */
+    int getExpiryTrackedRooms();
+
+    /** @return Rooms the last expiry tick looked at */
+    int getExpiryLastChecked();
+
+    /** @return Rooms the last expiry tick found active and put back in the wheel */
+    int getExpiryLastRescheduled();
+
+    /** @return Rooms the last expiry tick removed for inactivity */
+    int getExpiryLastReaped();
+
+    /** @return Rooms removed for inactivity since the server started */
+    long getExpiryTotalReaped();
+
+    /** Starts every method's statistics over; room counts are unaffected. */
+    void resetStatistics();
+}
@@ -0,0 +1,98 @@
+package server;
+
+import shared.ShardDirectoryInterface;
+import shared.ShardMap;
+import java.rmi.RemoteException;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The directory of a sharded deployment: which nodes are up and where to
+ * reach them. It holds no rooms and sees no game traffic; nodes renew their
+ * membership every second and clients only come back when a room has moved.
+ * A node silent for NODE_TIMEOUT_MS is dropped so that nothing routes to it.
+ *
+ * Start the directory first, then each node with -Dmorpion.directory. Nodes
+ * sharing a host each need their own journal, checkpoint and profiles (a
+ * node refuses to start on files another server holds) and, if they speak
+ * the binary protocol, their own -Dmorpion.binary.port:
+ *
+ *   java -cp bin server.ShardDirectory [port]
+ *   java -Dmorpion.directory=localhost:1098 -Dmorpion.node=a -Dmorpion.rmi.port=1101
+ *        -Dmorpion.journal=data/a.journal -Dmorpion.checkpoint=data/a.checkpoint
+ *        -Dmorpion.profiles=data/a.profiles -Dmorpion.binary.port=1201 -cp bin server.MorpionServer
+ */
+public class ShardDirectory extends UnicastRemoteObject implements ShardDirectoryInterface {
+    private static final long serialVersionUID = 1L;
+    static final long NODE_TIMEOUT_MS = 5000;
+
+    private volatile ShardMap map = ShardMap.empty(); // replaced under the lock, read without it
+    private final Map<String, Long> lastSeen = new HashMap<>(); // guarded by this
+    private final ScheduledExecutorService reaper = Executors.newSingleThreadScheduledExecutor();
+
+    public ShardDirectory() throws RemoteException {
+        reaper.scheduleAtFixedRate(this::dropSilentNodes, NODE_TIMEOUT_MS, NODE_TIMEOUT_MS / 5,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized ShardMap join(String nodeId, String endpoint) throws RemoteException {
+        if (nodeId == null || endpoint == null) {
+            return map;
+        }
+        lastSeen.put(nodeId, System.currentTimeMillis());
+        if (!endpoint.equals(map.getEndpoint(nodeId))) {
+            map = map.with(nodeId, endpoint);
+            System.out.println("[SHARD] Node " + nodeId + " joined at " + endpoint + ", map " + map);
+        }
+        return map;
+    }
+
+    @Override
+    public synchronized ShardMap leave(String nodeId) throws RemoteException {
+        lastSeen.remove(nodeId);
+        if (map.getEndpoint(nodeId) != null) {
+            map = map.without(nodeId);
+            System.out.println("[SHARD] Node " + nodeId + " left, map " + map);
+        }
+        return map;
+    }
+
+    @Override
+    public ShardMap getShardMap() throws RemoteException {
+        return map;
+    }
+
+    private synchronized void dropSilentNodes() {
+        long cutoff = System.currentTimeMillis() - NODE_TIMEOUT_MS;
+        for (Iterator<Map.Entry<String, Long>> it = lastSeen.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<String, Long> node = it.next();
+            if (node.getValue() < cutoff) {
+                it.remove();
+                map = map.without(node.getKey());
+                System.out.println("[SHARD] Node " + node.getKey() + " silent for " + NODE_TIMEOUT_MS
+                        + " ms, dropped; map " + map);
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        try {
+            int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+            Registry registry = LocateRegistry.createRegistry(port);
+            registry.rebind(NAME, new ShardDirectory());
+            System.out.println("[SHARD] Directory ready on port " + port);
+        } catch (Exception e) {
+            System.err.println("[SHARD] Directory failed to start: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+}
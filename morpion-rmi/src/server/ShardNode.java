@@ -0,0 +1,274 @@
+package server;
+
+import shared.ShardDirectoryInterface;
+import shared.ShardMap;
+import shared.ShardNodeInterface;
+import java.io.IOException;
+import java.rmi.NotBoundException;
+import java.rmi.RemoteException;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One server's membership in a sharded deployment. Joins the directory, then
+ * renews the membership every SYNC_INTERVAL_MS; whenever the shard map
+ * changes, every room this node no longer owns is handed to its new owner,
+ * which receives it through adoptRooms. A node that joins thus pulls its
+ * share of rooms from its ring neighbours within a sync interval.
+ *
+ * Only game state moves. Listeners and spectators on the old node are
+ * dropped and clients register again, as after a server restart. A room is
+ * unavailable between its hand-off and its adoption; the sharded client
+ * retries through that window. If the new owner can't be reached, the rooms
+ * are taken back and offered again on the next sync. If it was reached but
+ * the call failed, it may have adopted them all the same, so it is asked
+ * which ones it holds and only the others are taken back; until it answers,
+ * or leaves the ring, they are served by neither node.
+ */
+final class ShardNode extends UnicastRemoteObject implements ShardNodeInterface {
+    private static final long serialVersionUID = 1L;
+    static final long SYNC_INTERVAL_MS = 1000;
+    // Rooms per adoptRooms call: bounds how long a handed-off room waits for its new owner
+    private static final int HANDOFF_BATCH = 256;
+
+    private final MorpionServer server;
+    private final String nodeId;
+    private final String endpoint;
+    private final ShardDirectoryInterface directory;
+    private final ScheduledExecutorService syncExecutor = Executors.newSingleThreadScheduledExecutor(
+            task -> {
+                Thread thread = new Thread(task, "shard-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+    private volatile ShardMap map = ShardMap.empty();
+    private boolean misplaced; // a hand-off failed and is retried; touched by the sync thread only
+    private final List<Unsettled> unsettled = new ArrayList<>(); // sync thread only
+
+    /** Rooms offered in an adoptRooms call that failed after reaching the owner. */
+    private static final class Unsettled {
+        final String owner;
+        final String endpoint;
+        final List<String> roomIds;
+        final List<byte[]> rooms;
+
+        Unsettled(String owner, String endpoint, List<String> roomIds, List<byte[]> rooms) {
+            this.owner = owner;
+            this.endpoint = endpoint;
+            this.roomIds = roomIds;
+            this.rooms = rooms;
+        }
+    }
+
+    ShardNode(MorpionServer server, String nodeId, String endpoint, ShardDirectoryInterface directory)
+            throws RemoteException {
+        this.server = server;
+        this.nodeId = nodeId;
+        this.endpoint = endpoint;
+        this.directory = directory;
+    }
+
+    /** Joins the ring and starts renewing the membership. */
+    void start() throws RemoteException {
+        map = directory.join(nodeId, endpoint);
+        System.out.println("[SHARD] " + nodeId + " joined at " + endpoint + ", map " + map);
+        syncExecutor.execute(this::rebalance); // recovered rooms may belong elsewhere now
+        syncExecutor.scheduleWithFixedDelay(this::sync, SYNC_INTERVAL_MS, SYNC_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /** @return true if new rooms with this id belong here */
+    boolean owns(String roomId) {
+        ShardMap current = map;
+        return current.isEmpty() || nodeId.equals(current.ownerOf(roomId));
+    }
+
+    /** Leaves the ring and hands every room to the nodes that remain. */
+    void leave() {
+        syncExecutor.shutdownNow();
+        try {
+            ShardMap remaining = directory.leave(nodeId);
+            if (!remaining.isEmpty()) {
+                map = remaining;
+                rebalance();
+            }
+            System.out.println("[SHARD] " + nodeId + " left the ring");
+        } catch (RemoteException e) {
+            System.err.println("[SHARD] Leaving failed, rooms stay in this node's journal: " + e.getMessage());
+        }
+    }
+
+    // Synchronized with heldRooms, so a sender never asks in the middle of an adoption
+    @Override
+    public synchronized int adoptRooms(List<byte[]> rooms) throws RemoteException {
+        try {
+            int adopted = server.adoptRooms(rooms);
+            System.out.println("[SHARD] Adopted " + adopted + " of " + rooms.size() + " rooms");
+            return adopted;
+        } catch (IOException e) {
+            throw new RemoteException("Unreadable room", e);
+        }
+    }
+
+    @Override
+    public synchronized List<String> heldRooms(List<String> roomIds) {
+        List<String> held = new ArrayList<>();
+        for (String roomId : roomIds) {
+            if (server.holdsRoom(roomId)) {
+                held.add(roomId);
+            }
+        }
+        return held;
+    }
+
+    // The renewal doubles as the map fetch
+    private void sync() {
+        try {
+            apply(directory.join(nodeId, endpoint));
+        } catch (RemoteException e) {
+            System.err.println("[SHARD] Directory unreachable, keeping map v" + map.getVersion() + ": "
+                    + e.getMessage());
+        } catch (RuntimeException e) {
+            // Keeps the schedule alive
+            System.err.println("[SHARD] Sync failed: " + e);
+        }
+    }
+
+    private void apply(ShardMap latest) {
+        if (latest.getVersion() > map.getVersion()) {
+            map = latest;
+            System.out.println("[SHARD] Map " + latest);
+            rebalance();
+        } else if (misplaced) {
+            rebalance();
+        }
+    }
+
+    // Rooms go out in batches per owner, each handed off just before its batch is sent
+    private void rebalance() {
+        ShardMap current = map;
+        long start = System.nanoTime();
+        Map<String, List<String>> ids = new HashMap<>();
+        Map<String, List<byte[]>> batches = new HashMap<>();
+        Set<String> unreachable = new HashSet<>(); // its rooms stay here until the next sync
+        int moved = 0;
+        misplaced = false;
+        // Settled first, so rooms taken back are offered again in this same pass
+        List<Unsettled> waiting = new ArrayList<>(unsettled);
+        unsettled.clear();
+        for (Unsettled batch : waiting) {
+            moved += settle(batch, current);
+        }
+        for (String roomId : server.getRoomIds()) {
+            String owner = current.ownerOf(roomId);
+            if (nodeId.equals(owner) || unreachable.contains(owner)) {
+                continue;
+            }
+            byte[] room = server.handOffRoom(roomId);
+            if (room == null) {
+                continue;
+            }
+            ids.computeIfAbsent(owner, o -> new ArrayList<>()).add(roomId);
+            List<byte[]> batch = batches.computeIfAbsent(owner, o -> new ArrayList<>());
+            batch.add(room);
+            if (batch.size() == HANDOFF_BATCH) {
+                moved += send(current, owner, ids.remove(owner), batches.remove(owner), unreachable);
+            }
+        }
+        for (String owner : new ArrayList<>(batches.keySet())) {
+            moved += send(current, owner, ids.remove(owner), batches.remove(owner), unreachable);
+        }
+        if (moved > 0 || misplaced) {
+            System.out.printf("[SHARD] Handed %d rooms to other nodes in %.1f ms%s%n", moved,
+                    (System.nanoTime() - start) / 1e6, misplaced ? ", some kept for a retry" : "");
+        }
+    }
+
+    private int send(ShardMap current, String owner, List<String> roomIds, List<byte[]> rooms,
+            Set<String> unreachable) {
+        String endpoint = current.getEndpoint(owner);
+        ShardNodeInterface target;
+        try {
+            target = lookup(endpoint);
+        } catch (RemoteException | NotBoundException e) {
+            // Never reached, so the rooms can only be here
+            System.err.println("[SHARD] Hand-off to " + owner + " failed, keeping " + rooms.size() + " rooms: "
+                    + e.getMessage());
+            takeBack(rooms);
+            unreachable.add(owner);
+            misplaced = true;
+            return 0;
+        }
+        try {
+            target.adoptRooms(rooms);
+        } catch (RemoteException e) {
+            System.err.println("[SHARD] Hand-off to " + owner + " failed after reaching it, asking which of "
+                    + rooms.size() + " rooms it took: " + e.getMessage());
+            unreachable.add(owner);
+            return settle(new Unsettled(owner, endpoint, roomIds, rooms), current);
+        }
+        server.handedOff(roomIds);
+        return rooms.size();
+    }
+
+    /**
+     * Finds out which rooms of a failed call the owner holds: those count as
+     * handed off, the others are taken back. If it can't be asked, the rooms
+     * wait for the next sync, unless it has left the ring.
+     *
+     * @return Number of rooms the owner holds
+     */
+    private int settle(Unsettled batch, ShardMap current) {
+        Set<String> held;
+        try {
+            held = new HashSet<>(lookup(batch.endpoint).heldRooms(batch.roomIds));
+        } catch (RemoteException | NotBoundException e) {
+            if (current.getEndpoint(batch.owner) != null) {
+                System.err.println("[SHARD] " + batch.owner + " can't say which of " + batch.rooms.size()
+                        + " rooms it took, holding them until it can: " + e.getMessage());
+                unsettled.add(batch);
+                misplaced = true;
+                return 0;
+            }
+            held = Set.of(); // gone from the ring, so nothing of it is served any more
+        }
+        List<String> handed = new ArrayList<>();
+        List<byte[]> kept = new ArrayList<>();
+        for (int i = 0; i < batch.roomIds.size(); i++) {
+            if (held.contains(batch.roomIds.get(i))) {
+                handed.add(batch.roomIds.get(i));
+            } else {
+                kept.add(batch.rooms.get(i));
+            }
+        }
+        server.handedOff(handed);
+        if (!kept.isEmpty()) {
+            takeBack(kept);
+            misplaced = true;
+        }
+        return handed.size();
+    }
+
+    private void takeBack(List<byte[]> rooms) {
+        try {
+            server.adoptRooms(rooms);
+        } catch (IOException unreadable) {
+            // Written by this JVM a moment ago
+            throw new IllegalStateException(unreadable);
+        }
+    }
+
+    private static ShardNodeInterface lookup(String endpoint) throws RemoteException, NotBoundException {
+        String[] hostPort = endpoint.split(":");
+        return (ShardNodeInterface) LocateRegistry.getRegistry(hostPort[0], Integer.parseInt(hostPort[1]))
+                .lookup(ShardNodeInterface.NAME);
+    }
+}
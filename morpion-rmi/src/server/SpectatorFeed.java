@@ -0,0 +1,156 @@
+package server;
+
+import shared.RoomBroadcast;
+import shared.RoomSnapshot;
+import shared.SpectatorListener;
+import java.rmi.RemoteException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Fans a room's state out to its spectators without holding up the players.
+ * The room hands over a snapshot taken under the lock it already holds for
+ * the change; encoding and delivery run on executors of their own, never on
+ * the player's thread or the room's event executor. Delivery blocks on the
+ * network, so encoding gets separate threads that a stalled spectator can't
+ * hold up.
+ *
+ * Each state is encoded once into a RoomBroadcast shared by every spectator,
+ * and states that arrive faster than they can be encoded are coalesced to the
+ * newest. A spectator has at most one call in flight and is sent the newest
+ * state when it returns, so a slow spectator skips intermediate boards instead
+ * of building a backlog. One that can't be reached is dropped, and so is one
+ * still in its call DELIVERY_DEADLINE_MS after it started, when the next state
+ * is ready for it.
+ */
+final class SpectatorFeed {
+    private static final long DELIVERY_DEADLINE_MS = 2000; // under the RMI response timeout, so we drop first
+
+    private final String roomId;
+    private final Executor encoder;
+    private final Executor deliverer;
+    private final Map<String, Spectator> spectators = new ConcurrentHashMap<>();
+    private final AtomicReference<RoomBroadcast> latest = new AtomicReference<>();
+    private final AtomicReference<RoomSnapshot> pending = new AtomicReference<>(); // newest state not yet encoded
+    private final AtomicBoolean encodeScheduled = new AtomicBoolean();
+
+    private static final class Spectator {
+        final SpectatorListener listener;
+        final AtomicBoolean inFlight = new AtomicBoolean();
+        volatile long callStartedAt; // 0 unless the call is running, not merely queued
+        volatile long delivered; // version the spectator last received
+
+        Spectator(SpectatorListener listener, long delivered) {
+            this.listener = listener;
+            this.delivered = delivered;
+        }
+    }
+
+    /**
+     * @param encoder   Runs the encoding of each state
+     * @param deliverer Runs the blocking calls to the spectators
+     */
+    SpectatorFeed(String roomId, Executor encoder, Executor deliverer) {
+        this.roomId = roomId;
+        this.encoder = encoder;
+        this.deliverer = deliverer;
+    }
+
+    /** @return The newest encoded state, or null before the first change is published */
+    RoomBroadcast getLatest() {
+        return latest.get();
+    }
+
+    int getSpectatorCount() {
+        return spectators.size();
+    }
+
+    /**
+     * Adds (or replaces) a spectator that already has the given state; newer
+     * states follow as they are published.
+     */
+    void watch(String spectatorName, SpectatorListener listener, RoomBroadcast current) {
+        offer(current);
+        Spectator spectator = new Spectator(listener, current.getVersion());
+        spectators.put(spectatorName, spectator);
+        // A change may have been published meanwhile
+        schedule(spectatorName, spectator, System.currentTimeMillis());
+    }
+
+    void unwatch(String spectatorName) {
+        spectators.remove(spectatorName);
+    }
+
+    /**
+     * Called by the room, with its lock held, after every change. Costs the
+     * caller a reference swap; at most one encoding task is queued, and it
+     * encodes whichever state is newest when it runs.
+     */
+    void publish(RoomSnapshot snapshot) {
+        pending.set(snapshot);
+        if (encodeScheduled.compareAndSet(false, true)) {
+            encoder.execute(this::encodeAndFanOut);
+        }
+    }
+
+    private void encodeAndFanOut() {
+        encodeScheduled.set(false); // before taking the state, so a newer one schedules another run
+        RoomSnapshot snapshot = pending.getAndSet(null);
+        if (snapshot != null && offer(new RoomBroadcast(snapshot))) {
+            long now = System.currentTimeMillis();
+            spectators.forEach((name, spectator) -> schedule(name, spectator, now));
+        }
+    }
+
+    // Encoding tasks may finish out of order; an older state never replaces a newer one
+    private boolean offer(RoomBroadcast broadcast) {
+        while (true) {
+            RoomBroadcast current = latest.get();
+            if (current != null && current.getVersion() >= broadcast.getVersion()) {
+                return false;
+            }
+            if (latest.compareAndSet(current, broadcast)) {
+                return true;
+            }
+        }
+    }
+
+    private void schedule(String name, Spectator spectator, long now) {
+        RoomBroadcast broadcast = latest.get();
+        if (broadcast == null || spectator.delivered >= broadcast.getVersion()) {
+            return;
+        }
+        if (spectator.inFlight.compareAndSet(false, true)) {
+            deliverer.execute(() -> deliver(name, spectator));
+            return;
+        }
+        long startedAt = spectator.callStartedAt;
+        if (startedAt != 0 && now - startedAt > DELIVERY_DEADLINE_MS
+                && spectators.remove(name, spectator)) {
+            // Its thread stays blocked until the call returns, but it is never given another
+            System.out.println("[ROOM] Dropped stalled spectator " + name + " of room " + roomId);
+        }
+    }
+
+    private void deliver(String name, Spectator spectator) {
+        RoomBroadcast broadcast = latest.get();
+        spectator.callStartedAt = System.currentTimeMillis();
+        try {
+            spectator.listener.onRoomUpdate(broadcast);
+            spectator.delivered = broadcast.getVersion();
+        } catch (RemoteException e) {
+            spectators.remove(name, spectator);
+            System.out.println("[ROOM] Dropped unreachable spectator " + name + " of room " + roomId);
+        } finally {
+            spectator.callStartedAt = 0;
+            spectator.inFlight.set(false);
+        }
+        // States published during the call were skipped for us
+        if (spectators.get(name) == spectator) {
+            schedule(name, spectator, System.currentTimeMillis());
+        }
+    }
+}
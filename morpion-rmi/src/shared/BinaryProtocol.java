@@ -0,0 +1,249 @@
+package shared;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import shared.MorpionInterface.RoomStatus;
+
+/**
+ * Compact binary encoding of MorpionInterface calls, used by the NIO
+ * transport as an alternative to RMI and Java serialization.
+ *
+ * Every message is a frame: [int length][int requestId][byte code][payload],
+ * where length counts everything after itself. A request's code is one of the
+ * operation codes below, and its payload the arguments in declaration order.
+ * The response reuses the requestId, so calls on one connection may overlap;
+ * its code is OK followed by the result, or FAILED followed by a message.
+ *
+ * The single-room methods of MorpionInterface are sent as their room-scoped
+ * counterparts addressed to DEFAULT_ROOM.
+ *
+ * Strings are modified UTF-8 (DataOutput.writeUTF); a nullable string is
+ * preceded by a presence byte. Boards are packed four cells per byte, two
+ * bits per cell: 0 empty, 1 X, 2 O.
+ */
+public final class BinaryProtocol {
+    public static final int DEFAULT_PORT = 1100; // servers only listen with -Dmorpion.binary.port set
+    public static final int HEADER_BYTES = 9; // length, requestId, code
+    public static final int MAX_FRAME_BYTES = 1 << 16;
+    public static final String DEFAULT_ROOM = "default";
+
+    // Response codes
+    public static final byte OK = 0;
+    public static final byte FAILED = 1;
+
+    // Operation codes; the results are noted where they aren't obvious
+    public static final byte CREATE_ROOM = 1; // player, size, winLength -> nullable room id
+    public static final byte JOIN_ROOM = 2; // room, player -> RegistrationStatus
+    public static final byte ADD_BOT = 3; // room, BotDifficulty -> RegistrationStatus
+    public static final byte LIST_AVAILABLE_ROOMS = 4; // -> string list
+    public static final byte LIST_ROOMS = 5; // nullable cursor, limit -> LobbyPage
+    public static final byte GET_LOBBY_CHANGES = 6; // since -> LobbyUpdate
+    public static final byte QUICK_MATCH = 7; // player, size, winLength, maxWaitMs -> MatchResult
+    public static final byte CANCEL_QUICK_MATCH = 8;
+    public static final byte GET_MATCHMAKING_STATS = 9;
+    public static final byte GET_PLAYER_STATS = 10; // player -> nullable PlayerStats
+    public static final byte GET_LEADERBOARD = 11; // limit -> PlayerStats list
+    public static final byte GET_RANK = 12;
+    public static final byte GET_LEADERBOARD_AROUND = 13; // player, radius -> nullable LeaderboardPage
+    public static final byte GET_ROOM_STATUS = 14; // room -> RoomStatus
+    public static final byte MAKE_MOVE = 15; // room, row, col, player -> MoveStatus
+    public static final byte GET_CURRENT_BOARD = 16; // room -> string
+    public static final byte GET_ROOM_SNAPSHOT = 17; // room, nullable player -> nullable RoomSnapshot
+    public static final byte WAIT_FOR_CHANGE = 18; // room, since, timeoutMs -> nullable RoomSnapshot
+    public static final byte IS_GAME_OVER = 19;
+    public static final byte GET_WINNER = 20; // room -> nullable string
+    public static final byte IS_PLAYER_TURN = 21;
+    public static final byte IS_GAME_READY = 22;
+    public static final byte RESET_GAME = 23;
+    public static final byte DISCONNECT_PLAYER = 24; // room, player
+    public static final byte GET_PLAYER_SYMBOL = 25; // room, player -> nullable string
+    public static final byte REGISTER_PLAYER = 26; // player -> RegistrationStatus
+
+    private static final RoomStatus[] ROOM_STATUSES = RoomStatus.values();
+
+    private BinaryProtocol() {
+    }
+
+    public static void writeNullable(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    public static String readNullable(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    public static void writeStrings(DataOutput out, List<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            out.writeUTF(value);
+        }
+    }
+
+    public static List<String> readStrings(DataInput in) throws IOException {
+        int count = in.readInt();
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(in.readUTF());
+        }
+        return values;
+    }
+
+    /* Rooms */
+
+    public static void writeSnapshot(DataOutput out, RoomSnapshot snapshot) throws IOException {
+        out.writeUTF(snapshot.getRoomId());
+        out.writeByte(snapshot.getSize());
+        char[] cells = snapshot.getCells();
+        for (int i = 0; i < cells.length; i += 4) {
+            int packed = 0;
+            for (int j = 0; j < 4 && i + j < cells.length; j++) {
+                int cell = cells[i + j] == 'X' ? 1 : cells[i + j] == 'O' ? 2 : 0;
+                packed |= cell << (j * 2);
+            }
+            out.writeByte(packed);
+        }
+        writeNullable(out, snapshot.getCurrentTurn());
+        out.writeByte(snapshot.getStatus().ordinal());
+        writeNullable(out, snapshot.getWinner());
+        out.writeLong(snapshot.getVersion());
+        out.writeUTF(snapshot.getHostPlayer());
+        writeNullable(out, snapshot.getGuestPlayer());
+        writeNullable(out, snapshot.getViewerSymbol());
+    }
+
+    public static RoomSnapshot readSnapshot(DataInput in) throws IOException {
+        String roomId = in.readUTF();
+        int size = in.readUnsignedByte();
+        char[] cells = new char[size * size];
+        for (int i = 0; i < cells.length; i += 4) {
+            int packed = in.readUnsignedByte();
+            for (int j = 0; j < 4 && i + j < cells.length; j++) {
+                int cell = (packed >> (j * 2)) & 3;
+                cells[i + j] = cell == 1 ? 'X' : cell == 2 ? 'O' : ' ';
+            }
+        }
+        String currentTurn = readNullable(in);
+        RoomStatus status = ROOM_STATUSES[in.readUnsignedByte()];
+        String winner = readNullable(in);
+        long version = in.readLong();
+        String hostPlayer = in.readUTF();
+        String guestPlayer = readNullable(in);
+        String viewerSymbol = readNullable(in);
+        return new RoomSnapshot(roomId, size, cells, currentTurn, status, winner, version, hostPlayer, guestPlayer,
+                viewerSymbol);
+    }
+
+    /* Lobby */
+
+    public static void writeLobbyPage(DataOutput out, LobbyPage page) throws IOException {
+        out.writeLong(page.getVersion());
+        out.writeInt(page.getTotalRooms());
+        writeNullable(out, page.getNextCursor());
+        writeStrings(out, page.getRooms());
+    }
+
+    public static LobbyPage readLobbyPage(DataInput in) throws IOException {
+        long version = in.readLong();
+        int totalRooms = in.readInt();
+        String nextCursor = readNullable(in);
+        return new LobbyPage(version, totalRooms, nextCursor, readStrings(in));
+    }
+
+    public static void writeLobbyUpdate(DataOutput out, LobbyUpdate update) throws IOException {
+        out.writeLong(update.getFromVersion());
+        out.writeLong(update.getToVersion());
+        out.writeInt(update.getTotalRooms());
+        out.writeBoolean(update.isResync());
+        out.writeInt(update.getDeltas().size());
+        for (LobbyDelta delta : update.getDeltas()) {
+            out.writeByte(delta.getType().ordinal());
+            out.writeUTF(delta.getRoomId());
+            writeNullable(out, delta.getDescription());
+        }
+    }
+
+    public static LobbyUpdate readLobbyUpdate(DataInput in) throws IOException {
+        long fromVersion = in.readLong();
+        long toVersion = in.readLong();
+        int totalRooms = in.readInt();
+        boolean resync = in.readBoolean();
+        int count = in.readInt();
+        List<LobbyDelta> deltas = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            LobbyDelta.Type type = LobbyDelta.Type.values()[in.readUnsignedByte()];
+            deltas.add(new LobbyDelta(type, in.readUTF(), readNullable(in)));
+        }
+        return new LobbyUpdate(fromVersion, toVersion, totalRooms, resync, deltas);
+    }
+
+    /* Matchmaking and ratings */
+
+    public static void writeMatchResult(DataOutput out, MatchResult result) throws IOException {
+        out.writeByte(result.getStatus().ordinal());
+        writeNullable(out, result.getRoomId());
+        writeNullable(out, result.getSymbol());
+        writeNullable(out, result.getOpponent());
+        out.writeLong(result.getWaitMs());
+    }
+
+    public static MatchResult readMatchResult(DataInput in) throws IOException {
+        MatchResult.Status status = MatchResult.Status.values()[in.readUnsignedByte()];
+        return new MatchResult(status, readNullable(in), readNullable(in), readNullable(in), in.readLong());
+    }
+
+    public static void writeMatchmakingStats(DataOutput out, MatchmakingStats stats) throws IOException {
+        out.writeInt(stats.getQueueDepth());
+        out.writeLong(stats.getMatchesMade());
+        out.writeDouble(stats.getAverageWaitMs());
+        out.writeLong(stats.getMaxWaitMs());
+    }
+
+    public static MatchmakingStats readMatchmakingStats(DataInput in) throws IOException {
+        return new MatchmakingStats(in.readInt(), in.readLong(), in.readDouble(), in.readLong());
+    }
+
+    public static void writePlayerStats(DataOutput out, PlayerStats stats) throws IOException {
+        out.writeUTF(stats.getPlayerName());
+        out.writeDouble(stats.getRating());
+        out.writeInt(stats.getWins());
+        out.writeInt(stats.getLosses());
+        out.writeInt(stats.getDraws());
+    }
+
+    public static PlayerStats readPlayerStats(DataInput in) throws IOException {
+        return new PlayerStats(in.readUTF(), in.readDouble(), in.readInt(), in.readInt(), in.readInt());
+    }
+
+    public static void writePlayerStatsList(DataOutput out, List<PlayerStats> list) throws IOException {
+        out.writeInt(list.size());
+        for (PlayerStats stats : list) {
+            writePlayerStats(out, stats);
+        }
+    }
+
+    public static List<PlayerStats> readPlayerStatsList(DataInput in) throws IOException {
+        int count = in.readInt();
+        List<PlayerStats> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            list.add(readPlayerStats(in));
+        }
+        return list;
+    }
+
+    public static void writeLeaderboardPage(DataOutput out, LeaderboardPage page) throws IOException {
+        out.writeInt(page.getFirstRank());
+        out.writeInt(page.getTotalPlayers());
+        writePlayerStatsList(out, page.getEntries());
+    }
+
+    public static LeaderboardPage readLeaderboardPage(DataInput in) throws IOException {
+        return new LeaderboardPage(in.readInt(), in.readInt(), readPlayerStatsList(in));
+    }
+}
@@ -0,0 +1,66 @@
+package shared;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Supplier;
+
+/**
+ * Chooses between platform and virtual threads for executors whose tasks
+ * spend their time blocked on the network: long polls, remote callbacks, the
+ * client's game loop. Start with -Dmorpion.threads=virtual to run them one
+ * virtual thread per task, so a blocked task no longer holds an OS thread.
+ *
+ * Virtual threads need Java 21. The code builds on Java 17, so they are found
+ * reflectively; on older runtimes the platform executors are kept and a
+ * warning is printed once.
+ */
+public final class ExecutionMode {
+    public static final String PROPERTY = "morpion.threads";
+
+    private static final boolean VIRTUAL_REQUESTED = "virtual".equalsIgnoreCase(System.getProperty(PROPERTY));
+    private static final Method OF_VIRTUAL = VIRTUAL_REQUESTED ? findOfVirtual() : null;
+
+    private ExecutionMode() {
+    }
+
+    private static Method findOfVirtual() {
+        try {
+            return Thread.class.getMethod("ofVirtual");
+        } catch (NoSuchMethodException e) {
+            System.err.println("[THREADS] Virtual threads need Java 21 (running "
+                    + System.getProperty("java.version") + "); using platform threads");
+            return null;
+        }
+    }
+
+    /** @return true if blocking work runs on virtual threads */
+    public static boolean isVirtual() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * @param name             Prefix for the names of virtual threads
+     * @param platformExecutor Builds the executor used in platform mode
+     * @return A virtual-thread-per-task executor in virtual mode, otherwise the
+     *         platform executor
+     */
+    public static ExecutorService newExecutor(String name, Supplier<ExecutorService> platformExecutor) {
+        if (OF_VIRTUAL == null) {
+            return platformExecutor.get();
+        }
+        try {
+            Object builder = OF_VIRTUAL.invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, name + "-", 0L);
+            ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            Method perTask = Executors.class.getMethod("newThreadPerTaskExecutor",
+                    ThreadFactory.class);
+            return (ExecutorService) perTask.invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+            System.err.println("[THREADS] No virtual threads for " + name + ": " + e);
+            return platformExecutor.get();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package shared;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+
+/**
+ * Remote callback exported by a client so that a game room can push events
+ * instead of being polled.
+ */
+public interface GameListener extends Remote {
+
+    /**
+     * Called when a second player joins the room
+     * 
+     * @param roomId     The room ID
+     * @param playerName Name of the player who joined
+     * @throws RemoteException If connection fails
+     */
+    void onOpponentJoined(String roomId, String playerName) throws RemoteException;
+
+    /**
+     * Called when a player leaves the room
+     * 
+     * @param roomId     The room ID
+     * @param playerName Name of the player who left
+     * @throws RemoteException If connection fails
+     */
+    void onOpponentLeft(String roomId, String playerName) throws RemoteException;
+
+    /**
+     * Called after every valid move
+     * 
+     * @param roomId   The room ID
+     * @param row      The row index of the move
+     * @param col      The column index of the move
+     * @param symbol   "X" or "O", the symbol that was placed
+     * @param nextTurn Symbol of the player to move next, or null if the game is
+     *                 over
+     * @throws RemoteException If connection fails
+     */
+    void onMove(String roomId, int row, int col, String symbol, String nextTurn) throws RemoteException;
+
+    /**
+     * Called when the game ends
+     * 
+     * @param roomId The room ID
+     * @param winner "X", "O" or "DRAW"
+     * @throws RemoteException If connection fails
+     */
+    void onGameOver(String roomId, String winner) throws RemoteException;
+
+    /**
+     * Called when the board is reset for a new game
+     * 
+     * @param roomId The room ID
+     * @throws RemoteException If connection fails
+     */
+    void onGameReset(String roomId) throws RemoteException;
+}
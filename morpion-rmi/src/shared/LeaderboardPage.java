@@ -0,0 +1,51 @@
+package shared;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A slice of the leaderboard, read from a single version of it so that the
+ * ranks of its entries are consistent with each other.
+ */
+public final class LeaderboardPage implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final int firstRank;
+    private final int totalPlayers;
+    private final List<PlayerStats> entries;
+
+    /**
+     * @param firstRank    Rank of the first entry, 1 being the best player
+     * @param totalPlayers Rated players in the whole leaderboard
+     * @param entries      Consecutive profiles, best first
+     */
+    public LeaderboardPage(int firstRank, int totalPlayers, List<PlayerStats> entries) {
+        this.firstRank = firstRank;
+        this.totalPlayers = totalPlayers;
+        this.entries = Collections.unmodifiableList(new ArrayList<>(entries));
+    }
+
+    public int getFirstRank() {
+        return firstRank;
+    }
+
+    public int getTotalPlayers() {
+        return totalPlayers;
+    }
+
+    public List<PlayerStats> getEntries() {
+        return entries;
+    }
+
+    /** @return Rank of the named player on this page, or 0 if they are not on it */
+    public int rankOf(String playerName) {
+        for (int i = 0; i < entries.size(); i++) {
+            if (entries.get(i).getPlayerName().equals(playerName)) {
+                return firstRank + i;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,42 @@
+package shared;
+
+import java.io.Serializable;
+
+/**
+ * One change to the list of joinable rooms.
+ */
+public final class LobbyDelta implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public enum Type {
+        ADDED, // a new room is waiting for a guest
+        FILLED, // a guest or bot took the free seat
+        REMOVED // the room is gone
+    }
+
+    private final Type type;
+    private final String roomId;
+    private final String description;
+
+    /**
+     * @param description "ID (Host: name, NxN)" for ADDED, null otherwise
+     */
+    public LobbyDelta(Type type, String roomId, String description) {
+        this.type = type;
+        this.roomId = roomId;
+        this.description = description;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getRoomId() {
+        return roomId;
+    }
+
+    /** @return "ID (Host: name, NxN)" for ADDED, null otherwise */
+    public String getDescription() {
+        return description;
+    }
+}
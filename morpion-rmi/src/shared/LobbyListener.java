@@ -0,0 +1,19 @@
+package shared;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+
+/**
+ * Client-side callback for lobby changes. Updates are batched by the server,
+ * so one call may carry many rooms; calls for one listener never overlap.
+ */
+public interface LobbyListener extends Remote {
+    /**
+     * Receives the lobby changes since the previous update (or since the page
+     * returned by subscribeLobby)
+     * 
+     * @param update Coalesced changes, or a resync request
+     * @throws RemoteException If connection fails
+     */
+    void onLobbyUpdate(LobbyUpdate update) throws RemoteException;
+}
@@ -0,0 +1,81 @@
+package shared;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of joinable rooms, in room id order. The room descriptions are
+ * encoded once when the page is built, so the server can hand the same page
+ * to every lobby client and each RMI call only copies a byte array.
+ */
+public final class LobbyPage implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final long version;
+    private final int totalRooms;
+    private final String nextCursor;
+    private final byte[] encodedRooms;
+    private transient List<String> rooms;
+
+    /**
+     * @param version    Lobby version the page was read at
+     * @param totalRooms Joinable rooms in the whole lobby
+     * @param nextCursor Room id to continue after, or null on the last page
+     * @param rooms      Descriptions in the form "ID (Host: name, NxN)"
+     */
+    public LobbyPage(long version, int totalRooms, String nextCursor, List<String> rooms) {
+        this.version = version;
+        this.totalRooms = totalRooms;
+        this.nextCursor = nextCursor;
+        this.rooms = Collections.unmodifiableList(new ArrayList<>(rooms));
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(rooms.size() * 32 + 4);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(rooms.size());
+            for (String room : rooms) {
+                out.writeUTF(room);
+            }
+            this.encodedRooms = bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public int getTotalRooms() {
+        return totalRooms;
+    }
+
+    /** @return Cursor for the next page, or null if this is the last one */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /** @return Room descriptions, "ID (Host: name, NxN)" */
+    public synchronized List<String> getRooms() {
+        if (rooms == null) {
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(encodedRooms))) {
+                int count = in.readInt();
+                List<String> decoded = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    decoded.add(in.readUTF());
+                }
+                rooms = Collections.unmodifiableList(decoded);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return rooms;
+    }
+}
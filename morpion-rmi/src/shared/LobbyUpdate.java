@@ -0,0 +1,52 @@
+package shared;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Lobby changes between two versions, coalesced to the latest change per
+ * room. Applying the deltas in order to a lobby seen at any version from
+ * fromVersion to toVersion brings it to toVersion. If the server no longer
+ * holds the changes since the requested version, the update asks for a resync
+ * instead: reload the lobby with listRooms.
+ */
+public final class LobbyUpdate implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final long fromVersion;
+    private final long toVersion;
+    private final int totalRooms;
+    private final boolean resync;
+    private final List<LobbyDelta> deltas;
+
+    public LobbyUpdate(long fromVersion, long toVersion, int totalRooms, boolean resync, List<LobbyDelta> deltas) {
+        this.fromVersion = fromVersion;
+        this.toVersion = toVersion;
+        this.totalRooms = totalRooms;
+        this.resync = resync;
+        this.deltas = Collections.unmodifiableList(deltas);
+    }
+
+    public long getFromVersion() {
+        return fromVersion;
+    }
+
+    public long getToVersion() {
+        return toVersion;
+    }
+
+    /** @return Joinable rooms in the whole lobby when the update was built */
+    public int getTotalRooms() {
+        return totalRooms;
+    }
+
+    /** @return true if the deltas are missing and the lobby must be reloaded */
+    public boolean isResync() {
+        return resync;
+    }
+
+    public List<LobbyDelta> getDeltas() {
+        return deltas;
+    }
+}
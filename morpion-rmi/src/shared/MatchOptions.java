@@ -0,0 +1,44 @@
+package shared;
+
+import java.io.Serializable;
+
+/**
+ * What a player is looking for in quickMatch: the board, and how long one call
+ * may block waiting for an opponent.
+ */
+public final class MatchOptions implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final int boardSize;
+    private final int winLength;
+    private final long maxWaitMs;
+
+    /**
+     * @param boardSize Number of rows and columns (3-19)
+     * @param winLength Stones in a row needed to win (3 to boardSize)
+     * @param maxWaitMs How long one quickMatch call may block, capped by the
+     *                  server; 0 to only enqueue
+     */
+    public MatchOptions(int boardSize, int winLength, long maxWaitMs) {
+        this.boardSize = boardSize;
+        this.winLength = winLength;
+        this.maxWaitMs = maxWaitMs;
+    }
+
+    /** Classic 3x3, waiting up to 20 seconds per call. */
+    public static MatchOptions classic() {
+        return new MatchOptions(3, 3, 20000);
+    }
+
+    public int getBoardSize() {
+        return boardSize;
+    }
+
+    public int getWinLength() {
+        return winLength;
+    }
+
+    public long getMaxWaitMs() {
+        return maxWaitMs;
+    }
+}
@@ -0,0 +1,56 @@
+package shared;
+
+import java.io.Serializable;
+
+/**
+ * Outcome of a quickMatch call. While the status is WAITING the player stays
+ * queued, and calling quickMatch again resumes the wait.
+ */
+public final class MatchResult implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public enum Status {
+        MATCHED, WAITING, CANCELLED, ERROR
+    }
+
+    private final Status status;
+    private final String roomId;
+    private final String symbol;
+    private final String opponent;
+    private final long waitMs;
+
+    public MatchResult(Status status, String roomId, String symbol, String opponent, long waitMs) {
+        this.status = status;
+        this.roomId = roomId;
+        this.symbol = symbol;
+        this.opponent = opponent;
+        this.waitMs = waitMs;
+    }
+
+    public static MatchResult of(Status status, long waitMs) {
+        return new MatchResult(status, null, null, null, waitMs);
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /** @return The room both players are already seated in, if MATCHED */
+    public String getRoomId() {
+        return roomId;
+    }
+
+    /** @return "X" or "O", if MATCHED */
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public String getOpponent() {
+        return opponent;
+    }
+
+    /** @return Time since the player was queued */
+    public long getWaitMs() {
+        return waitMs;
+    }
+}
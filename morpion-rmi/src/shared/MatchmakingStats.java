@@ -0,0 +1,46 @@
+package shared;
+
+import java.io.Serializable;
+
+/**
+ * Point-in-time matchmaking figures.
+ */
+public final class MatchmakingStats implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final int queueDepth;
+    private final long matchesMade;
+    private final double averageWaitMs;
+    private final long maxWaitMs;
+
+    public MatchmakingStats(int queueDepth, long matchesMade, double averageWaitMs, long maxWaitMs) {
+        this.queueDepth = queueDepth;
+        this.matchesMade = matchesMade;
+        this.averageWaitMs = averageWaitMs;
+        this.maxWaitMs = maxWaitMs;
+    }
+
+    /** @return Players currently waiting for an opponent */
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    public long getMatchesMade() {
+        return matchesMade;
+    }
+
+    /** @return Mean time-to-match over all matched players */
+    public double getAverageWaitMs() {
+        return averageWaitMs;
+    }
+
+    public long getMaxWaitMs() {
+        return maxWaitMs;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("queue=%d matches=%d avgWait=%.1fms maxWait=%dms", queueDepth, matchesMade,
+                averageWaitMs, maxWaitMs);
+    }
+}
@@ -20,6 +20,27 @@ public interface MorpionInterface extends Remote {
         WAITING, IN_PROGRESS, COMPLETED, ERROR
     }
 
+    // Enum for bot strength: maximum search depth (plies) and time per move
+    enum BotDifficulty {
+        EASY(1, 100), MEDIUM(3, 500), HARD(9, 2000);
+
+        private final int depth;
+        private final long timeBudgetMs;
+
+        BotDifficulty(int depth, long timeBudgetMs) {
+            this.depth = depth;
+            this.timeBudgetMs = timeBudgetMs;
+        }
+
+        public int getDepth() {
+            return depth;
+        }
+
+        public long getTimeBudgetMs() {
+            return timeBudgetMs;
+        }
+    }
+
     /* Room Management Methods */
 
     /**
@@ -31,6 +52,17 @@ public interface MorpionInterface extends Remote {
      */
     String createRoom(String playerName) throws RemoteException;
 
+    /**
+     * Creates a new game room with a custom board, e.g. 15x15 five-in-a-row
+     * 
+     * @param playerName Name of the player creating the room
+     * @param boardSize  Number of rows and columns (3-19)
+     * @param winLength  Stones in a row needed to win (3 to boardSize)
+     * @return The created room ID, or null if the configuration is invalid
+     * @throws RemoteException If connection fails
+     */
+    String createRoom(String playerName, int boardSize, int winLength) throws RemoteException;
+
     /**
      * Joins an existing game room
      * 
@@ -42,13 +74,159 @@ public interface MorpionInterface extends Remote {
     RegistrationStatus joinRoom(String roomId, String playerName) throws RemoteException;
 
     /**
-     * Lists all available game rooms
+     * Seats a server-side bot as the second player of a waiting room
      * 
-     * @return List of room IDs and their statuses
+     * @param roomId     The room ID to fill
+     * @param difficulty How deep and how long the bot searches
+     * @return PLAYER_O if the bot joined, otherwise why it couldn't
+     * @throws RemoteException If connection fails
+     */
+    RegistrationStatus addBot(String roomId, BotDifficulty difficulty) throws RemoteException;
+
+    /**
+     * Lists available game rooms: the first page of the lobby
+     * 
+     * @return Up to 50 rooms, "ID (Host: name, NxN)"
      * @throws RemoteException If connection fails
      */
     List<String> listAvailableRooms() throws RemoteException;
 
+    /**
+     * Lists joinable rooms one page at a time, in room ID order
+     * 
+     * @param afterRoomId Cursor: the previous page's next cursor, or null for
+     *                    the first page
+     * @param limit       Maximum number of rooms, capped by the server
+     * @return The page, with the lobby version it was read at
+     * @throws RemoteException If connection fails
+     */
+    LobbyPage listRooms(String afterRoomId, int limit) throws RemoteException;
+
+    /**
+     * Follows the lobby: returns its first page and then pushes the changes
+     * (rooms added, filled, removed) to the listener, batched and coalesced.
+     * Subscribing again replaces the player's previous listener
+     * 
+     * @param playerName The player subscribing
+     * @param listener   The exported callback object
+     * @return The first page; updates start from its version
+     * @throws RemoteException If connection fails
+     */
+    LobbyPage subscribeLobby(String playerName, LobbyListener listener) throws RemoteException;
+
+    /**
+     * Stops pushing lobby changes to a player
+     * 
+     * @param playerName The player leaving the lobby
+     * @throws RemoteException If connection fails
+     */
+    void unsubscribeLobby(String playerName) throws RemoteException;
+
+    /**
+     * Polling alternative to subscribeLobby for clients that can't receive
+     * callbacks
+     * 
+     * @param sinceVersion The last lobby version the caller has seen
+     * @return The changes since then, or a resync request if they are too old
+     * @throws RemoteException If connection fails
+     */
+    LobbyUpdate getLobbyChanges(long sinceVersion) throws RemoteException;
+
+    /**
+     * Finds an opponent automatically: queues the player for the requested
+     * board and, once a player of similar rating is found, seats both in a new
+     * room. The accepted rating gap widens the longer a player waits. Blocks up
+     * to options.getMaxWaitMs(); on WAITING the player stays queued and should
+     * call again to keep waiting
+     * 
+     * @param playerName The player looking for a game
+     * @param options    Board wanted and how long this call may block
+     * @return MATCHED with the room ID and symbol, WAITING, CANCELLED or ERROR
+     * @throws RemoteException If connection fails
+     */
+    MatchResult quickMatch(String playerName, MatchOptions options) throws RemoteException;
+
+    /**
+     * Leaves the matchmaking queue
+     * 
+     * @param playerName The player to remove
+     * @throws RemoteException If connection fails
+     */
+    void cancelQuickMatch(String playerName) throws RemoteException;
+
+    /**
+     * Gets matchmaking queue depth and time-to-match figures
+     * 
+     * @return Current statistics
+     * @throws RemoteException If connection fails
+     */
+    MatchmakingStats getMatchmakingStats() throws RemoteException;
+
+    /* Ratings */
+
+    /**
+     * Gets a player's rating and win/loss/draw record. Results against bots
+     * are not rated.
+     * 
+     * @param playerName The player to look up
+     * @return The player's profile, or null if they have no rated game yet
+     * @throws RemoteException If connection fails
+     */
+    PlayerStats getPlayerStats(String playerName) throws RemoteException;
+
+    /**
+     * Gets the highest rated players, best first
+     * 
+     * @param limit Number of players wanted (at most 100)
+     * @return Up to limit profiles
+     * @throws RemoteException If connection fails
+     */
+    List<PlayerStats> getLeaderboard(int limit) throws RemoteException;
+
+    /**
+     * Gets a player's position on the leaderboard
+     * 
+     * @param playerName The player to look up
+     * @return 1 for the best player, 0 if the player is unrated
+     * @throws RemoteException If connection fails
+     */
+    int getRank(String playerName) throws RemoteException;
+
+    /**
+     * Gets the part of the leaderboard around a player, e.g. to show where
+     * they stand after a game
+     * 
+     * @param playerName The player to center on
+     * @param radius     Players wanted above and below them (at most 50)
+     * @return The slice with its first rank, or null if the player is unrated
+     * @throws RemoteException If connection fails
+     */
+    LeaderboardPage getLeaderboardAround(String playerName, int radius) throws RemoteException;
+
+    /* Spectators */
+
+    /**
+     * Starts pushing a room's state to a spectator after every change. Slow
+     * spectators are sent the latest state only; watching never delays the
+     * players or keeps an idle room alive.
+     * 
+     * @param roomId        The room to watch
+     * @param spectatorName Name of the spectator, unique per room
+     * @param listener      The exported callback object
+     * @return The current state of the room, or null if it doesn't exist
+     * @throws RemoteException If connection fails
+     */
+    RoomSnapshot watchRoom(String roomId, String spectatorName, SpectatorListener listener) throws RemoteException;
+
+    /**
+     * Stops pushing a room's state to a spectator
+     * 
+     * @param roomId        The watched room
+     * @param spectatorName Name the spectator watched under
+     * @throws RemoteException If connection fails
+     */
+    void unwatchRoom(String roomId, String spectatorName) throws RemoteException;
+
     /**
      * Gets the status of a specific room
      * 
@@ -63,8 +241,8 @@ public interface MorpionInterface extends Remote {
     /**
      * Makes a move in the current room
      * 
-     * @param row        The row index (0-2)
-     * @param col        The column index (0-2)
+     * @param row        The row index (0 to board size - 1)
+     * @param col        The column index (0 to board size - 1)
      * @param playerName The player making the move
      * @return MoveStatus indicating the result
      * @throws RemoteException If connection fails
@@ -151,8 +329,8 @@ public interface MorpionInterface extends Remote {
      * Makes a move in a specific room
      * 
      * @param roomId     The room ID where the move is made
-     * @param row        The row index (0-2)
-     * @param col        The column index (0-2)
+     * @param row        The row index (0 to board size - 1)
+     * @param col        The column index (0 to board size - 1)
      * @param playerName The player making the move
      * @return MoveStatus indicating the result
      * @throws RemoteException If connection fails
@@ -183,5 +361,119 @@ public interface MorpionInterface extends Remote {
         return isGameOver();
     }
 
-    // ... similar default implementations for other room-specific methods ...
+    /**
+     * Gets the winner of a specific room's game
+     * 
+     * @param roomId The room ID to query
+     * @return "X", "O", "DRAW", or null if game isn't over
+     * @throws RemoteException If connection fails
+     */
+    default String getWinner(String roomId) throws RemoteException {
+        return getWinner();
+    }
+
+    /**
+     * Checks if it's the player's turn in a specific room
+     * 
+     * @param roomId     The room ID to check
+     * @param playerName The player to check
+     * @return true if it's the player's turn
+     * @throws RemoteException If connection fails
+     */
+    default boolean isPlayerTurn(String roomId, String playerName) throws RemoteException {
+        return isPlayerTurn(playerName);
+    }
+
+    /**
+     * Checks if a specific room has both players
+     * 
+     * @param roomId The room ID to check
+     * @return true if the game can start
+     * @throws RemoteException If connection fails
+     */
+    default boolean isGameReady(String roomId) throws RemoteException {
+        return isGameReady();
+    }
+
+    /**
+     * Resets the game of a specific room
+     * 
+     * @param roomId The room ID to reset
+     * @throws RemoteException If connection fails
+     */
+    default void resetGame(String roomId) throws RemoteException {
+        resetGame();
+    }
+
+    /**
+     * Disconnects a player from a specific room
+     * 
+     * @param roomId     The room ID the player leaves
+     * @param playerName The player to disconnect
+     * @throws RemoteException If connection fails
+     */
+    default void disconnectPlayer(String roomId, String playerName) throws RemoteException {
+        disconnectPlayer(playerName);
+    }
+
+    /**
+     * Gets a player's symbol in a specific room
+     * 
+     * @param roomId     The room ID to query
+     * @param playerName The player to query
+     * @return "X", "O", or null if the player isn't in the room
+     * @throws RemoteException If connection fails
+     */
+    default String getPlayerSymbol(String roomId, String playerName) throws RemoteException {
+        return getPlayerSymbol(playerName);
+    }
+
+    /**
+     * Gets a consistent snapshot of a room: board, turn, status, winner and
+     * version, all read atomically
+     * 
+     * @param roomId     The room ID to query
+     * @param playerName The player asking, used to fill in the viewer symbol
+     * @return The snapshot, or null if the room doesn't exist
+     * @throws RemoteException If connection fails
+     */
+    RoomSnapshot getRoomSnapshot(String roomId, String playerName) throws RemoteException;
+
+    /**
+     * Long-poll alternative to callbacks: blocks until the room's version moves
+     * past sinceVersion or the timeout expires, then returns the room state
+     * 
+     * @param roomId       The room ID to watch
+     * @param sinceVersion The last version the caller has seen
+     * @param timeoutMs    Maximum time to wait, capped by the server
+     * @return The current snapshot (unchanged on timeout), or null if the room
+     *         doesn't exist
+     * @throws RemoteException If connection fails
+     */
+    RoomSnapshot waitForChange(String roomId, long sinceVersion, long timeoutMs) throws RemoteException;
+
+    /* Event callbacks */
+
+    /**
+     * Registers a listener that receives the events of a room as they happen
+     * (moves, game over, opponent joining or leaving). Clients should keep
+     * polling at a low rate as a fallback, since the server drops listeners it
+     * cannot reach.
+     * 
+     * @param roomId     The room ID to listen to
+     * @param playerName The player owning the listener
+     * @param listener   The exported callback object
+     * @return true if the listener was registered
+     * @throws RemoteException If connection fails
+     */
+    boolean registerListener(String roomId, String playerName, GameListener listener) throws RemoteException;
+
+    /**
+     * Removes a player's listener from a room
+     * 
+     * @param roomId     The room ID
+     * @param playerName The player owning the listener
+     * @throws RemoteException If connection fails
+     */
+    void unregisterListener(String roomId, String playerName) throws RemoteException;
 }
\ No newline at end of file
@@ -0,0 +1,60 @@
+package shared;
+
+import java.io.Serializable;
+import java.util.Comparator;
+
+/**
+ * A player's rating and results. Immutable: every finished game replaces the
+ * player's profile with a new instance.
+ */
+public final class PlayerStats implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /** Leaderboard order: best rating first, ties broken by name so every player has their own place. */
+    public static final Comparator<PlayerStats> BY_RATING = Comparator.comparingDouble(PlayerStats::getRating)
+            .reversed().thenComparing(PlayerStats::getPlayerName);
+
+    private final String playerName;
+    private final double rating;
+    private final int wins;
+    private final int losses;
+    private final int draws;
+
+    public PlayerStats(String playerName, double rating, int wins, int losses, int draws) {
+        this.playerName = playerName;
+        this.rating = rating;
+        this.wins = wins;
+        this.losses = losses;
+        this.draws = draws;
+    }
+
+    public String getPlayerName() {
+        return playerName;
+    }
+
+    /** @return Elo rating, unrounded */
+    public double getRating() {
+        return rating;
+    }
+
+    public int getWins() {
+        return wins;
+    }
+
+    public int getLosses() {
+        return losses;
+    }
+
+    public int getDraws() {
+        return draws;
+    }
+
+    public int getGamesPlayed() {
+        return wins + losses + draws;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %d (%d-%d-%d)", playerName, Math.round(rating), wins, losses, draws);
+    }
+}
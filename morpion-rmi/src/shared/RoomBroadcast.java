@@ -0,0 +1,51 @@
+package shared;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+
+/**
+ * Room state sent to spectators. The snapshot is encoded once when the room
+ * changes, so the same instance goes to every spectator and each RMI call
+ * only copies a byte array.
+ */
+public final class RoomBroadcast implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final long version;
+    private final byte[] encodedSnapshot;
+    private transient RoomSnapshot snapshot;
+
+    /** @param snapshot State of the room, taken without a viewer */
+    public RoomBroadcast(RoomSnapshot snapshot) {
+        this.version = snapshot.getVersion();
+        this.snapshot = snapshot;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + snapshot.getSize() * snapshot.getSize() / 4);
+            BinaryProtocol.writeSnapshot(new DataOutputStream(bytes), snapshot);
+            this.encodedSnapshot = bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /** @return The room state; its viewer symbol is always null */
+    public synchronized RoomSnapshot getSnapshot() {
+        if (snapshot == null) {
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(encodedSnapshot))) {
+                snapshot = BinaryProtocol.readSnapshot(in);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return snapshot;
+    }
+}
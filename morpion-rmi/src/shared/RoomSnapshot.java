@@ -0,0 +1,101 @@
+package shared;
+
+import java.io.Serializable;
+
+import shared.MorpionInterface.RoomStatus;
+
+/**
+ * Immutable, consistent view of a room taken under the room lock, so a client
+ * can refresh its whole screen with one remote call.
+ */
+public final class RoomSnapshot implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final String roomId;
+    private final int size;
+    private final char[] cells; // row-major, 'X', 'O' or ' '
+    private final String currentTurn;
+    private final RoomStatus status;
+    private final String winner;
+    private final long version;
+    private final String hostPlayer;
+    private final String guestPlayer;
+    private final String viewerSymbol;
+
+    public RoomSnapshot(String roomId, int size, char[] cells, String currentTurn, RoomStatus status,
+            String winner, long version, String hostPlayer, String guestPlayer, String viewerSymbol) {
+        this.roomId = roomId;
+        this.size = size;
+        this.cells = cells.clone();
+        this.currentTurn = currentTurn;
+        this.status = status;
+        this.winner = winner;
+        this.version = version;
+        this.hostPlayer = hostPlayer;
+        this.guestPlayer = guestPlayer;
+        this.viewerSymbol = viewerSymbol;
+    }
+
+    public String getRoomId() {
+        return roomId;
+    }
+
+    /** @return Number of rows (and columns) of the board */
+    public int getSize() {
+        return size;
+    }
+
+    /** @return "X", "O" or "" for an empty cell */
+    public String getCell(int row, int col) {
+        char c = cells[row * size + col];
+        return c == ' ' ? "" : String.valueOf(c);
+    }
+
+    public char[] getCells() {
+        return cells.clone();
+    }
+
+    /** @return "X" or "O", or null once the game is over */
+    public String getCurrentTurn() {
+        return currentTurn;
+    }
+
+    public RoomStatus getStatus() {
+        return status;
+    }
+
+    /** @return "X", "O", "DRAW", or null if game isn't over */
+    public String getWinner() {
+        return winner;
+    }
+
+    public boolean isGameOver() {
+        return winner != null;
+    }
+
+    /** @return Counter incremented on every change to the room */
+    public long getVersion() {
+        return version;
+    }
+
+    public String getHostPlayer() {
+        return hostPlayer;
+    }
+
+    public String getGuestPlayer() {
+        return guestPlayer;
+    }
+
+    public boolean isGameReady() {
+        return guestPlayer != null;
+    }
+
+    /** @return Symbol of the player the snapshot was requested for, or null */
+    public String getViewerSymbol() {
+        return viewerSymbol;
+    }
+
+    public boolean isViewerTurn() {
+        return viewerSymbol != null && isGameReady() && viewerSymbol.equals(currentTurn);
+    }
+}
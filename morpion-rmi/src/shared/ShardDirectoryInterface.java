@@ -0,0 +1,44 @@
+package shared;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+
+/**
+ * Membership of a sharded deployment. Server nodes join and keep calling join
+ * as a heartbeat; clients fetch the map once and then talk to the owning
+ * nodes directly, coming back only when a node no longer has a room.
+ */
+public interface ShardDirectoryInterface extends Remote {
+    /** Registry name the directory is bound under */
+    String NAME = "MorpionDirectory";
+
+    /** Registry port the directory listens on by default */
+    int DEFAULT_PORT = 1098;
+
+    /**
+     * Adds a node to the ring, or refreshes it if already there
+     *
+     * @param nodeId   Stable node name; its ring position derives from it
+     * @param endpoint "host:port" of the registry where the node is bound
+     * @return The current map, including the node
+     * @throws RemoteException If connection fails
+     */
+    ShardMap join(String nodeId, String endpoint) throws RemoteException;
+
+    /**
+     * Removes a node from the ring; its rooms then belong to its neighbours
+     *
+     * @param nodeId Node to remove
+     * @return The map without the node
+     * @throws RemoteException If connection fails
+     */
+    ShardMap leave(String nodeId) throws RemoteException;
+
+    /**
+     * Gets the current map
+     *
+     * @return Nodes and their endpoints, versioned
+     * @throws RemoteException If connection fails
+     */
+    ShardMap getShardMap() throws RemoteException;
+}
@@ -0,0 +1,150 @@
+package shared;
+
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Which server node owns which rooms. Every node sits on a consistent-hash
+ * ring at VIRTUAL_NODES points, and a room belongs to the node at the first
+ * point at or after the hash of its id, wrapping round. A node that joins
+ * takes about 1/(n+1) of the rooms, each from one of its ring neighbours, and
+ * no other room moves.
+ *
+ * A room id is its own shard key: a node only hands out ids that hash into
+ * its own arcs, so anyone holding the map finds a room's node from the id
+ * alone. Maps are issued by the ShardDirectory; a higher version replaces a
+ * lower one.
+ */
+public final class ShardMap implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /** Ring points per node; more points give a more even split. */
+    public static final int VIRTUAL_NODES = 128;
+
+    private final long version;
+    private final SortedMap<String, String> endpoints; // node id -> "host:port" of its RMI registry
+    private transient volatile Ring ring;
+
+    private static final class Ring {
+        final long[] points; // sorted
+        final String[] owners; // node at each point
+
+        Ring(long[] points, String[] owners) {
+            this.points = points;
+            this.owners = owners;
+        }
+    }
+
+    public ShardMap(long version, SortedMap<String, String> endpoints) {
+        this.version = version;
+        this.endpoints = Collections.unmodifiableSortedMap(new TreeMap<>(endpoints));
+    }
+
+    /** @return The map with no nodes, version 0 */
+    public static ShardMap empty() {
+        return new ShardMap(0, new TreeMap<>());
+    }
+
+    /** @return A copy one version later with the node added or its endpoint replaced */
+    public ShardMap with(String nodeId, String endpoint) {
+        TreeMap<String, String> next = new TreeMap<>(endpoints);
+        next.put(nodeId, endpoint);
+        return new ShardMap(version + 1, next);
+    }
+
+    /** @return A copy one version later without the node */
+    public ShardMap without(String nodeId) {
+        TreeMap<String, String> next = new TreeMap<>(endpoints);
+        next.remove(nodeId);
+        return new ShardMap(version + 1, next);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean isEmpty() {
+        return endpoints.isEmpty();
+    }
+
+    /** @return Node ids in order */
+    public Set<String> getNodes() {
+        return endpoints.keySet();
+    }
+
+    /** @return "host:port" of the node's registry, or null if it isn't in the map */
+    public String getEndpoint(String nodeId) {
+        return endpoints.get(nodeId);
+    }
+
+    /**
+     * @param key Room id, or any other key spread over the nodes
+     * @return Id of the node owning the key, or null if the map is empty
+     */
+    public String ownerOf(String key) {
+        if (endpoints.isEmpty()) {
+            return null;
+        }
+        Ring ring = this.ring;
+        if (ring == null) {
+            ring = buildRing();
+            this.ring = ring;
+        }
+        int index = Arrays.binarySearch(ring.points, hash(key));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return ring.owners[index == ring.points.length ? 0 : index];
+    }
+
+    // Built on first use, also after deserialization; a racing rebuild gives the same ring
+    private Ring buildRing() {
+        int count = endpoints.size() * VIRTUAL_NODES;
+        long[][] ring = new long[count][];
+        String[] nodes = endpoints.keySet().toArray(new String[0]);
+        int i = 0;
+        for (int n = 0; n < nodes.length; n++) {
+            for (int v = 0; v < VIRTUAL_NODES; v++) {
+                ring[i++] = new long[] { hash(nodes[n] + "#" + v), n };
+            }
+        }
+        // Ties, however unlikely, go to the lower node id on every JVM
+        Arrays.sort(ring, (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        long[] sortedPoints = new long[count];
+        String[] sortedOwners = new String[count];
+        for (i = 0; i < count; i++) {
+            sortedPoints[i] = ring[i][0];
+            sortedOwners[i] = nodes[(int) ring[i][1]];
+        }
+        return new Ring(sortedPoints, sortedOwners);
+    }
+
+    /**
+     * FNV-1a over the UTF-8 bytes, then MurmurHash3's finalizer to spread
+     * short, similar keys. Fixed by this class, unlike String.hashCode, so
+     * every node and client places keys the same way.
+     */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        return "v" + version + " " + endpoints;
+    }
+}
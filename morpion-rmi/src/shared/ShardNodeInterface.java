@@ -0,0 +1,32 @@
+package shared;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.util.List;
+
+/**
+ * Node-to-node calls of a sharded deployment, bound next to "MorpionGame" in
+ * each node's registry.
+ */
+public interface ShardNodeInterface extends Remote {
+    /** Registry name a node's hand-off endpoint is bound under */
+    String NAME = "MorpionShard";
+
+    /**
+     * Takes over rooms another node no longer owns
+     *
+     * @param rooms Each room as written for a checkpoint
+     * @return Number of rooms taken; a room this node already has is skipped
+     * @throws RemoteException If connection fails, or the rooms can't be read
+     */
+    int adoptRooms(List<byte[]> rooms) throws RemoteException;
+
+    /**
+     * Lets a node whose adoptRooms call failed find out which rooms were
+     * taken anyway, before it takes any back
+     *
+     * @param roomIds Ids of the rooms that were offered
+     * @return Those of them this node holds
+     */
+    List<String> heldRooms(List<String> roomIds) throws RemoteException;
+}
@@ -0,0 +1,19 @@
+package shared;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+
+/**
+ * Client-side callback for watching a room. Each call carries the whole room
+ * state, so a spectator that falls behind simply skips to the latest one;
+ * calls for one listener never overlap.
+ */
+public interface SpectatorListener extends Remote {
+    /**
+     * Receives the room state after one or more changes
+     * 
+     * @param update The latest state of the watched room
+     * @throws RemoteException If connection fails
+     */
+    void onRoomUpdate(RoomBroadcast update) throws RemoteException;
+}